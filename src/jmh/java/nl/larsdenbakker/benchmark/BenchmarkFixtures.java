@@ -0,0 +1,183 @@
+package nl.larsdenbakker.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.app.UserInputException;
+
+/**
+ * Shared fixtures for the benchmarks. The Application that hosts the modules
+ * is provided by LBApplication, its implementing class is given with the
+ * system property lbtools.benchmark.application and must have a public no-arg
+ * constructor. Fixture data is generated deterministically so results of
+ * different runs can be compared.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public final class BenchmarkFixtures {
+
+   public static final String PROPERTY_APPLICATION = "lbtools.benchmark.application";
+
+   private BenchmarkFixtures() {
+   }
+
+   /**
+    * Create an Application and load the given modules into it. Dependencies
+    * of the given modules are loaded by the Application.
+    *
+    * @param modules The modules to load.
+    *
+    * @return The Application.
+    */
+   @SafeVarargs
+   public static Application createApplication(Class<? extends Module>... modules) {
+      String className = System.getProperty(PROPERTY_APPLICATION);
+      if (className == null) {
+         throw new IllegalStateException("No Application implementation given. Set the system property " + PROPERTY_APPLICATION + ".");
+      }
+      Application app;
+      try {
+         Class<? extends Application> type = Class.forName(className).asSubclass(Application.class);
+         Constructor<? extends Application> constructor = type.getConstructor();
+         app = constructor.newInstance();
+      } catch (ReflectiveOperationException | ClassCastException ex) {
+         throw new IllegalStateException("Could not create Application " + className + ".", ex);
+      }
+      for (Class<? extends Module> module : modules) {
+         if (!app.isLoaded(module)) {
+            try {
+               app.loadModule(module);
+            } catch (UserInputException ex) {
+               throw new IllegalStateException("Could not load " + module.getSimpleName() + ".", ex);
+            }
+         }
+      }
+      return app;
+   }
+
+   /**
+    * @param size The amount of keys.
+    *
+    * @return The keys key-0 to key-(size - 1).
+    */
+   public static String[] createKeys(int size) {
+      String[] keys = new String[size];
+      for (int i = 0; i < size; i++) {
+         keys[i] = "key-" + i;
+      }
+      return keys;
+   }
+
+   /**
+    * @param size The amount of values.
+    *
+    * @return The numbers 0 to size - 1 as Strings.
+    */
+   public static List<String> createNumbers(int size) {
+      List<String> list = new ArrayList(size);
+      for (int i = 0; i < size; i++) {
+         list.add(Integer.toString(i));
+      }
+      return list;
+   }
+
+   /**
+    * @param size The amount of entries.
+    *
+    * @return A Map of key-n to the number n as a String.
+    */
+   public static Map<String, Object> createNumberMap(int size) {
+      Map<String, Object> map = new HashMap((int) (size / 0.75f) + 1);
+      for (int i = 0; i < size; i++) {
+         map.put("key-" + i, Integer.toString(i));
+      }
+      return map;
+   }
+
+   /**
+    * Create a document like the ones stored in data files. Every entry is
+    * a nested Map with a String, a number, a boolean and a short List.
+    *
+    * @param size The amount of entries.
+    *
+    * @return The document.
+    */
+   public static Map<String, Object> createDocument(int size) {
+      Map<String, Object> document = new LinkedHashMap();
+      for (int i = 0; i < size; i++) {
+         Map<String, Object> entry = new LinkedHashMap();
+         entry.put("name", "entry number " + i);
+         entry.put("value", i);
+         entry.put("enabled", i % 2 == 0);
+         List<Object> tags = new ArrayList(3);
+         tags.add("tag-" + (i % 7));
+         tags.add("tag-" + (i % 11));
+         tags.add("tag-" + (i % 13));
+         entry.put("tags", tags);
+         document.put("key-" + i, entry);
+      }
+      return document;
+   }
+
+   /**
+    * Create a Map in which every level contains a single nested Map under
+    * the key node-n.
+    *
+    * @param depth The amount of levels.
+    * @param value The value stored at the deepest level under the key value.
+    *
+    * @return The Map.
+    */
+   public static Map<String, Object> createNestedMap(int depth, Object value) {
+      Map<String, Object> map = new HashMap();
+      map.put("value", value);
+      for (int i = depth - 1; i >= 0; i--) {
+         Map<String, Object> parent = new HashMap();
+         parent.put("node-" + i, map);
+         map = parent;
+      }
+      return map;
+   }
+
+   /**
+    * @param depth The amount of levels.
+    *
+    * @return The dotted path to the value of a map created with createNestedMap(depth, value).
+    */
+   public static String createNestedPath(int depth) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < depth; i++) {
+         sb.append("node-").append(i).append('.');
+      }
+      return sb.append("value").toString();
+   }
+
+   public static File createTempDirectory() {
+      try {
+         File directory = Files.createTempDirectory("lbtools-benchmark").toFile();
+         directory.deleteOnExit();
+         return directory;
+      } catch (IOException ex) {
+         throw new IllegalStateException("Could not create a temporary directory.", ex);
+      }
+   }
+
+   public static void delete(File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for (File child : children) {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+
+}
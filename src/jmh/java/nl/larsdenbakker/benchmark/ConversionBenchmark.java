@@ -0,0 +1,74 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.conversion.ConversionException;
+import nl.larsdenbakker.conversion.ConversionModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks ConversionModule conversion of single values, collections and
+ * maps. Collections and maps contain size Strings that are converted to
+ * Integers.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConversionBenchmark {
+
+   @Param({"10", "1000"})
+   public int size;
+
+   private Application app;
+   private ConversionModule conversionModule;
+   private List<String> numbers;
+   private Map<String, Object> numberMap;
+
+   @Setup
+   public void setup() {
+      app = BenchmarkFixtures.createApplication(ConversionModule.class);
+      conversionModule = app.getModule(ConversionModule.class);
+      numbers = BenchmarkFixtures.createNumbers(size);
+      numberMap = BenchmarkFixtures.createNumberMap(size);
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   @Benchmark
+   public Integer convertStringToInteger() throws ConversionException {
+      return conversionModule.convert("12345", Integer.class);
+   }
+
+   @Benchmark
+   public Object convertToSameType() throws ConversionException {
+      return conversionModule.convert("12345", String.class);
+   }
+
+   @Benchmark
+   public List<Integer> convertToCollection() {
+      return conversionModule.convertToCollection(numbers, ArrayList.class, Integer.class, false);
+   }
+
+   @Benchmark
+   public Map<String, Integer> convertToMap() {
+      return conversionModule.convertToMap(numberMap, HashMap.class, String.class, Integer.class, false);
+   }
+
+}
@@ -0,0 +1,85 @@
+package nl.larsdenbakker.benchmark;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.datafile.DataCompression;
+import nl.larsdenbakker.datafile.DataFile;
+import nl.larsdenbakker.datafile.DataFileException;
+import nl.larsdenbakker.datafile.DataFileModule;
+import nl.larsdenbakker.datafile.DataFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks saving and loading a document of size entries for every
+ * DataFormat and DataCompression. The size of the saved file is printed
+ * after each trial, so the throughput can be weighed against the size.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataFileBenchmark {
+
+   @Param({"10", "1000"})
+   public int size;
+
+   @Param({"JSON", "JSON_UNINDENTED", "YAML"})
+   public DataFormat format;
+
+   @Param({"NONE", "GZIP", "DEFLATE"})
+   public DataCompression compression;
+
+   private Application app;
+   private File directory;
+   private DataFile dataFile;
+   private Map<String, Object> document;
+
+   @Setup
+   public void setup() throws DataFileException {
+      app = BenchmarkFixtures.createApplication(DataFileModule.class);
+      directory = BenchmarkFixtures.createTempDirectory();
+      dataFile = app.getModule(DataFileModule.class).createDataFile(new File(directory, "benchmark.data"), format, compression);
+      document = BenchmarkFixtures.createDocument(size);
+      dataFile.save(document);
+   }
+
+   @TearDown
+   public void tearDown() {
+      System.out.println();
+      System.out.println(format + " " + compression + " file size: " + dataFile.getFile().length() + " bytes");
+      BenchmarkFixtures.delete(directory);
+      app.shutdown();
+   }
+
+   @Benchmark
+   public void save() throws DataFileException {
+      dataFile.save(document);
+   }
+
+   @Benchmark
+   public Map<String, Object> load() throws DataFileException {
+      return dataFile.load();
+   }
+
+   @Benchmark
+   public Map<String, Object> loadMapped() throws DataFileException {
+      return dataFile.loadMapped(false);
+   }
+
+   @Benchmark
+   public Object loadLazyAndGetOne() throws DataFileException {
+      return dataFile.loadMapped(true).get("key-0");
+   }
+
+}
@@ -0,0 +1,65 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.datapath.DataPathModule;
+import nl.larsdenbakker.datapath.DataPathResolveException;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.OperationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks DataPathModule resolving paths through nested maps of the given
+ * depth and through the root registry.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataPathBenchmark {
+
+   @Param({"1", "8", "32"})
+   public int depth;
+
+   private Application app;
+   private DataPathModule dataPathModule;
+   private Map<String, Object> nestedMap;
+   private String nestedPath;
+   private String registryPath;
+
+   @Setup
+   public void setup() {
+      app = BenchmarkFixtures.createApplication(OperationModule.class);
+      dataPathModule = app.getModule(DataPathModule.class);
+      nestedMap = BenchmarkFixtures.createNestedMap(depth, "value");
+      nestedPath = BenchmarkFixtures.createNestedPath(depth);
+      OperationRegistry operationRegistry = app.getModule(OperationModule.class).getOperationRegistry();
+      registryPath = "." + operationRegistry.getKey() + ".string-length";
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   @Benchmark
+   public Object resolveNestedMap() throws DataPathResolveException {
+      return dataPathModule.resolveDataPath(nestedMap, nestedPath);
+   }
+
+   @Benchmark
+   public Object resolveFromRoot() throws DataPathResolveException {
+      return dataPathModule.resolveDataPath(registryPath);
+   }
+
+}
@@ -0,0 +1,65 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.operation.InputLexer;
+import nl.larsdenbakker.util.TextUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks InputLexer against the regular expression based splitting of
+ * TextUtils on an operation with size variables, every other one quoted.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InputLexerBenchmark {
+
+   @Param({"2", "32"})
+   public int size;
+
+   private String input;
+
+   @Setup
+   public void setup() {
+      StringBuilder sb = new StringBuilder("string-length");
+      for (int i = 0; i < size; i++) {
+         sb.append(" key-").append(i).append('=');
+         if (i % 2 == 0) {
+            sb.append("value-").append(i);
+         } else {
+            sb.append("\"quoted value ").append(i).append('"');
+         }
+      }
+      input = sb.toString();
+   }
+
+   @Benchmark
+   public String[] lexerTokenize() {
+      return InputLexer.tokenize(input);
+   }
+
+   @Benchmark
+   public String[] textUtilsSplitExceptInQuotes() {
+      return TextUtils.splitOnSpacesExceptInQuotes(input);
+   }
+
+   @Benchmark
+   public String[] lexerSplitWords() {
+      return InputLexer.splitWords(input);
+   }
+
+   @Benchmark
+   public String[] textUtilsSplitOnSpaces() {
+      return TextUtils.splitOnSpaces(input);
+   }
+
+}
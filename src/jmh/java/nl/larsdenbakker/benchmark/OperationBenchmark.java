@@ -0,0 +1,95 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.app.ApplicationUser;
+import nl.larsdenbakker.operation.BatchResult;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.AbstractTargetedOperation;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.util.OperationResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks OperationExecutor executing the string-length operation from
+ * raw input, from a variables map and as a batch of size variable sets.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OperationBenchmark {
+
+   private static final String OPERATION = "string-length";
+
+   @Param({"10", "1000"})
+   public int size;
+
+   private Application app;
+   private ApplicationUser user;
+   private OperationExecutor executor;
+   private OperationTemplate template;
+   private String rawCommand;
+   private Map<String, Object> variables;
+   private List<Map<String, Object>> batch;
+
+   @Setup
+   public void setup() {
+      app = BenchmarkFixtures.createApplication(OperationModule.class);
+      user = app.getConsole();
+      OperationModule operationModule = app.getModule(OperationModule.class);
+      executor = operationModule.getOperationExecutor();
+      template = operationModule.getOperationRegistry().getByKey(OPERATION);
+      rawCommand = OPERATION + " " + AbstractTargetedOperation.KEY_TARGET + "=\"some target\" "
+                   + StringLengthConstraint.KEY_MIN_LENGTH + "=1 " + StringLengthConstraint.KEY_MAX_LENGTH + "=64";
+      variables = createVariables("some target");
+      batch = new ArrayList(size);
+      for (int i = 0; i < size; i++) {
+         batch.add(createVariables("target " + i));
+      }
+   }
+
+   private static Map<String, Object> createVariables(String target) {
+      Map<String, Object> map = new HashMap();
+      map.put(AbstractTargetedOperation.KEY_TARGET, target);
+      map.put(StringLengthConstraint.KEY_MIN_LENGTH, 1);
+      map.put(StringLengthConstraint.KEY_MAX_LENGTH, 64);
+      return map;
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   @Benchmark
+   public OperationResponse executeRawCommand() {
+      return executor.executeOperation(user, rawCommand);
+   }
+
+   @Benchmark
+   public OperationResponse executeTemplate() {
+      return executor.executeOperation(user, template, new HashMap(variables));
+   }
+
+   @Benchmark
+   public BatchResult executeBatch() {
+      return executor.executeBatch(user, template, batch);
+   }
+
+}
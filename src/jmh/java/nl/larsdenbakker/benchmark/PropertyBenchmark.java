@@ -0,0 +1,136 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.SimpleOperationTemplate;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.property.PropertyHolder;
+import nl.larsdenbakker.property.PropertyModule;
+import nl.larsdenbakker.property.properties.Property;
+import nl.larsdenbakker.property.properties.Properties;
+import nl.larsdenbakker.property.properties.PropertyModificationException;
+import nl.larsdenbakker.property.properties.StringProperty;
+import nl.larsdenbakker.storage.MemoryStorage;
+import nl.larsdenbakker.storage.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks getting and setting the value of a String Property that is
+ * validated by a string-length operation. The PropertyHolder has size
+ * properties, the benchmarked property is the last one.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropertyBenchmark {
+
+   @Param({"1", "32"})
+   public int size;
+
+   private Application app;
+   private BenchmarkHolder holder;
+   private StringProperty property;
+   private StringProperty unvalidatedProperty;
+   private boolean toggle;
+
+   @Setup
+   public void setup() throws PropertyModificationException {
+      app = BenchmarkFixtures.createApplication(PropertyModule.class);
+      ConversionModule conversionModule = app.getModule(ConversionModule.class);
+      OperationModule operationModule = app.getModule(OperationModule.class);
+
+      Variable[] variables = new Variable[]{new Variable(operationModule, StringLengthConstraint.KEY_MIN_LENGTH, 1),
+                                            new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, 64)};
+      OperationTemplate validation = new SimpleOperationTemplate(operationModule, operationModule, "benchmark-length", variables, StringLengthConstraint.class);
+      List<OperationTemplate> validationOperations = new ArrayList();
+      validationOperations.add(validation);
+
+      StringProperty[] properties = new StringProperty[size + 1];
+      String[] keys = BenchmarkFixtures.createKeys(size);
+      for (int i = 0; i < size; i++) {
+         properties[i] = new StringProperty(MemoryStorage.create(conversionModule, keys[i]));
+      }
+      Storage config = MemoryStorage.create(conversionModule, "validated");
+      config.set(Property.KEY_VALIDATION_OPERATIONS, validationOperations);
+      property = new StringProperty(config);
+      properties[size] = property;
+      unvalidatedProperty = properties[0];
+
+      Properties holderProperties = new Properties(app.getModule(PropertyModule.class), properties) {
+      };
+      holder = new BenchmarkHolder(operationModule, conversionModule, MemoryStorage.create(conversionModule), holderProperties);
+      holder.setPropertyValue(property, "initial value");
+      holder.setPropertyValue(unvalidatedProperty, "initial value");
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   @Benchmark
+   public String get() {
+      return holder.getPropertyValue(property);
+   }
+
+   @Benchmark
+   public void setValidated() throws PropertyModificationException {
+      toggle = !toggle;
+      holder.setPropertyValue(property, (toggle) ? "first value" : "second value");
+   }
+
+   @Benchmark
+   public void setUnvalidated() throws PropertyModificationException {
+      toggle = !toggle;
+      holder.setPropertyValue(unvalidatedProperty, (toggle) ? "first value" : "second value");
+   }
+
+   private static class BenchmarkHolder extends PropertyHolder<String> {
+
+      private final Properties properties;
+
+      public BenchmarkHolder(Module parentModule, ConversionModule conversionModule, Storage storage, Properties properties) {
+         super(parentModule, conversionModule, storage);
+         this.properties = properties;
+      }
+
+      @Override
+      public Properties getProperties() {
+         return properties;
+      }
+
+      @Override
+      public String getKey() {
+         return "benchmark";
+      }
+
+      @Override
+      public String getDescription() {
+         return "benchmark";
+      }
+
+      @Override
+      public String getTypeDescription() {
+         return "Benchmark";
+      }
+
+   }
+
+}
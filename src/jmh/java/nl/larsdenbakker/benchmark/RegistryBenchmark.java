@@ -0,0 +1,73 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.OperationRegistry;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.SimpleOperationTemplate;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.util.TextUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks Registry lookups by key and by description on a registry with
+ * size OperationTemplates. The registry is not registered to the root
+ * registry.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistryBenchmark {
+
+   @Param({"10", "1000"})
+   public int size;
+
+   private Application app;
+   private OperationRegistry registry;
+   private String[] keys;
+   private String lastDescription;
+   private int index;
+
+   @Setup
+   public void setup() {
+      app = BenchmarkFixtures.createApplication(OperationModule.class);
+      OperationModule operationModule = app.getModule(OperationModule.class);
+      registry = new OperationRegistry(operationModule, operationModule.getRegistryModule());
+      keys = BenchmarkFixtures.createKeys(size);
+      OperationTemplate template = null;
+      for (String key : keys) {
+         template = new SimpleOperationTemplate(operationModule, operationModule, key, new Variable[0], StringLengthConstraint.class);
+         registry.register(template);
+      }
+      lastDescription = TextUtils.getDescription(template);
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   @Benchmark
+   public OperationTemplate getByKey() {
+      index = (index + 1 == keys.length) ? 0 : index + 1;
+      return registry.getByKey(keys[index]);
+   }
+
+   @Benchmark
+   public OperationTemplate getByDescription() {
+      return registry.getByDescription(lastDescription);
+   }
+
+}
@@ -0,0 +1,88 @@
+package nl.larsdenbakker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.storage.MemoryStorage;
+import nl.larsdenbakker.storage.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks Storage get and set with flat and dotted keys. The storage
+ * holds size flat keys and a nested branch that is depth levels deep.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StorageBenchmark {
+
+   @Param({"10", "1000"})
+   public int size;
+
+   @Param({"1", "8"})
+   public int depth;
+
+   private Application app;
+   private Storage storage;
+   private String[] keys;
+   private String nestedPath;
+   private int index;
+
+   @Setup
+   public void setup() {
+      app = BenchmarkFixtures.createApplication(ConversionModule.class);
+      storage = MemoryStorage.create(app.getModule(ConversionModule.class), BenchmarkFixtures.createNestedMap(depth, "42"));
+      keys = BenchmarkFixtures.createKeys(size);
+      for (String key : keys) {
+         storage.set(key, key);
+      }
+      nestedPath = BenchmarkFixtures.createNestedPath(depth);
+   }
+
+   @TearDown
+   public void tearDown() {
+      app.shutdown();
+   }
+
+   private String nextKey() {
+      index = (index + 1 == keys.length) ? 0 : index + 1;
+      return keys[index];
+   }
+
+   @Benchmark
+   public Object getFlat() {
+      return storage.get(nextKey());
+   }
+
+   @Benchmark
+   public Storage setFlat() {
+      String key = nextKey();
+      return storage.set(key, key);
+   }
+
+   @Benchmark
+   public Object getDotted() {
+      return storage.get(nestedPath);
+   }
+
+   @Benchmark
+   public Storage setDotted() {
+      return storage.set(nestedPath, "42");
+   }
+
+   @Benchmark
+   public Integer getConverted() {
+      return storage.get(nestedPath, Integer.class, 0);
+   }
+
+}
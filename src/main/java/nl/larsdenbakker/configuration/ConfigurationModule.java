@@ -8,7 +8,8 @@ import nl.larsdenbakker.util.CollectionUtils;
 import nl.larsdenbakker.app.UserInputException;
 
 /**
- * An Application Module that handles ConfigurationTemplates.
+ * An Application Module that handles ConfigurationTemplates and the reloading
+ * of configuration files.
  * Depends on RegistryModule.
  *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
@@ -16,6 +17,7 @@ import nl.larsdenbakker.app.UserInputException;
 public class ConfigurationModule extends AbstractModule {
 
    private ConfigurationTemplateRegistry templateRegistry;
+   private ConfigurationReloader reloader;
 
    public ConfigurationModule(Application app) {
       super(app);
@@ -35,22 +37,34 @@ public class ConfigurationModule extends AbstractModule {
       RegistryModule registryModule = getRegistryModule();
       templateRegistry = new ConfigurationTemplateRegistry(this, registryModule);
       registryModule.getRootRegistry().register(templateRegistry);
+      reloader = new ConfigurationReloader(this);
    }
 
    @Override
    protected void _unload() {
+      reloader.close();
+      reloader = null;
       templateRegistry = null;
    }
 
    @Override
    public void onUnloadOf(Module module) {
       templateRegistry.unregisterByModule(module);
+      reloader.unwatch(module);
    }
 
    public ConfigurationTemplateRegistry getTemplateRegistry() {
       return templateRegistry;
    }
 
+   /**
+    * @return The ConfigurationReloader that reloads module configuration
+    *         files when they change.
+    */
+   public ConfigurationReloader getReloader() {
+      return reloader;
+   }
+
    @Override
    public String getName() {
       return "configuration";
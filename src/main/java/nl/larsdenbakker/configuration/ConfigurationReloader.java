@@ -0,0 +1,329 @@
+package nl.larsdenbakker.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.datafile.DataFileException;
+import nl.larsdenbakker.util.ApplicationUtils;
+import static nl.larsdenbakker.util.Message.Type.ERROR;
+import static nl.larsdenbakker.util.Message.Type.INFO;
+
+/**
+ * Reloads module configuration files when they are changed on disk. Files
+ * are watched with a WatchService on a daemon thread. When a watched file
+ * changes, its configuration is loaded again like
+ * ApplicationUtils.loadModuleConfiguration(Module, String) and passed to
+ * the ReloadHandler of the file together with the configuration it replaces.
+ * Files that changed at the same time are read concurrently and applied in
+ * the order they changed.
+ * Handlers are expected to only replace what changed, see
+ * getChangedKeys(Map, Map) and getRemovedKeys(Map, Map).
+ *
+ * If a handler fails, the error is reported to the console and the file
+ * keeps its previous configuration, so the next change is compared with
+ * the configuration that is actually in use.
+ *
+ * Only files in the module configuration folder are watched, resources can
+ * not change. Reloading is enabled unless the system property
+ * lbtools.configuration.reload.disabled is set to true.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConfigurationReloader {
+
+   public static final boolean ENABLED = !Boolean.getBoolean("lbtools.configuration.reload.disabled");
+
+   //Editors often write a file in several steps, changes are reloaded once writing has settled
+   private static final long SETTLE_MILLIS = 200;
+
+   /**
+    * Applies a reloaded configuration.
+    */
+   public interface ReloadHandler {
+
+      /**
+       * @param previous The configuration that is in use.
+       * @param current  The reloaded configuration. It may be modified.
+       *
+       * @throws InvalidInputException if the reloaded configuration is
+       *                               invalid. Nothing should have been
+       *                               changed in that case.
+       */
+      public void reload(Map<String, Object> previous, Map<String, Object> current) throws InvalidInputException;
+
+   }
+
+   private final ConfigurationModule configurationModule;
+   private final ConcurrentMap<Path, List<WatchedFile>> watchedFiles = new ConcurrentHashMap();
+   private final Set<Path> watchedFolders = new HashSet();
+   private WatchService watchService;
+
+   protected ConfigurationReloader(ConfigurationModule configurationModule) {
+      this.configurationModule = configurationModule;
+   }
+
+   /**
+    * Watch a configuration file of a module. Nothing is watched if the
+    * module configuration folder does not exist or reloading is disabled.
+    *
+    * @param module        The module.
+    * @param fileName      The name of the configuration file.
+    * @param configuration A copy of the configuration that is in use, see
+    *                      copy(Map). It must not be modified afterwards.
+    * @param handler       The handler that applies changes.
+    */
+   public synchronized void watch(Module module, String fileName, Map<String, Object> configuration, ReloadHandler handler) {
+      if (!ENABLED) {
+         return;
+      }
+      Path path = new File(ApplicationUtils.getModuleConfigPath(module, fileName)).toPath().toAbsolutePath().normalize();
+      Path folder = path.getParent();
+      if (folder == null || !Files.isDirectory(folder)) {
+         return;
+      }
+      try {
+         if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::run, "Configuration Reloader");
+            thread.setDaemon(true);
+            thread.start();
+         }
+         if (watchedFolders.add(folder)) {
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+         }
+      } catch (IOException ex) {
+         configurationModule.getParentApplication().getConsole().message(ERROR, "Could not watch " + path + " for changes: " + ex.getMessage());
+         return;
+      }
+      watchedFiles.computeIfAbsent(path, (Path p) -> new CopyOnWriteArrayList()).add(new WatchedFile(module, fileName, configuration, handler));
+   }
+
+   /**
+    * Stop watching the configuration files of the given module.
+    *
+    * @param module The module.
+    */
+   public synchronized void unwatch(Module module) {
+      for (List<WatchedFile> files : watchedFiles.values()) {
+         files.removeIf((WatchedFile file) -> file.module.equals(module));
+      }
+      watchedFiles.values().removeIf(List::isEmpty);
+   }
+
+   /**
+    * Reload the watched configuration files of the given module with the
+    * given name if they have changed, without waiting for the WatchService.
+    *
+    * @param module   The module.
+    * @param fileName The name of the configuration file.
+    *
+    * @return Whether or not any watched file was reloaded successfully.
+    */
+   public boolean reload(Module module, String fileName) {
+      List<WatchedFile> matching = new ArrayList();
+      for (List<WatchedFile> files : watchedFiles.values()) {
+         for (WatchedFile file : files) {
+            if (file.module.equals(module) && file.fileName.equals(fileName)) {
+               matching.add(file);
+            }
+         }
+      }
+      return reload(matching);
+   }
+
+   /**
+    * Stop watching all files.
+    */
+   public synchronized void close() {
+      watchedFiles.clear();
+      watchedFolders.clear();
+      if (watchService != null) {
+         try {
+            watchService.close();
+         } catch (IOException ex) {
+            //Closing, nothing left to do
+         }
+         watchService = null;
+      }
+   }
+
+   private void run() {
+      WatchService service = watchService;
+      try {
+         while (true) {
+            Set<Path> changed = new LinkedHashSet();
+            collectChanges(service.take(), changed);
+            Thread.sleep(SETTLE_MILLIS);
+            WatchKey key;
+            while ((key = service.poll()) != null) {
+               collectChanges(key, changed);
+            }
+            List<WatchedFile> files = new ArrayList();
+            for (Path path : changed) {
+               files.addAll(watchedFiles.getOrDefault(path, new ArrayList<>()));
+            }
+            reload(files);
+         }
+      } catch (InterruptedException | ClosedWatchServiceException ex) {
+         //Closed
+      }
+   }
+
+   private void collectChanges(WatchKey key, Set<Path> changed) {
+      Path folder = (Path) key.watchable();
+      for (WatchEvent<?> event : key.pollEvents()) {
+         if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            //Events were lost, any file in the folder may have changed
+            for (Path path : watchedFiles.keySet()) {
+               if (folder.equals(path.getParent())) {
+                  changed.add(path);
+               }
+            }
+         } else {
+            changed.add(folder.resolve((Path) event.context()));
+         }
+      }
+      key.reset();
+   }
+
+   /* Reads all files at once, then applies the changes one file at a time in the given order. */
+   private boolean reload(List<WatchedFile> files) {
+      List<Module> modules = new ArrayList(files.size());
+      List<String> fileNames = new ArrayList(files.size());
+      for (WatchedFile file : files) {
+         modules.add(file.module);
+         fileNames.add(file.fileName);
+      }
+      List<CompletableFuture<Map<String, Object>>[]> contents = ApplicationUtils.loadModuleConfigurationsAsync(modules, fileNames);
+      boolean reloaded = false;
+      for (int i = 0; i < files.size(); i++) {
+         reloaded |= reload(files.get(i), contents.get(i));
+      }
+      return reloaded;
+   }
+
+   private boolean reload(WatchedFile file, CompletableFuture<Map<String, Object>>[] contents) {
+      synchronized (file) {
+         try {
+            Map<String, Object> current = ApplicationUtils.getLoaded(contents);
+            if (current.equals(file.configuration)) {
+               return false;
+            }
+            Map<String, Object> copy = copy(current);
+            file.handler.reload(file.configuration, current);
+            file.configuration = copy;
+            file.module.getParentApplication().getConsole().message(INFO, "Reloaded " + file.fileName + " of " + file.module.getName() + ".");
+            return true;
+         } catch (DataFileException | InvalidInputException | RuntimeException ex) {
+            file.module.getParentApplication().getConsole().message(ERROR, "Could not reload " + file.fileName + " of " + file.module.getName()
+                                                                           + ": " + ex.getMessage());
+            return false;
+         }
+      }
+   }
+
+   /**
+    * @param previous The previous configuration.
+    * @param current  The current configuration.
+    *
+    * @return The keys of the current configuration that were added or whose
+    *         value changed, in the order of the current configuration.
+    */
+   public static Set<String> getChangedKeys(Map<String, Object> previous, Map<String, Object> current) {
+      Set<String> keys = new LinkedHashSet();
+      for (Map.Entry<String, Object> entry : current.entrySet()) {
+         if (previous == null || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+            keys.add(entry.getKey());
+         }
+      }
+      return keys;
+   }
+
+   /**
+    * @param previous The previous configuration.
+    * @param current  The current configuration.
+    *
+    * @return The keys of the previous configuration that are not in the
+    *         current configuration.
+    */
+   public static Set<String> getRemovedKeys(Map<String, Object> previous, Map<String, Object> current) {
+      Set<String> keys = new LinkedHashSet();
+      if (previous != null) {
+         for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+               keys.add(key);
+            }
+         }
+      }
+      return keys;
+   }
+
+   /**
+    * @param configuration A configuration.
+    *
+    * @return A copy of the configuration and the Maps and Collections within
+    *         it, so it can be compared with a reloaded configuration after the
+    *         original was modified while it was applied.
+    */
+   public static Map<String, Object> copy(Map<String, Object> configuration) {
+      return (Map) copyObject(configuration);
+   }
+
+   private static Object copyObject(Object obj) {
+      if (obj instanceof Map) {
+         Map<Object, Object> map = new LinkedHashMap();
+         for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+            map.put(entry.getKey(), copyObject(entry.getValue()));
+         }
+         return map;
+      } else if (obj instanceof Collection) {
+         Collection<Object> coll = (obj instanceof Set) ? new LinkedHashSet() : new ArrayList();
+         for (Object element : (Collection<?>) obj) {
+            coll.add(copyObject(element));
+         }
+         return coll;
+      } else {
+         return obj;
+      }
+   }
+
+   private static class WatchedFile {
+
+      private final Module module;
+      private final String fileName;
+      private final ReloadHandler handler;
+      //The configuration that is in use, guarded by this
+      private Map<String, Object> configuration;
+
+      private WatchedFile(Module module, String fileName, Map<String, Object> configuration, ReloadHandler handler) {
+         this.module = module;
+         this.fileName = fileName;
+         this.configuration = configuration;
+         this.handler = handler;
+      }
+
+   }
+
+}
@@ -1,11 +1,22 @@
 package nl.larsdenbakker.configuration;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.registry.Registrable;
 import nl.larsdenbakker.registry.Registry;
@@ -18,20 +29,35 @@ import nl.larsdenbakker.registry.Registry;
  * template. These are defined by the configuration that 'calls' this template.
  * Default variables can be defined as well.
  *
+ * A template is compiled once, into a tree that knows which parts contain
+ * variables. Parts without variables are converted to immutable Maps and
+ * Lists that are shared by every expansion, only the parts that contain
+ * variables are rebuilt. Expansions whose variables have immutable values
+ * are cached by the values of the variables used by this template.
+ *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
 public class ConfigurationTemplate implements Registrable<String> {
 
-   private Module parentModule;
+   private static final int MAX_CACHED_EXPANSIONS = 256;
+   private static final Set<Class<?>> IMMUTABLE_TYPES = ImmutableSet.of(String.class, Boolean.class, Character.class, Byte.class, Short.class,
+                                                                         Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+   private final Module parentModule;
    private final String key;
    private final Map<String, Object> defaultVariables;
-   private final Map<String, Object> template;
+   private final Node template;
+   private final Set<String> variableNames;
+   private final ConcurrentMap<Map<String, Object>, Map<String, Object>> expansions = new ConcurrentHashMap();
    private Registry registry;
 
    protected ConfigurationTemplate(Module parentModule, String key, Map<String, Object> defaultVariables, Map<String, Object> template) {
+      this.parentModule = parentModule;
       this.key = key;
-      this.defaultVariables = defaultVariables;
-      this.template = template;
+      this.defaultVariables = (defaultVariables != null) ? defaultVariables : Collections.emptyMap();
+      Set<String> names = new HashSet();
+      this.template = compile(template, names);
+      this.variableNames = Collections.unmodifiableSet(names);
    }
 
    @Override
@@ -55,14 +81,34 @@ public class ConfigurationTemplate implements Registrable<String> {
    }
 
    /**
-    * Get this template with the defined variables.
+    * @return The names of the variables used in this template.
+    */
+   public Set<String> getVariableNames() {
+      return variableNames;
+   }
+
+   /**
+    * Get this template with the defined variables. Variables that are not
+    * defined take their default value, variables without a default value are
+    * left as they are. The returned Map and the Maps and Lists within it are
+    * immutable and may be shared with other expansions of this template.
+    * Entries and elements whose value is a variable with a null value are
+    * left out.
     *
-    * @param variables The variables.
+    * @param variables The variables. Can be null.
     *
     * @return The template.
     */
    public Map<String, Object> toTemplate(Map<String, Object> variables) {
-      return convertMap(variables, template);
+      Map<String, Object> resolved = resolveVariables(variables);
+      Map<String, Object> expansion = expansions.get(resolved);
+      if (expansion == null) {
+         expansion = (Map) template.expand(resolved);
+         if (isCacheable(resolved) && expansions.size() < MAX_CACHED_EXPANSIONS) {
+            expansions.putIfAbsent(resolved, expansion);
+         }
+      }
+      return expansion;
    }
 
    /**
@@ -74,48 +120,159 @@ public class ConfigurationTemplate implements Registrable<String> {
       return toTemplate(null);
    }
 
-   private Object convertObject(Map<String, Object> variables, Object obj) {
+   /* The values of the variables used by this template, variables without a value are absent. */
+   private Map<String, Object> resolveVariables(Map<String, Object> variables) {
+      Map<String, Object> resolved = new HashMap();
+      for (String name : variableNames) {
+         if (variables != null && variables.containsKey(name)) {
+            resolved.put(name, variables.get(name));
+         } else if (defaultVariables.containsKey(name)) {
+            resolved.put(name, defaultVariables.get(name));
+         }
+      }
+      return resolved;
+   }
+
+   /* Expansions are only cached if the values can not change after they were used as a cache key. */
+   private static boolean isCacheable(Map<String, Object> resolved) {
+      for (Object value : resolved.values()) {
+         if (value != null && !(value instanceof Enum) && !IMMUTABLE_TYPES.contains(value.getClass())) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static Node compile(Object obj, Set<String> names) {
       if (obj instanceof Map) {
-         return convertMap(variables, (Map) obj);
+         List<Node> keys = new ArrayList();
+         List<Node> values = new ArrayList();
+         boolean constant = true;
+         for (Entry<Object, Object> entry : ((Map<Object, Object>) obj).entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+               Node keyNode = compile(entry.getKey().toString(), names);
+               Node valueNode = compile(entry.getValue(), names);
+               constant &= keyNode instanceof Constant && valueNode instanceof Constant;
+               keys.add(keyNode);
+               values.add(valueNode);
+            }
+         }
+         MapNode node = new MapNode(keys, values);
+         return (constant) ? new Constant(node.expand(Collections.emptyMap())) : node;
       } else if (obj instanceof Collection) {
-         return convertCollection(variables, (Collection) obj);
-      } else if (obj instanceof String) {
-         return convertString(variables, (String) obj);
+         List<Node> elements = new ArrayList();
+         boolean constant = true;
+         for (Object element : (Collection) obj) {
+            if (element != null) {
+               Node elementNode = compile(element, names);
+               constant &= elementNode instanceof Constant;
+               elements.add(elementNode);
+            }
+         }
+         ListNode node = new ListNode(elements);
+         return (constant) ? new Constant(node.expand(Collections.emptyMap())) : node;
+      } else if (obj instanceof String && ((String) obj).startsWith("$")) {
+         String name = ((String) obj).substring(1);
+         names.add(name);
+         return new Variable(name, (String) obj);
       } else {
-         return obj;
+         return new Constant(obj);
       }
    }
 
-   private Map<String, Object> convertMap(Map<String, Object> variables, Map<String, Object> map) {
-      Map<String, Object> newMap = new LinkedHashMap();
-      for (Entry<String, Object> entry : map.entrySet()) {
-         if (entry.getKey() != null && entry.getValue() != null) {
-            newMap.put(convertString(variables, entry.getKey()).toString(), convertObject(variables, entry.getValue()));
-         }
+   /* A compiled part of a template. */
+   private interface Node {
+
+      /**
+       * @param variables The values of the variables, variables without a
+       *                  value are absent.
+       *
+       * @return This part with the given variables, or null if it is left
+       *         out.
+       */
+      public Object expand(Map<String, Object> variables);
+
+   }
+
+   /* A part without variables. */
+   private static class Constant implements Node {
+
+      private final Object value;
+
+      private Constant(Object value) {
+         this.value = value;
+      }
+
+      @Override
+      public Object expand(Map<String, Object> variables) {
+         return value;
       }
-      return newMap;
+
    }
 
-   private List<Object> convertCollection(Map<String, Object> variables, Collection<Object> coll) {
-      List<Object> newList = new ArrayList();
-      for (Object obj : coll) {
-         if (obj != null) {
-            newList.add(convertObject(variables, obj));
+   private static class Variable implements Node {
+
+      private final String name;
+      private final String text;
+
+      private Variable(String name, String text) {
+         this.name = name;
+         this.text = text;
+      }
+
+      @Override
+      public Object expand(Map<String, Object> variables) {
+         return (variables.containsKey(name)) ? variables.get(name) : text;
+      }
+
+   }
+
+   private static class MapNode implements Node {
+
+      private final Node[] keys;
+      private final Node[] values;
+
+      private MapNode(List<Node> keys, List<Node> values) {
+         this.keys = keys.toArray(new Node[keys.size()]);
+         this.values = values.toArray(new Node[values.size()]);
+      }
+
+      @Override
+      public Object expand(Map<String, Object> variables) {
+         //Expanded keys may collide, the last value is kept as with any Map
+         Map<String, Object> map = new LinkedHashMap();
+         for (int i = 0; i < keys.length; i++) {
+            Object key = keys[i].expand(variables);
+            Object value = values[i].expand(variables);
+            if (key != null && value != null) {
+               map.put(key.toString(), value);
+            }
          }
+         return ImmutableMap.copyOf(map);
       }
-      return newList;
+
    }
 
-   private Object convertString(Map<String, Object> variables, String str) {
-      if (str.startsWith("$")) {
-         String key = str.substring(1);
-         if (variables.containsKey(key)) {
-            return variables.get(key);
-         } else if (defaultVariables.containsKey(key)) {
-            return defaultVariables.get(key);
+   private static class ListNode implements Node {
+
+      private final Node[] elements;
+
+      private ListNode(List<Node> elements) {
+         this.elements = elements.toArray(new Node[elements.size()]);
+      }
+
+      @Override
+      public Object expand(Map<String, Object> variables) {
+         ImmutableList.Builder<Object> list = ImmutableList.builder();
+         for (Node element : elements) {
+            Object value = element.expand(variables);
+            if (value != null) {
+               list.add(value);
+            }
          }
+         return list.build();
       }
-      return str;
+
    }
 
 }
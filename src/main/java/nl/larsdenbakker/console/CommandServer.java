@@ -0,0 +1,392 @@
+package nl.larsdenbakker.console;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import static com.google.common.base.Preconditions.checkArgument;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import nl.larsdenbakker.app.Console;
+import nl.larsdenbakker.datafile.DataFormat;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.util.OperationResponse;
+import static nl.larsdenbakker.util.Message.Type.ERROR;
+import static nl.larsdenbakker.util.Message.Type.INFO;
+
+/**
+ * A command endpoint for scripts. Requests and responses are JSON objects,
+ * one per line. A request names an operation and its variables:
+ * <pre>
+ * {"id": 1, "operation": "info", "variables": {"target": "registry.key"}}
+ * </pre>
+ * The variables are passed to the operation as they are, they are not
+ * tokenized and no command is looked up. Every request is answered with the
+ * id of the request, or its 1-based line number if it has no id:
+ * <pre>
+ * {"id": 1, "succeeded": true, "messages": ["..."]}
+ * </pre>
+ * Requests are executed as the console, concurrently on the Executor of the
+ * OperationExecutor, without waiting for the responses of earlier requests.
+ * Responses are written in the order they complete. At most the given amount
+ * of requests per connection execute at the same time, reading waits while
+ * that many are executing.
+ *
+ * Requests can be read from any stream with serve(InputStream, OutputStream),
+ * such as standard input and output, or from connections to a server socket
+ * on the loopback address with listen(int, String). Any local process can
+ * connect to the socket, so the first request of a connection must contain
+ * the token the server was started with before any operation is executed:
+ * <pre>
+ * {"id": 0, "token": "..."}
+ * </pre>
+ * The connection is closed after the response if the token is missing or
+ * does not match.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class CommandServer {
+
+   public static final String KEY_ID = "id";
+   public static final String KEY_OPERATION = "operation";
+   public static final String KEY_VARIABLES = "variables";
+   public static final String KEY_SUCCEEDED = "succeeded";
+   public static final String KEY_MESSAGES = "messages";
+   public static final String KEY_TOKEN = "token";
+
+   private static final String INVALID_REQUEST = "Invalid request: a request must be a JSON object.";
+
+   private static final ObjectMapper MAPPER = DataFormat.JSON_UNINDENTED.getObjectMapper();
+
+   private final Console console;
+   private final OperationExecutor operationExecutor;
+   private final int maxExecuting;
+
+   private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap());
+   private final AtomicInteger connectionIds = new AtomicInteger();
+   private final AtomicInteger executing = new AtomicInteger();
+   private final LongAdder requests = new LongAdder();
+   private final LongAdder rejected = new LongAdder();
+   private ServerSocket serverSocket;
+   private byte[] token;
+
+   /**
+    * @param console           The console requests are executed by.
+    * @param operationExecutor The OperationExecutor.
+    * @param maxExecuting      The maximum amount of requests of a connection
+    *                          executing at the same time.
+    */
+   public CommandServer(Console console, OperationExecutor operationExecutor, int maxExecuting) {
+      if (maxExecuting <= 0) {
+         throw new IllegalArgumentException("The maximum amount of executing requests must be larger than 0.");
+      }
+      this.console = console;
+      this.operationExecutor = operationExecutor;
+      this.maxExecuting = maxExecuting;
+   }
+
+   /**
+    * Read requests from the given input until it ends and write the responses
+    * to the given output. Returns when all requests have been answered.
+    *
+    * @param input  The input.
+    * @param output The output. It is not closed.
+    *
+    * @throws IOException          if the input could not be read.
+    * @throws InterruptedException if the current thread was interrupted while
+    *                              waiting for requests to complete.
+    */
+   public void serve(InputStream input, OutputStream output) throws IOException, InterruptedException {
+      serve(input, output, null);
+   }
+
+   /* Requests are only executed after the first request contained the token, if there is one. */
+   private void serve(InputStream input, OutputStream output, byte[] token) throws IOException, InterruptedException {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+      Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+      Semaphore permits = new Semaphore(maxExecuting);
+      long lineNumber = 0;
+      boolean authenticated = (token == null);
+      String line;
+      while ((line = reader.readLine()) != null) {
+         lineNumber++;
+         if (!line.trim().isEmpty()) {
+            permits.acquire();
+            boolean executing = false;
+            try {
+               if (authenticated) {
+                  executing = handle(line, lineNumber, writer, permits);
+               } else if (authenticate(line, lineNumber, token, writer)) {
+                  authenticated = true;
+               } else {
+                  break;
+               }
+            } finally {
+               //A request that is executing releases its permit when it completes
+               if (!executing) {
+                  permits.release();
+               }
+            }
+         }
+      }
+      //Wait for the responses of the remaining requests
+      permits.acquire(maxExecuting);
+   }
+
+   /* Returns null if the line is valid JSON but not an object, such as null or an array. */
+   private static Map<String, Object> readRequest(String line) throws IOException {
+      JsonNode node = MAPPER.readTree(line);
+      return (node != null && node.isObject()) ? MAPPER.convertValue(node, Map.class) : null;
+   }
+
+   private boolean authenticate(String line, long lineNumber, byte[] token, Writer writer) {
+      Object id = lineNumber;
+      try {
+         Map<String, Object> request = readRequest(line);
+         if (request == null) {
+            rejected.increment();
+            respond(writer, id, false, INVALID_REQUEST);
+            return false;
+         }
+         if (request.get(KEY_ID) != null) {
+            id = request.get(KEY_ID);
+         }
+         Object tokenObject = request.get(KEY_TOKEN);
+         //Compared in constant time, so the token can not be guessed from the time it takes to reject it
+         if (tokenObject instanceof String && MessageDigest.isEqual(token, ((String) tokenObject).getBytes(StandardCharsets.UTF_8))) {
+            respond(writer, id, true, "Authenticated.");
+            return true;
+         }
+      } catch (IOException | ClassCastException ex) {
+         rejected.increment();
+         respond(writer, id, false, "Invalid request: " + ex.getMessage());
+         return false;
+      }
+      rejected.increment();
+      respond(writer, id, false, "Not authenticated, the first request must contain the token of the command server.");
+      return false;
+   }
+
+   /* Returns whether the request is executing, in which case it releases its permit when it completes. */
+   private boolean handle(String line, long lineNumber, Writer writer, Semaphore permits) {
+      requests.increment();
+      Object id = lineNumber;
+      String operation;
+      Map<String, Object> variables;
+      try {
+         Map<String, Object> request = readRequest(line);
+         if (request == null) {
+            respond(writer, id, false, INVALID_REQUEST);
+            return false;
+         }
+         if (request.get(KEY_ID) != null) {
+            id = request.get(KEY_ID);
+         }
+         Object operationObject = request.get(KEY_OPERATION);
+         Object variablesObject = request.get(KEY_VARIABLES);
+         if (!(operationObject instanceof String) || ((String) operationObject).isEmpty()) {
+            respond(writer, id, false, "Missing operation.");
+            return false;
+         } else if (variablesObject != null && !(variablesObject instanceof Map)) {
+            respond(writer, id, false, "Variables must be an object.");
+            return false;
+         }
+         operation = (String) operationObject;
+         variables = (variablesObject != null) ? (Map) variablesObject : new LinkedHashMap();
+      } catch (IOException | ClassCastException ex) {
+         respond(writer, id, false, "Invalid request: " + ex.getMessage());
+         return false;
+      }
+
+      Object requestId = id;
+      executing.incrementAndGet();
+      try {
+         CompletableFuture.supplyAsync(() -> operationExecutor.executeOperation(console, operation, variables), operationExecutor.getAsyncExecutor())
+                 .whenComplete((OperationResponse response, Throwable ex) -> {
+                    executing.decrementAndGet();
+                    try {
+                       if (ex != null) {
+                          Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+                          respond(writer, requestId, false, "Operation " + operation + " failed: " + cause.getMessage());
+                       } else {
+                          respond(writer, requestId, response.hasSucceeded(), response.getMessages());
+                       }
+                    } finally {
+                       permits.release();
+                    }
+                 });
+         return true;
+      } catch (RejectedExecutionException ex) {
+         executing.decrementAndGet();
+         respond(writer, requestId, false, "Operation " + operation + " was rejected: " + ex.getMessage());
+         return false;
+      }
+   }
+
+   private void respond(Writer writer, Object id, boolean succeeded, String message) {
+      List<String> messages = new ArrayList(1);
+      messages.add(message);
+      respond(writer, id, succeeded, messages);
+   }
+
+   private void respond(Writer writer, Object id, boolean succeeded, List<String> messages) {
+      Map<String, Object> response = new LinkedHashMap();
+      response.put(KEY_ID, id);
+      response.put(KEY_SUCCEEDED, succeeded);
+      response.put(KEY_MESSAGES, (messages != null) ? messages : Collections.emptyList());
+      try {
+         String json = MAPPER.writeValueAsString(response);
+         synchronized (writer) {
+            writer.write(json);
+            writer.write('\n');
+            writer.flush();
+         }
+      } catch (IOException ex) {
+         //The other side has gone away, the response is dropped
+      }
+   }
+
+   /**
+    * Accept connections on the loopback address on a daemon thread, serving
+    * every connection on a daemon thread of its own. Connections must send
+    * the given token in their first request.
+    *
+    * @param port  The port, or 0 for any free port.
+    * @param token The token connections must authenticate with.
+    *
+    * @return The port the server listens on.
+    *
+    * @throws IOException if the port could not be bound.
+    */
+   public synchronized int listen(int port, String token) throws IOException {
+      checkArgument(token != null && !token.isEmpty(), "The command server requires a token.");
+      if (serverSocket != null) {
+         throw new IllegalStateException("The command server is already listening on port " + serverSocket.getLocalPort() + ".");
+      }
+      ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+      serverSocket = socket;
+      this.token = token.getBytes(StandardCharsets.UTF_8);
+      Thread thread = new Thread(() -> accept(socket), "Command Server");
+      thread.setDaemon(true);
+      thread.start();
+      console.message(INFO, "Command server listening on " + socket.getInetAddress().getHostAddress() + ":" + socket.getLocalPort() + ".");
+      return socket.getLocalPort();
+   }
+
+   private void accept(ServerSocket socket) {
+      while (!socket.isClosed()) {
+         try {
+            Socket connection = socket.accept();
+            connections.add(connection);
+            byte[] connectionToken = getToken();
+            Thread thread = new Thread(() -> serve(connection, connectionToken), "Command Server Connection #" + connectionIds.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+         } catch (IOException ex) {
+            if (!socket.isClosed()) {
+               console.message(ERROR, "Command server could not accept a connection: " + ex.getMessage());
+            }
+         }
+      }
+   }
+
+   private synchronized byte[] getToken() {
+      return token;
+   }
+
+   private void serve(Socket connection, byte[] token) {
+      try {
+         serve(connection.getInputStream(), connection.getOutputStream(), token);
+      } catch (IOException | InterruptedException ex) {
+         //Closed, the remaining responses are dropped
+      } finally {
+         connections.remove(connection);
+         try {
+            connection.close();
+         } catch (IOException ex) {
+            //Already closed
+         }
+      }
+   }
+
+   /**
+    * Stop listening and close all connections. Executing requests are
+    * completed, their responses are dropped.
+    */
+   public synchronized void close() {
+      if (serverSocket != null) {
+         try {
+            serverSocket.close();
+         } catch (IOException ex) {
+            //Already closed
+         }
+         serverSocket = null;
+      }
+      for (Socket connection : connections) {
+         try {
+            connection.close();
+         } catch (IOException ex) {
+            //Already closed
+         }
+      }
+   }
+
+   /**
+    * @return The port the server listens on, or -1 if it is not listening.
+    */
+   public synchronized int getPort() {
+      return (serverSocket != null) ? serverSocket.getLocalPort() : -1;
+   }
+
+   /**
+    * @return The amount of open connections.
+    */
+   public int getConnectionCount() {
+      return connections.size();
+   }
+
+   /**
+    * @return The amount of requests that are executing.
+    */
+   public int getExecutingCount() {
+      return executing.get();
+   }
+
+   /**
+    * @return The amount of requests that have been received.
+    */
+   public long getRequestCount() {
+      return requests.sum();
+   }
+
+   /**
+    * @return The amount of connections that were closed because they did not
+    *         authenticate with the token.
+    */
+   public long getRejectedCount() {
+      return rejected.sum();
+   }
+
+}
@@ -1,13 +1,16 @@
 package nl.larsdenbakker.console;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.PrintStream;
 import nl.larsdenbakker.app.AbstractModule;
 import nl.larsdenbakker.app.Application;
 import nl.larsdenbakker.app.Console;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.console.operations.ApplicationSaveOperation;
 import nl.larsdenbakker.console.operations.ApplicationShutdownOperation;
+import nl.larsdenbakker.console.operations.ConsoleStatsOperation;
 import nl.larsdenbakker.console.operations.ModuleLoadOperation;
+import nl.larsdenbakker.console.operations.ProfileOperation;
 import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.operation.OperationFactory;
 import nl.larsdenbakker.operation.OperationModule;
@@ -16,8 +19,6 @@ import nl.larsdenbakker.util.CollectionUtils;
 import static nl.larsdenbakker.util.Message.Type.ERROR;
 import static nl.larsdenbakker.util.Message.Type.INFO;
 import static nl.larsdenbakker.util.Message.Type.RAW;
-import nl.larsdenbakker.util.OperationResponse;
-import nl.larsdenbakker.util.TextUtils;
 import nl.larsdenbakker.app.UserInputException;
 import nl.larsdenbakker.operation.command.SimpleCommandArgumentProvider;
 import nl.larsdenbakker.operation.operations.TargetedOperation;
@@ -31,10 +32,26 @@ import nl.larsdenbakker.operation.operations.TargetedOperation;
  */
 public class ConsoleModule extends AbstractModule {
 
-   private final Scanner scanner = new Scanner(System.in);
+   /* The maximum amount of commands waiting to be executed. */
+   private static final int QUEUE_CAPACITY = Integer.getInteger("lbtools.console.queue", 64);
+   /* Whether commands are executed one at a time in the order they were entered, instead of concurrently. */
+   private static final boolean ORDERED = Boolean.getBoolean("lbtools.console.ordered");
+   /* The maximum amount of commands executing at the same time. */
+   private static final int CONCURRENCY = (ORDERED) ? 1 : Integer.getInteger("lbtools.console.concurrency", Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+   /* Whether activate() serves JSON requests from standard input instead of commands, see CommandServer. */
+   private static final boolean JSON_INPUT = Boolean.getBoolean("lbtools.console.json");
+   /* The loopback port the CommandServer listens on when this module is loaded. Optional, 0 for any free port. */
+   private static final Integer SERVER_PORT = Integer.getInteger("lbtools.console.server.port");
+   /* The token connections to the CommandServer must authenticate with, the server is not started without one. */
+   private static final String SERVER_TOKEN = System.getProperty("lbtools.console.server.token");
+   /* The maximum amount of requests of a CommandServer connection executing at the same time. */
+   private static final int SERVER_CONCURRENCY = Integer.getInteger("lbtools.console.server.concurrency", 64);
+
    private final Console console;
 
-   private boolean active = false;
+   private volatile ConsolePipeline pipeline = null;
+   private CommandServer commandServer;
 
    public ConsoleModule(Application app, Console console) {
       super(app);
@@ -67,6 +84,9 @@ public class ConsoleModule extends AbstractModule {
    @Override
    protected void _shutdown() {
       deactivate();
+      if (commandServer != null) {
+         commandServer.close();
+      }
    }
 
    @Override
@@ -76,49 +96,124 @@ public class ConsoleModule extends AbstractModule {
       OperationFactory.registerOperations(this, operationModule, "shutdown-application", ApplicationShutdownOperation.class);
       OperationFactory.registerOperations(this, operationModule, "save-application", ApplicationSaveOperation.class);
       OperationFactory.registerOperations(this, operationModule, "load-module", ModuleLoadOperation.class);
+      OperationFactory.registerOperations(this, operationModule, "profile", ProfileOperation.class);
+      OperationFactory.registerOperations(this, operationModule, "console-stats", ConsoleStatsOperation.class);
 
       operationModule.registerCommandArgumentProvider(new SimpleCommandArgumentProvider(TargetedOperation.KEY_TARGET, this), "quit");
       operationModule.registerCommandArgumentProvider(new SimpleCommandArgumentProvider(TargetedOperation.KEY_TARGET, getParentApplication()), "load");
 
       CommandFactory.createAndRegisterCommands(this, operationModule, "commands");
+
+      commandServer = new CommandServer(console, operationModule.getOperationExecutor(), SERVER_CONCURRENCY);
+      if (SERVER_PORT != null && (SERVER_TOKEN == null || SERVER_TOKEN.isEmpty())) {
+         console.message(ERROR, "The command server was not started, set lbtools.console.server.token to the token connections must authenticate with.");
+      } else if (SERVER_PORT != null) {
+         try {
+            commandServer.listen(SERVER_PORT, SERVER_TOKEN);
+         } catch (IOException ex) {
+            console.message(ERROR, "Could not start the command server on port " + SERVER_PORT + ": " + ex.getMessage());
+         }
+      }
    }
 
    @Override
    protected void _unload() {
       deactivate();
+      commandServer.close();
+   }
+
+   /**
+    * @return The CommandServer that serves JSON requests of scripts.
+    */
+   public CommandServer getCommandServer() {
+      return commandServer;
    }
 
    /**
     * Activate the console. Any commands sent through the command line will
     * be processed, sent to the OperationModule and the response returned.
+    * Commands are read on a separate thread and executed concurrently by a
+    * ConsolePipeline, so the console keeps accepting input while commands
+    * are running, and a slow command does not hold up the commands after it.
+    * If the system property lbtools.console.ordered is set to true, commands
+    * are executed one at a time in the order they were entered instead.
+    *
+    * This method returns when the console is deactivated, or when the input
+    * ended and the commands that were read completed.
+    *
+    * If the system property lbtools.console.json is set to true, JSON
+    * requests are read from standard input instead, see activateJson().
     */
    public void activate() {
+      if (JSON_INPUT) {
+         activateJson();
+         return;
+      }
+      ConsolePipeline newPipeline;
+      synchronized (this) {
+         if (pipeline != null) {
+            throw new IllegalStateException("The console is already active.");
+         }
+         newPipeline = new ConsolePipeline(console, getOperationModule().getOperationExecutor(), System.in, QUEUE_CAPACITY, CONCURRENCY);
+         pipeline = newPipeline;
+      }
       console.message(INFO, "Console activated.");
       console.message(RAW, "");
-      active = true;
-      while (active) {
-         String command = scanner.nextLine();
-         if (command != null && !command.isEmpty()) {
-            console.message(INFO, "Executing command: " + command + "...");
-            long start = System.currentTimeMillis();
-            OperationResponse result = getOperationModule().getOperationExecutor().executeCommand(console, TextUtils.splitOnSpacesExceptInQuotes(command));
-            if (result.hasSucceeded()) {
-               console.message(INFO, result.getMessages());
-            } else {
-               console.message(ERROR, result.getMessages());
-            }
-            console.message(INFO, "Finished in " + (System.currentTimeMillis() - start) + " ms.");
-            System.out.println();
-         }
+      newPipeline.start();
+      try {
+         newPipeline.awaitStop();
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      } finally {
+         deactivate();
+      }
+   }
+
+   /**
+    * Serve JSON requests from standard input with the CommandServer, writing
+    * the responses to standard output. This method returns when standard
+    * input ends. While requests are served, System.out is redirected to
+    * standard error, so that console messages are not mixed with the
+    * responses.
+    */
+   public void activateJson() {
+      PrintStream output = System.out;
+      System.setOut(System.err);
+      try {
+         commandServer.serve(System.in, output);
+      } catch (IOException ex) {
+         console.message(ERROR, "Could not read requests: " + ex.getMessage());
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      } finally {
+         output.flush();
+         System.setOut(output);
       }
    }
 
    /**
-    * Deactivate the console.
+    * @return The ConsolePipeline of the active console, or null if the
+    *         console is not active.
+    */
+   public ConsolePipeline getPipeline() {
+      return pipeline;
+   }
+
+   /**
+    * Deactivate the console. Commands that are executing are completed,
+    * commands that are waiting to be executed are discarded.
     */
    public void deactivate() {
-      active = false;
-      console.message(INFO, "Console deactivated.");
+      ConsolePipeline active;
+      synchronized (this) {
+         active = pipeline;
+         pipeline = null;
+      }
+      if (active != null) {
+         boolean running = active.isRunning();
+         int discarded = active.stop();
+         console.message(INFO, (running ? "Console deactivated." : "Console input ended.") + ((discarded != 0) ? " Discarded " + discarded + " queued commands." : ""));
+      }
    }
 
 }
@@ -0,0 +1,323 @@
+package nl.larsdenbakker.console;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import nl.larsdenbakker.app.Console;
+import nl.larsdenbakker.operation.InputLexer;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.operation.metrics.LatencyHistogram;
+import nl.larsdenbakker.util.Message;
+import nl.larsdenbakker.util.OperationResponse;
+import static nl.larsdenbakker.util.Message.Type.ERROR;
+import static nl.larsdenbakker.util.Message.Type.INFO;
+
+/**
+ * Reads commands from an input stream and executes them concurrently. A
+ * reader thread reads the input line by line and puts every command in a
+ * bounded queue, waiting while the queue is full. A dispatcher thread takes
+ * the commands from the queue and executes them on the Executor of the
+ * OperationExecutor, with at most the given amount running at the same time.
+ *
+ * Every command is numbered in the order it was read. Its response is
+ * printed tagged with its number as soon as it completes, so responses are
+ * printed in the order of completion rather than the order of input. The
+ * time commands spend in the queue and executing is recorded.
+ *
+ * Unlike OperationExecutor.executeCommandAsync(ApplicationUser, String[]),
+ * commands of the console are not run one after the other. A concurrency of
+ * 1 runs them in the order they were read.
+ *
+ * When the input ends, the commands in the queue are still executed and the
+ * pipeline stops once they completed.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConsolePipeline {
+
+   //Put in the queue by the reader when the input ended
+   private static final QueuedCommand END_OF_INPUT = new QueuedCommand(0, null);
+
+   private final Console console;
+   private final OperationExecutor operationExecutor;
+   private final BufferedReader input;
+   private final BlockingQueue<QueuedCommand> queue;
+   private final int queueCapacity;
+   private final int concurrency;
+   private final Semaphore workers;
+
+   private final AtomicLong commandIds = new AtomicLong();
+   private final LatencyHistogram queueTimes = new LatencyHistogram();
+   private final LatencyHistogram executionTimes = new LatencyHistogram();
+   private final LongAdder succeeded = new LongAdder();
+   private final LongAdder failed = new LongAdder();
+   //Responses are printed one at a time so their lines are not interleaved
+   private final Object printLock = new Object();
+
+   private final CountDownLatch stopped = new CountDownLatch(1);
+   private volatile boolean running = false;
+   private Thread reader;
+   private Thread dispatcher;
+
+   /**
+    * @param console           The console commands are executed by and
+    *                          responses are printed to.
+    * @param operationExecutor The OperationExecutor.
+    * @param input             The input to read commands from.
+    * @param queueCapacity     The maximum amount of commands waiting to be
+    *                          executed.
+    * @param concurrency       The maximum amount of commands executing at the
+    *                          same time.
+    */
+   public ConsolePipeline(Console console, OperationExecutor operationExecutor, InputStream input, int queueCapacity, int concurrency) {
+      if (queueCapacity <= 0 || concurrency <= 0) {
+         throw new IllegalArgumentException("Queue capacity and concurrency must be larger than 0.");
+      }
+      this.console = console;
+      this.operationExecutor = operationExecutor;
+      this.input = new BufferedReader(new InputStreamReader(input));
+      this.queue = new ArrayBlockingQueue(queueCapacity);
+      this.queueCapacity = queueCapacity;
+      this.concurrency = concurrency;
+      this.workers = new Semaphore(concurrency);
+   }
+
+   /**
+    * Start reading and executing commands. A pipeline can only be started
+    * once.
+    */
+   public synchronized void start() {
+      if (reader != null) {
+         throw new IllegalStateException("The console pipeline has already been started.");
+      }
+      running = true;
+      reader = new Thread(this::read, "Console Reader");
+      dispatcher = new Thread(this::dispatch, "Console Dispatcher");
+      //The reader can not be interrupted while it waits for input, it should not keep the application alive
+      reader.setDaemon(true);
+      dispatcher.setDaemon(true);
+      reader.start();
+      dispatcher.start();
+   }
+
+   /**
+    * Stop reading and executing commands. Commands that are executing are
+    * completed, commands in the queue are discarded.
+    *
+    * @return The amount of discarded commands.
+    */
+   public synchronized int stop() {
+      if (!running) {
+         return 0;
+      }
+      running = false;
+      reader.interrupt();
+      dispatcher.interrupt();
+      int discarded = queue.size();
+      queue.clear();
+      stopped.countDown();
+      return discarded;
+   }
+
+   /**
+    * Wait until this pipeline is stopped.
+    *
+    * @throws InterruptedException if the current thread is interrupted
+    *                              while waiting.
+    */
+   public void awaitStop() throws InterruptedException {
+      stopped.await();
+   }
+
+   public boolean isRunning() {
+      return running;
+   }
+
+   private void read() {
+      try {
+         String line;
+         while (running && (line = input.readLine()) != null) {
+            if (!line.isEmpty()) {
+               QueuedCommand command = new QueuedCommand(commandIds.incrementAndGet(), line);
+               if (!queue.offer(command)) {
+                  print(INFO, "[#" + command.id + "] Waiting for " + queueCapacity + " queued commands...");
+                  queue.put(command);
+               }
+            }
+         }
+         endOfInput();
+      } catch (IOException ex) {
+         if (running) {
+            print(ERROR, "Could not read console input: " + ex.getMessage());
+            endOfInput();
+         }
+      } catch (InterruptedException ex) {
+         //Stopped
+      }
+   }
+
+   private void endOfInput() {
+      try {
+         if (running) {
+            queue.put(END_OF_INPUT);
+         }
+      } catch (InterruptedException ex) {
+         //Stopped
+      }
+   }
+
+   private void dispatch() {
+      try {
+         while (running) {
+            QueuedCommand command = queue.take();
+            if (command == END_OF_INPUT) {
+               //Every command before it was dispatched, wait for the executing ones to complete
+               workers.acquire(concurrency);
+               workers.release(concurrency);
+               stop();
+               return;
+            }
+            workers.acquire();
+            if (!running) {
+               workers.release();
+               return;
+            }
+            execute(command);
+         }
+      } catch (InterruptedException ex) {
+         //Stopped
+      }
+   }
+
+   private void execute(QueuedCommand command) {
+      command.started = System.nanoTime();
+      queueTimes.record(command.started - command.queued);
+      print(INFO, "[#" + command.id + "] Executing command: " + command.text + "...");
+      try {
+         CompletableFuture.supplyAsync(() -> operationExecutor.executeCommand(console, InputLexer.tokenize(command.text)), operationExecutor.getAsyncExecutor())
+                 .whenComplete((OperationResponse result, Throwable ex) -> {
+                    //Released after the response was printed, so the pipeline does not stop before it is
+                    try {
+                       complete(command, result, ex);
+                    } finally {
+                       workers.release();
+                    }
+                 });
+      } catch (RejectedExecutionException ex) {
+         try {
+            complete(command, null, ex);
+         } finally {
+            workers.release();
+         }
+      }
+   }
+
+   private void complete(QueuedCommand command, OperationResponse result, Throwable ex) {
+      long executionNanos = System.nanoTime() - command.started;
+      executionTimes.record(executionNanos);
+      String tag = "[#" + command.id + "] ";
+      synchronized (printLock) {
+         if (ex != null) {
+            failed.increment();
+            console.message(ERROR, tag + "Command " + command.text + " failed: " + ex.getMessage());
+         } else if (result.hasSucceeded()) {
+            succeeded.increment();
+            console.message(INFO, tag + command.text + ":");
+            console.message(INFO, result.getMessages());
+         } else {
+            failed.increment();
+            console.message(ERROR, tag + command.text + ":");
+            console.message(ERROR, result.getMessages());
+         }
+         console.message(INFO, tag + "Finished in " + TimeUnit.NANOSECONDS.toMillis(executionNanos) + " ms (queued "
+                               + TimeUnit.NANOSECONDS.toMillis(command.started - command.queued) + " ms).");
+         System.out.println();
+      }
+   }
+
+   private void print(Message.Type type, String message) {
+      synchronized (printLock) {
+         console.message(type, message);
+      }
+   }
+
+   /**
+    * @return The amount of commands waiting to be executed.
+    */
+   public int getQueueDepth() {
+      return queue.size();
+   }
+
+   public int getQueueCapacity() {
+      return queueCapacity;
+   }
+
+   /**
+    * @return The amount of commands that are executing.
+    */
+   public int getExecutingCount() {
+      return concurrency - workers.availablePermits();
+   }
+
+   public int getConcurrency() {
+      return concurrency;
+   }
+
+   public long getSucceededCount() {
+      return succeeded.sum();
+   }
+
+   public long getFailedCount() {
+      return failed.sum();
+   }
+
+   /**
+    * @return The times commands waited in the queue before they were
+    *         executed.
+    */
+   public LatencyHistogram.Snapshot getQueueTimes() {
+      return queueTimes.snapshot();
+   }
+
+   /**
+    * @return The times commands took to execute.
+    */
+   public LatencyHistogram.Snapshot getExecutionTimes() {
+      return executionTimes.snapshot();
+   }
+
+   /**
+    * Reset the recorded times and counts.
+    */
+   public void reset() {
+      queueTimes.reset();
+      executionTimes.reset();
+      succeeded.reset();
+      failed.reset();
+   }
+
+   private static class QueuedCommand {
+
+      private final long id;
+      private final String text;
+      private final long queued = System.nanoTime();
+      private long started;
+
+      private QueuedCommand(long id, String text) {
+         this.id = id;
+         this.text = text;
+      }
+
+   }
+
+}
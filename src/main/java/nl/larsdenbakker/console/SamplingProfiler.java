@@ -0,0 +1,199 @@
+package nl.larsdenbakker.console;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import nl.larsdenbakker.operation.ExecutionTracker;
+
+/**
+ * A sampling profiler of the threads that are executing operations. Every
+ * sample takes the stack of every tracked thread and attributes it to the
+ * OperationTemplates the thread is executing. Samples are taken regardless
+ * of the state of a thread, so time spent waiting shows up as well.
+ *
+ * The samples are aggregated into:
+ * <ul>
+ * <li>Template counts: the samples per template, including the samples of
+ * the templates executed by it.</li>
+ * <li>Self counts: the samples per innermost template and top Java frame.</li>
+ * <li>Hot paths: the samples per template path and the top Java frames.</li>
+ * <li>Collapsed stacks: the samples per full path, in the format used by
+ * flame graph tools.</li>
+ * </ul>
+ * A profiler is not thread safe, it should be sampled from a single thread.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class SamplingProfiler {
+
+   private static final int MAX_STACK_DEPTH = 256;
+   private static final int HOT_PATH_FRAMES = 4;
+
+   private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+   private final ExecutionTracker tracker;
+
+   //Ordered as if the separator sorts before any other character, so nested templates follow their parent
+   private final Map<String, Integer> templateCounts = new TreeMap((Object a, Object b) -> {
+      return ((String) a).replace(ExecutionTracker.SEPARATOR, '\0').compareTo(((String) b).replace(ExecutionTracker.SEPARATOR, '\0'));
+   });
+   private final Map<String, Integer> selfCounts = new HashMap();
+   private final Map<String, Integer> hotPathCounts = new HashMap();
+   private final Map<String, Integer> collapsedStacks = new HashMap();
+   private int sampleCount = 0;
+   private int stackCount = 0;
+
+   public SamplingProfiler(ExecutionTracker tracker) {
+      this.tracker = tracker;
+   }
+
+   /**
+    * Take a sample of the stacks of all threads that are executing
+    * operations, except the current thread.
+    */
+   public void sample() {
+      sampleCount++;
+      Map<Thread, String> executions = tracker.getExecutions();
+      executions.remove(Thread.currentThread());
+      if (executions.isEmpty()) {
+         return;
+      }
+      long[] ids = new long[executions.size()];
+      Map<Long, String> executionsById = new HashMap();
+      int i = 0;
+      for (Map.Entry<Thread, String> entry : executions.entrySet()) {
+         ids[i++] = entry.getKey().getId();
+         executionsById.put(entry.getKey().getId(), entry.getValue());
+      }
+      for (ThreadInfo info : threadBean.getThreadInfo(ids, MAX_STACK_DEPTH)) {
+         //Null if the thread has finished in the meantime
+         if (info != null && info.getStackTrace().length != 0) {
+            record(executionsById.get(info.getThreadId()), info.getStackTrace());
+         }
+      }
+   }
+
+   private void record(String execution, StackTraceElement[] stack) {
+      stackCount++;
+      String[] templates = execution.split(String.valueOf(ExecutionTracker.SEPARATOR));
+      StringBuilder templatePath = new StringBuilder();
+      for (String template : templates) {
+         if (templatePath.length() != 0) {
+            templatePath.append(ExecutionTracker.SEPARATOR);
+         }
+         templatePath.append(sanitize(template));
+         increment(templateCounts, templatePath.toString());
+      }
+      String innermost = sanitize(templates[templates.length - 1]);
+      increment(selfCounts, innermost + " @ " + describe(stack[0]));
+
+      StringBuilder hotPath = new StringBuilder(templatePath);
+      for (int i = Math.min(HOT_PATH_FRAMES, stack.length) - 1; i >= 0; i--) {
+         hotPath.append(" > ").append(describe(stack[i]));
+      }
+      increment(hotPathCounts, hotPath.toString());
+
+      //Outermost frame first, the stack trace starts with the innermost frame
+      StringBuilder collapsed = new StringBuilder(templatePath);
+      for (int i = stack.length - 1; i >= 0; i--) {
+         collapsed.append(ExecutionTracker.SEPARATOR).append(describe(stack[i]));
+      }
+      increment(collapsedStacks, collapsed.toString());
+   }
+
+   private static String describe(StackTraceElement frame) {
+      return sanitize(frame.getClassName() + "." + frame.getMethodName());
+   }
+
+   /* Frames in collapsed stacks may not contain separators or whitespace. */
+   private static String sanitize(String name) {
+      StringBuilder sb = new StringBuilder(name.length());
+      for (int i = 0; i < name.length(); i++) {
+         char c = name.charAt(i);
+         sb.append((c == ExecutionTracker.SEPARATOR || Character.isWhitespace(c)) ? '_' : c);
+      }
+      return sb.toString();
+   }
+
+   private static void increment(Map<String, Integer> counts, String key) {
+      counts.merge(key, 1, Integer::sum);
+   }
+
+   /**
+    * @return The amount of times sample() was called.
+    */
+   public int getSampleCount() {
+      return sampleCount;
+   }
+
+   /**
+    * @return The amount of stacks that were sampled.
+    */
+   public int getStackCount() {
+      return stackCount;
+   }
+
+   /**
+    * @return The samples per template path, including the samples of nested
+    *         templates, ordered so nested templates follow their parent.
+    */
+   public Map<String, Integer> getTemplateCounts() {
+      return templateCounts;
+   }
+
+   /**
+    * @param limit The maximum amount of entries.
+    *
+    * @return The samples per innermost template and top Java frame, the most
+    *         sampled first.
+    */
+   public List<Map.Entry<String, Integer>> getSelfCounts(int limit) {
+      return top(selfCounts, limit);
+   }
+
+   /**
+    * @param limit The maximum amount of entries.
+    *
+    * @return The samples per template path and top Java frames, the most
+    *         sampled first.
+    */
+   public List<Map.Entry<String, Integer>> getHotPaths(int limit) {
+      return top(hotPathCounts, limit);
+   }
+
+   private static List<Map.Entry<String, Integer>> top(Map<String, Integer> counts, int limit) {
+      List<Map.Entry<String, Integer>> entries = new ArrayList(counts.entrySet());
+      entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+      return (entries.size() > limit) ? entries.subList(0, limit) : entries;
+   }
+
+   /**
+    * Write the samples as collapsed stacks: one line per distinct stack,
+    * with the templates and frames from outermost to innermost separated by
+    * semicolons, followed by a space and the amount of samples.
+    *
+    * @param file The file to write to. It is overwritten if it exists.
+    *
+    * @throws IOException if the file could not be written.
+    */
+   public void writeCollapsedStacks(File file) throws IOException {
+      try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+         for (Map.Entry<String, Integer> entry : collapsedStacks.entrySet()) {
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(Integer.toString(entry.getValue()));
+            writer.newLine();
+         }
+      }
+   }
+
+}
@@ -0,0 +1,56 @@
+package nl.larsdenbakker.console.operations;
+
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.console.ConsoleModule;
+import nl.larsdenbakker.console.ConsolePipeline;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.metrics.LatencyHistogram;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to describe the command queue of the active console: the amount
+ * of queued and executing commands and the times commands spent waiting
+ * and executing.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConsoleStatsOperation extends Operation {
+
+   /* Whether or not to clear the recorded times after describing them. Default false. */
+   public static final String KEY_RESET = "reset".intern();
+
+   private final boolean reset;
+
+   public ConsoleStatsOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.reset = storage.get(KEY_RESET, Boolean.class, false);
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      Application app = getContext().getOperationHandler().getParentApplication();
+      ConsolePipeline pipeline = (app.isLoaded(ConsoleModule.class)) ? app.getModule(ConsoleModule.class).getPipeline() : null;
+      if (pipeline == null) {
+         return OperationResponse.failed("The console is not active.");
+      }
+      OperationResponse response = OperationResponse.succeeded("Console stats:").addMessages(
+              "Queued: " + pipeline.getQueueDepth() + "/" + pipeline.getQueueCapacity()
+              + ", executing: " + pipeline.getExecutingCount() + "/" + pipeline.getConcurrency(),
+              "Succeeded: " + pipeline.getSucceededCount() + ", failed: " + pipeline.getFailedCount(),
+              "Queue time: " + describe(pipeline.getQueueTimes()),
+              "Execution time: " + describe(pipeline.getExecutionTimes()));
+      if (reset) {
+         pipeline.reset();
+      }
+      return response;
+   }
+
+   private static String describe(LatencyHistogram.Snapshot histogram) {
+      return String.format("mean %.1f ms, p50 %.1f ms, p99 %.1f ms, max %.1f ms", histogram.getMeanNanos() / 1e6,
+                           histogram.getPercentileNanos(50) / 1e6, histogram.getPercentileNanos(99) / 1e6, histogram.getMaxNanos() / 1e6);
+   }
+
+}
@@ -0,0 +1,121 @@
+package nl.larsdenbakker.console.operations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.console.SamplingProfiler;
+import nl.larsdenbakker.operation.ExecutionTracker;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to profile the operations that are executed during the given
+ * amount of seconds with a SamplingProfiler. The samples per template, the
+ * most sampled frames and the hottest paths are described, and the samples
+ * can be written to a file as collapsed stacks for flame graph tools. The
+ * profile stops early if the operation is interrupted.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ProfileOperation extends Operation {
+
+   /* The amount of seconds to profile. Default 10. */
+   public static final String KEY_DURATION = "duration".intern();
+   /* The amount of milliseconds between samples. Default 10. */
+   public static final String KEY_INTERVAL = "interval".intern();
+   /* The amount of frames and paths to describe. Default 10. */
+   public static final String KEY_TOP = "top".intern();
+   /* The file to write the collapsed stacks to. Optional. */
+   public static final String KEY_FILE = "file".intern();
+
+   private final int duration;
+   private final int interval;
+   private final int top;
+   private final String file;
+
+   public ProfileOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.duration = storage.get(KEY_DURATION, Integer.class, 10);
+      this.interval = storage.get(KEY_INTERVAL, Integer.class, 10);
+      this.top = storage.get(KEY_TOP, Integer.class, 10);
+      this.file = storage.get(KEY_FILE, String.class);
+      if (duration <= 0 || interval <= 0 || top <= 0) {
+         throw new InvalidInputException("Duration, interval and top must be larger than 0.");
+      }
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      OperationModule operationModule = getContext().getOperationHandler();
+      ExecutionTracker tracker = operationModule.acquireExecutionTracker();
+      SamplingProfiler profiler = new SamplingProfiler(tracker);
+      long start = System.nanoTime();
+      long end = start + TimeUnit.SECONDS.toNanos(duration);
+      boolean interrupted = false;
+      try {
+         while (System.nanoTime() < end) {
+            profiler.sample();
+            try {
+               Thread.sleep(interval);
+            } catch (InterruptedException ex) {
+               interrupted = true;
+               break;
+            }
+         }
+      } finally {
+         operationModule.releaseExecutionTracker();
+      }
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      List<String> lines = new ArrayList();
+      lines.add("Took " + profiler.getSampleCount() + " samples of " + profiler.getStackCount() + " stacks in " + elapsed + " ms"
+                + ((interrupted) ? " (interrupted)." : "."));
+      if (profiler.getStackCount() != 0) {
+         int total = profiler.getStackCount();
+         lines.add("Templates:");
+         for (Map.Entry<String, Integer> entry : profiler.getTemplateCounts().entrySet()) {
+            String path = entry.getKey();
+            int depth = path.length() - path.replace(String.valueOf(ExecutionTracker.SEPARATOR), "").length();
+            String template = path.substring(path.lastIndexOf(ExecutionTracker.SEPARATOR) + 1);
+            lines.add(describe(entry.getValue(), total) + indent(depth) + template);
+         }
+         lines.add("Top frames:");
+         for (Map.Entry<String, Integer> entry : profiler.getSelfCounts(top)) {
+            lines.add(describe(entry.getValue(), total) + entry.getKey());
+         }
+         lines.add("Hot paths:");
+         for (Map.Entry<String, Integer> entry : profiler.getHotPaths(top)) {
+            lines.add(describe(entry.getValue(), total) + entry.getKey());
+         }
+      }
+      if (file != null) {
+         try {
+            profiler.writeCollapsedStacks(new File(file));
+            lines.add("Wrote collapsed stacks to " + file + ".");
+         } catch (IOException ex) {
+            return OperationResponse.failed("Could not write collapsed stacks to " + file + ": " + ex.getMessage()).addMessages(lines);
+         }
+      }
+      return OperationResponse.succeeded().addMessages(lines);
+   }
+
+   private static String describe(int count, int total) {
+      return String.format("%6.1f%% %6d  ", count * 100d / total, count);
+   }
+
+   private static String indent(int depth) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < depth; i++) {
+         sb.append("   ");
+      }
+      return sb.toString();
+   }
+
+}
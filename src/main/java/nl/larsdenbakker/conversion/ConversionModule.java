@@ -60,6 +60,7 @@ public class ConversionModule extends AbstractModule {
    private final Map<Collection, Class<?>> collectionElementTypeCache = new WeakHashMap<>();
    private final Map<Map, Pair<Class<?>, Class<?>>> mapKeyValueTypesCache = new WeakHashMap<>();
    private final Map<String, Class<?>> typeMappings = new HashMap();
+   private final ConversionStats stats = new ConversionStats();
 
    public ConversionModule(Application app) {
       super(app);
@@ -134,34 +135,51 @@ public class ConversionModule extends AbstractModule {
    public <T> T convert(Object obj, Class<T> returnType) throws ConversionException {
       checkNotNull(obj);
       checkNotNull(returnType);
-      //Look for a weak converter first, return if succesful.
-      for (DataConversionOverride converter : getWeakConverters()) {
-         T returnObject = converter.convert(obj, returnType);
-         if (returnObject != null) {
-            return returnObject;
+      stats.recordConversion(obj.getClass(), returnType);
+      try {
+         //Look for a weak converter first, return if succesful.
+         for (DataConversionOverride converter : getWeakConverters()) {
+            T returnObject = converter.convert(obj, returnType);
+            if (returnObject != null) {
+               stats.recordOverrideHit();
+               return returnObject;
+            }
          }
-      }
-      //Return is object can be cast to desired type.
-      if (returnType.isAssignableFrom(obj.getClass())) {
-         return (T) obj; //Safe cast ensured
-      } else {
-         //Look for a regular DataConverter and convert if found.
-         DataConverter<T> dataConverter = getConverter(returnType);
-         if (dataConverter != null) {
-            return dataConverter.convert(obj);
+         //Return is object can be cast to desired type.
+         if (returnType.isAssignableFrom(obj.getClass())) {
+            stats.recordCast();
+            return (T) obj; //Safe cast ensured
          } else {
-            //Look if a converter is registered for any of the return type's
-            //super types, otherwise throw an exception.
-            SuperTypeDataConverter<? super T> superTypeConverter = getSuperConverter(returnType);
-            if (superTypeConverter != null) {
-               return superTypeConverter.convert(obj, returnType);
+            //Look for a regular DataConverter and convert if found.
+            DataConverter<T> dataConverter = getConverter(returnType);
+            if (dataConverter != null) {
+               stats.recordConverterHit();
+               return dataConverter.convert(obj);
             } else {
-               throw new ConversionException("Did not find any Converter for class: " + returnType.getName());
+               //Look if a converter is registered for any of the return type's
+               //super types, otherwise throw an exception.
+               SuperTypeDataConverter<? super T> superTypeConverter = getSuperConverter(returnType);
+               if (superTypeConverter != null) {
+                  stats.recordSuperTypeFallback();
+                  return superTypeConverter.convert(obj, returnType);
+               } else {
+                  throw new ConversionException("Did not find any Converter for class: " + returnType.getName());
+               }
             }
          }
+      } catch (ConversionException ex) {
+         stats.recordFailure();
+         throw ex;
       }
    }
 
+   /**
+    * @return The counters of the conversions done by this module.
+    */
+   public ConversionStats getStats() {
+      return stats;
+   }
+
    /**
     * Convert an Object to a Collection with elements of the desired type. If
     * it is a Collection and it is of the same collection and element type it is
@@ -207,9 +225,11 @@ public class ConversionModule extends AbstractModule {
             Class cachedElementType = getCachedElementType(collection);
             //If we have cached it's element type return if same
             if (cachedElementType != null && elementType.isAssignableFrom(cachedElementType) && collection.getClass().equals(constructionCollectionType)) {
+               stats.recordElementTypeCache(true);
                setCachedElementType(collection, elementType);
                return (C) collection;
             } else {
+               stats.recordElementTypeCache(false);
                return _convertContents(collection, constructionCollectionType, elementType);
             }
          } else {
@@ -337,9 +357,11 @@ public class ConversionModule extends AbstractModule {
             //requested types do so and update cache
             if (cachedType != null && keyType.isAssignableFrom(cachedType.getKey())
                 && valueType.isAssignableFrom(cachedType.getValue())) {
+               stats.recordMapTypesCache(true);
                setCacheKeyValueTypes(map, keyType, valueType);
                return (M) map;
             } else {
+               stats.recordMapTypesCache(false);
                return _convertContents(map, mapType, keyType, valueType);
             }
          } else {
@@ -428,6 +450,20 @@ public class ConversionModule extends AbstractModule {
       return null;
    }
 
+   /**
+    * @return The amount of Collections of which the element type is cached.
+    */
+   public int getCachedElementTypeCount() {
+      return collectionElementTypeCache.size();
+   }
+
+   /**
+    * @return The amount of Maps of which the key and value types are cached.
+    */
+   public int getCachedKeyValueTypesCount() {
+      return mapKeyValueTypesCache.size();
+   }
+
    /**
     * @return The cached key-value types for this map or null if it is unknown.
     */
@@ -0,0 +1,163 @@
+package nl.larsdenbakker.conversion;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the conversions done by a ConversionModule. Conversions are
+ * counted per source and target type, together with how they were done:
+ * by a DataConversionOverride, by a cast, by a DataConverter registered for
+ * the target type or by a SuperTypeDataConverter. Lookups of the element
+ * type cache of Collections and the key and value type cache of Maps are
+ * counted as hits and misses.
+ *
+ * Counting is enabled unless the system property lbtools.conversion.stats.disabled
+ * is set to true. The property is read once, when counting is disabled the
+ * counting methods are empty and are removed by the JIT compiler.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConversionStats {
+
+   public static final boolean ENABLED = !Boolean.getBoolean("lbtools.conversion.stats.disabled");
+
+   private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, LongAdder>> conversions = new ConcurrentHashMap();
+   private final LongAdder overrideHits = new LongAdder();
+   private final LongAdder casts = new LongAdder();
+   private final LongAdder converterHits = new LongAdder();
+   private final LongAdder superTypeFallbacks = new LongAdder();
+   private final LongAdder failures = new LongAdder();
+   private final LongAdder elementTypeCacheHits = new LongAdder();
+   private final LongAdder elementTypeCacheMisses = new LongAdder();
+   private final LongAdder mapTypesCacheHits = new LongAdder();
+   private final LongAdder mapTypesCacheMisses = new LongAdder();
+
+   protected ConversionStats() {
+   }
+
+   protected void recordConversion(Class<?> sourceType, Class<?> targetType) {
+      if (ENABLED) {
+         ConcurrentMap<Class<?>, LongAdder> targets = conversions.get(sourceType);
+         if (targets == null) {
+            targets = conversions.computeIfAbsent(sourceType, (Class<?> type) -> new ConcurrentHashMap());
+         }
+         LongAdder counter = targets.get(targetType);
+         if (counter == null) {
+            counter = targets.computeIfAbsent(targetType, (Class<?> type) -> new LongAdder());
+         }
+         counter.increment();
+      }
+   }
+
+   protected void recordOverrideHit() {
+      if (ENABLED) {
+         overrideHits.increment();
+      }
+   }
+
+   protected void recordCast() {
+      if (ENABLED) {
+         casts.increment();
+      }
+   }
+
+   protected void recordConverterHit() {
+      if (ENABLED) {
+         converterHits.increment();
+      }
+   }
+
+   protected void recordSuperTypeFallback() {
+      if (ENABLED) {
+         superTypeFallbacks.increment();
+      }
+   }
+
+   protected void recordFailure() {
+      if (ENABLED) {
+         failures.increment();
+      }
+   }
+
+   protected void recordElementTypeCache(boolean hit) {
+      if (ENABLED) {
+         (hit ? elementTypeCacheHits : elementTypeCacheMisses).increment();
+      }
+   }
+
+   protected void recordMapTypesCache(boolean hit) {
+      if (ENABLED) {
+         (hit ? mapTypesCacheHits : mapTypesCacheMisses).increment();
+      }
+   }
+
+   /**
+    * @return The amount of conversions per source and target type, mapped
+    *         by "source -> target" in alphabetical order.
+    */
+   public Map<String, Long> getConversionCounts() {
+      Map<String, Long> counts = new TreeMap();
+      for (Map.Entry<Class<?>, ConcurrentMap<Class<?>, LongAdder>> source : conversions.entrySet()) {
+         for (Map.Entry<Class<?>, LongAdder> target : source.getValue().entrySet()) {
+            counts.put(source.getKey().getName() + " -> " + target.getKey().getName(), target.getValue().sum());
+         }
+      }
+      return counts;
+   }
+
+   public long getOverrideHits() {
+      return overrideHits.sum();
+   }
+
+   public long getCasts() {
+      return casts.sum();
+   }
+
+   public long getConverterHits() {
+      return converterHits.sum();
+   }
+
+   public long getSuperTypeFallbacks() {
+      return superTypeFallbacks.sum();
+   }
+
+   public long getFailures() {
+      return failures.sum();
+   }
+
+   public long getElementTypeCacheHits() {
+      return elementTypeCacheHits.sum();
+   }
+
+   public long getElementTypeCacheMisses() {
+      return elementTypeCacheMisses.sum();
+   }
+
+   public long getMapTypesCacheHits() {
+      return mapTypesCacheHits.sum();
+   }
+
+   public long getMapTypesCacheMisses() {
+      return mapTypesCacheMisses.sum();
+   }
+
+   /**
+    * Reset all counters to zero.
+    */
+   public void reset() {
+      conversions.clear();
+      overrideHits.reset();
+      casts.reset();
+      converterHits.reset();
+      superTypeFallbacks.reset();
+      failures.reset();
+      elementTypeCacheHits.reset();
+      elementTypeCacheMisses.reset();
+      mapTypesCacheHits.reset();
+      mapTypesCacheMisses.reset();
+   }
+
+}
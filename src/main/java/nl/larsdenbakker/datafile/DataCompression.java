@@ -0,0 +1,163 @@
+package nl.larsdenbakker.datafile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Streaming compression that can be applied to a DataFile. Compressed files
+ * are recognized by their header when they are loaded, so a file can be read
+ * regardless of the compression it is configured to be saved with. The zlib
+ * header of DEFLATE data can also be the start of a text file, such as "x^",
+ * so data is only read as DEFLATE if the start of it can be inflated.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public enum DataCompression {
+
+   NONE {
+      @Override
+      public OutputStream compress(OutputStream output) {
+         return output;
+      }
+
+      @Override
+      protected InputStream _decompress(InputStream input) {
+         return input;
+      }
+
+      @Override
+      protected boolean matches(byte[] header, int length) {
+         return false;
+      }
+   },
+   GZIP {
+      @Override
+      public OutputStream compress(OutputStream output) throws IOException {
+         return new GZIPOutputStream(output, BUFFER_SIZE);
+      }
+
+      @Override
+      protected InputStream _decompress(InputStream input) throws IOException {
+         return new GZIPInputStream(input, BUFFER_SIZE);
+      }
+
+      @Override
+      protected boolean matches(byte[] header, int length) {
+         return length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+      }
+   },
+   /* zlib wrapped DEFLATE. Slightly smaller and faster than GZIP, but not readable by common archive tools. */
+   DEFLATE {
+      @Override
+      public OutputStream compress(OutputStream output) {
+         return new DeflaterOutputStream(output);
+      }
+
+      @Override
+      protected InputStream _decompress(InputStream input) {
+         return new InflaterInputStream(input);
+      }
+
+      @Override
+      protected boolean matches(byte[] header, int length) {
+         if (length < 2) {
+            return false;
+         }
+         int b0 = header[0] & 0xff;
+         int b1 = header[1] & 0xff;
+         //zlib header as written by java.util.zip.Deflater: 32K window, no preset dictionary, valid header checksum
+         return b0 == 0x78 && (b1 & 0x20) == 0 && ((b0 << 8) | b1) % 31 == 0 && inflates(header, length);
+      }
+   };
+
+   /**
+    * The amount of bytes at the start of the data that are used to detect its
+    * compression.
+    */
+   public static final int HEADER_SIZE = 512;
+
+   private static final int BUFFER_SIZE = 8192;
+
+   /**
+    * Wrap the given stream so that everything written to it is compressed.
+    *
+    * @param output The stream to write the compressed data to.
+    *
+    * @return The compressing stream.
+    * @throws IOException if the compressed stream could not be started.
+    */
+   public abstract OutputStream compress(OutputStream output) throws IOException;
+
+   protected abstract InputStream _decompress(InputStream input) throws IOException;
+
+   protected abstract boolean matches(byte[] header, int length);
+
+   /* Whether the given start of zlib data inflates without errors. Only a full header may end before the stream does. */
+   private static boolean inflates(byte[] data, int length) {
+      Inflater inflater = new Inflater();
+      try {
+         inflater.setInput(data, 0, length);
+         byte[] output = new byte[BUFFER_SIZE];
+         while (!inflater.finished() && !inflater.needsInput()) {
+            if (inflater.inflate(output) == 0 && !inflater.finished() && !inflater.needsInput()) {
+               //Needs a preset dictionary
+               return false;
+            }
+         }
+         return inflater.finished() || length >= HEADER_SIZE;
+      } catch (DataFormatException ex) {
+         return false;
+      } finally {
+         inflater.end();
+      }
+   }
+
+   /**
+    * Detect the compression of the given stream by its header and wrap it so
+    * that it can be read as uncompressed data. Streams that are not
+    * compressed are returned readable as they are.
+    *
+    * @param input The stream.
+    *
+    * @return A stream of uncompressed data.
+    * @throws IOException if the stream could not be read.
+    */
+   public static InputStream decompress(InputStream input) throws IOException {
+      InputStream buffered = (input.markSupported()) ? input : new BufferedInputStream(input, BUFFER_SIZE);
+      byte[] header = new byte[HEADER_SIZE];
+      buffered.mark(HEADER_SIZE);
+      int length = 0;
+      int read;
+      while (length < HEADER_SIZE && (read = buffered.read(header, length, HEADER_SIZE - length)) != -1) {
+         length += read;
+      }
+      buffered.reset();
+      return detect(header, length)._decompress(buffered);
+   }
+
+   /**
+    * @param header The start of the data, up to HEADER_SIZE bytes.
+    * @param length The amount of bytes in the header. If this is less than
+    * HEADER_SIZE, the header must be all of the data.
+    *
+    * @return The compression that matches the given header, NONE if the
+    * data is not compressed.
+    */
+   public static DataCompression detect(byte[] header, int length) {
+      for (DataCompression compression : values()) {
+         if (compression.matches(header, length)) {
+            return compression;
+         }
+      }
+      return NONE;
+   }
+
+}
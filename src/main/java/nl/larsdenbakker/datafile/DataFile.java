@@ -1,10 +1,17 @@
 package nl.larsdenbakker.datafile;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
 import nl.larsdenbakker.serialization.SerializationModule;
 import nl.larsdenbakker.util.FileUtils;
 
@@ -13,21 +20,35 @@ import nl.larsdenbakker.util.FileUtils;
  * deserialization information. An Object can be bound to a DataFile
  * and scheduled to be serialized and saved at regular intervals.
  *
+ * A DataFile can be saved with a DataCompression. Compressed files are
+ * recognized by their magic bytes when loading, so changing the compression
+ * of an existing file does not prevent it from being read.
+ *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
 public class DataFile {
 
    private final File file;
    private final DataFormat format;
+   private final DataCompression compression;
    private final DataFileModule dataFileModule;
 
-   private Thread saveThread;
    private WeakReference<Object> toSave;
 
-   protected DataFile(DataFileModule dataFileModule, File file, DataFormat format) {
+   private volatile long saveCount;
+   private volatile long totalSaveNanos;
+   private volatile long lastSaveNanos;
+   private volatile long maxSaveNanos;
+
+   protected DataFile(DataFileModule dataFileModule, File file, DataFormat format, DataCompression compression) {
       this.dataFileModule = dataFileModule;
       this.file = file;
       this.format = format;
+      this.compression = compression;
+   }
+
+   protected DataFile(DataFileModule dataFileModule, File file, DataFormat format) {
+      this(dataFileModule, file, format, DataCompression.NONE);
    }
 
    public DataFileModule getDataFileManager() {
@@ -42,6 +63,10 @@ public class DataFile {
       return format;
    }
 
+   public DataCompression getCompression() {
+      return compression;
+   }
+
    public File getFile() {
       return file;
    }
@@ -59,26 +84,71 @@ public class DataFile {
          throw new DataFileException(ex.getMessage()).addFailedAction("Loading " + file);
       }
       try {
-         return format.getObjectMapper().readValue(file, Map.class);
-      } catch (IOException e) {
+         return DataFileUtils.loadContents(format, file);
+      } catch (DataFileException e) {
          return new HashMap();
       }
    }
 
+   /**
+    * Load the contents of this file by mapping it into memory. See
+    * DataFileUtils.loadMappedContents(DataFormat, File, boolean) for more
+    * information on memory-mapped and lazy loading.
+    *
+    * @param lazy Whether or not top-level values should be parsed on first access.
+    *
+    * @return A map with the contents of the file as read by the DataFormat.
+    * @throws DataFileException If there were I/O problems during loading.
+    */
+   public Map<String, Object> loadMapped(boolean lazy) throws DataFileException {
+      return DataFileUtils.loadMappedContents(format, file, lazy);
+   }
+
    /**
     * Serialize the provided Object and save it to this DataFile's file
-    * location.
+    * location. If the Object is Snapshottable, a snapshot is taken and saved
+    * instead, so the Object can be modified while it is being saved. The
+    * Object is written to a temporary file that then replaces the file.
     *
     * @param obj The Object that is to be serialized.
     * @throws nl.larsdenbakker.datafile.DataFileException
     */
-   public void save(Object obj) throws DataFileException {
+   public synchronized void save(Object obj) throws DataFileException {
+      long start = System.nanoTime();
       try {
          FileUtils.createAndTestReadWrite(file);
-         format.getObjectMapper().writeValue(file, getSerializationModule().toSerializable(obj));
+         Object contents = (obj instanceof Snapshottable) ? ((Snapshottable) obj).takeSnapshot() : obj;
+         //Written next to the file and moved over it, a lazily loaded mapping of the file keeps reading the old contents
+         File temp = new File(file.getPath() + ".tmp");
+         try {
+            try (OutputStream output = compression.compress(new BufferedOutputStream(new FileOutputStream(temp)))) {
+               format.getObjectMapper().writeValue(output, getSerializationModule().toSerializable(contents));
+            }
+            try {
+               Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+               Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+         } finally {
+            Files.deleteIfExists(temp.toPath());
+         }
       } catch (IOException ex) {
          throw new DataFileException(ex.getMessage()).addFailedAction("Saving " + file);
       }
+      recordSave(System.nanoTime() - start);
+   }
+
+   /**
+    * Serialize the provided Object and save it to this DataFile's file
+    * location on one of the DataFileModule's writer threads. See
+    * save(Object).
+    *
+    * @param obj The Object that is to be serialized.
+    *
+    * @return A Future that completes when the Object has been saved.
+    */
+   public Future<?> saveAsync(Object obj) {
+      return dataFileModule.saveAsync(this, obj);
    }
 
    protected void save() throws DataFileException {
@@ -90,6 +160,45 @@ public class DataFile {
       }
    }
 
+   private void recordSave(long nanos) {
+      saveCount++;
+      totalSaveNanos += nanos;
+      lastSaveNanos = nanos;
+      if (nanos > maxSaveNanos) {
+         maxSaveNanos = nanos;
+      }
+   }
+
+   /**
+    * @return The amount of times this DataFile has been saved successfully.
+    */
+   public long getSaveCount() {
+      return saveCount;
+   }
+
+   /**
+    * @return The duration of the last successful save in nanoseconds, or 0 if
+    * this DataFile has not been saved yet.
+    */
+   public long getLastSaveNanos() {
+      return lastSaveNanos;
+   }
+
+   /**
+    * @return The average duration of a successful save in nanoseconds, or 0 if
+    * this DataFile has not been saved yet.
+    */
+   public long getAverageSaveNanos() {
+      return (saveCount != 0) ? totalSaveNanos / saveCount : 0;
+   }
+
+   /**
+    * @return The longest duration of a successful save in nanoseconds.
+    */
+   public long getMaxSaveNanos() {
+      return maxSaveNanos;
+   }
+
    /**
     * Schedule the provided Object to be serialized and saved to this DataFile's
     * file location at a regular interval until it is canceled or this
@@ -1,11 +1,26 @@
 package nl.larsdenbakker.datafile;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nl.larsdenbakker.app.AbstractModule;
@@ -26,18 +41,35 @@ import nl.larsdenbakker.app.UserInputException;
  * application shuts down or reloads), all it's scheduled auto-save files are
  * saved as well.
  *
+ * Auto-saving is driven by a single scheduler thread. The actual writing is
+ * handed to a bounded pool of writer threads, so independent DataFiles are
+ * saved in parallel. When the module is unloaded, saves that are in progress
+ * are allowed to finish before the threads are stopped.
+ *
+ * Files can be loaded in batches on a separate pool of reader threads, so the
+ * time it takes to load a set of files is bounded by the largest file rather
+ * than the sum of all files.
+ *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
 public class DataFileModule extends AbstractModule {
 
+   private static final long DRAIN_TIMEOUT_MS = TimeUtils.MINUTE_MS;
+
    private long autoSaveDelay = TimeUtils.MINUTE_MS * 30;
+   private int writerThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
    private DataFormat defaultDataFormat = DataFormat.JSON;
+   private DataCompression defaultCompression = DataCompression.NONE;
 
-   private final List<WeakReference<DataFile>> scheduled = new ArrayList<>();
-   private final List<WeakReference<DataFile>> dataFiles = new ArrayList<>();
+   private final Queue<WeakReference<DataFile>> scheduled = new ConcurrentLinkedQueue<>();
+   private final Queue<WeakReference<DataFile>> dataFiles = new ConcurrentLinkedQueue<>();
    private boolean autoSave;
-   private Thread autoSaveThread = null;
-   private AutoSaveTask autoSaveTask = null;
+   private ScheduledExecutorService scheduler = null;
+   private ExecutorService writers = null;
+   private ExecutorService readers = null;
+   private ScheduledFuture<?> autoSaveTask = null;
+   //Set on the writer threads, saves started from a writer thread are not handed to the writers again
+   private final ThreadLocal<Boolean> writerThread = new ThreadLocal();
 
    public DataFileModule(Application parentApplication, boolean autoSave) {
       super(parentApplication);
@@ -61,6 +93,9 @@ public class DataFileModule extends AbstractModule {
 
    @Override
    protected void _load() {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new DataFileThreadFactory("data-file-scheduler"));
+      writers = Executors.newFixedThreadPool(writerThreads, new DataFileThreadFactory("data-file-writer", writerThread));
+      readers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DataFileThreadFactory("data-file-reader"));
       if (autoSave) {
          enableAutosaving();
       }
@@ -68,6 +103,13 @@ public class DataFileModule extends AbstractModule {
 
    @Override
    protected void _unload() {
+      disableAutosaving();
+      drain(scheduler);
+      drain(writers);
+      drain(readers);
+      scheduler = null;
+      writers = null;
+      readers = null;
       for (WeakReference ref : scheduled) {
          ref.clear();
       }
@@ -89,7 +131,26 @@ public class DataFileModule extends AbstractModule {
    }
 
    /**
-    * Create a new DataFile of the provided File and DataFormat.
+    * Create a new DataFile of the provided File, DataFormat and
+    * DataCompression. The compression is only used when saving, compressed
+    * files are detected automatically when loading.
+    *
+    * @param file        The File.
+    * @param format      The DataFormat.
+    * @param compression The DataCompression.
+    *
+    * @return A newly created DataFile.
+    */
+   public DataFile createDataFile(File file, DataFormat format, DataCompression compression) {
+      checkNotNull(compression);
+      DataFile df = new DataFile(this, file, format, compression);
+      dataFiles.add(new WeakReference(df));
+      return df;
+   }
+
+   /**
+    * Create a new DataFile of the provided File and DataFormat and the
+    * DataCompression from getDefaultCompression().
     *
     * @param file   The File.
     * @param format The DataFormat.
@@ -97,9 +158,7 @@ public class DataFileModule extends AbstractModule {
     * @return A newly created DataFile.
     */
    public DataFile createDataFile(File file, DataFormat format) {
-      DataFile df = new DataFile(this, file, format);
-      dataFiles.add(new WeakReference(df));
-      return df;
+      return createDataFile(file, format, getDefaultCompression());
    }
 
    /**
@@ -122,6 +181,37 @@ public class DataFileModule extends AbstractModule {
       return defaultDataFormat;
    }
 
+   public void setDefaultCompression(DataCompression defaultCompression) {
+      this.defaultCompression = checkNotNull(defaultCompression);
+   }
+
+   public DataCompression getDefaultCompression() {
+      return defaultCompression;
+   }
+
+   /**
+    * Set the amount of threads that save DataFiles in parallel. Takes effect
+    * the next time this module is loaded.
+    *
+    * @param writerThreads The amount of writer threads, at least 1.
+    */
+   public void setWriterThreads(int writerThreads) {
+      checkArgument(writerThreads > 0);
+      this.writerThreads = writerThreads;
+   }
+
+   public int getWriterThreads() {
+      return writerThreads;
+   }
+
+   /**
+    * @return All DataFiles created by this module that are still in use. Save
+    * statistics can be read from the individual DataFiles.
+    */
+   public List<DataFile> getDataFiles() {
+      return getLiveDataFiles(dataFiles);
+   }
+
    /**
     * Enable auto-saving of scheduled DataFiles. Note that this is called by
     * default during loading. This should only be used to start up auto-saving
@@ -129,9 +219,10 @@ public class DataFileModule extends AbstractModule {
     */
    public void enableAutosaving() {
       disableAutosaving();
-      autoSaveTask = new AutoSaveTask();
-      autoSaveThread = new Thread(autoSaveTask);
-      autoSaveThread.start();
+      autoSave = true;
+      if (scheduler != null) {
+         autoSaveTask = scheduler.scheduleWithFixedDelay(new AutoSaveTask(), autoSaveDelay, autoSaveDelay, TimeUnit.MILLISECONDS);
+      }
    }
 
    /**
@@ -142,30 +233,27 @@ public class DataFileModule extends AbstractModule {
     * @param autoSaveDelay The auto-save delay in milliseconds.
     */
    public void enableAutosaving(long autoSaveDelay) {
-      disableAutosaving();
-      autoSaveTask = new AutoSaveTask();
-      autoSaveThread = new Thread(autoSaveTask);
+      checkArgument(autoSaveDelay > 0);
       this.autoSaveDelay = autoSaveDelay;
-      this.autoSaveThread = new Thread(autoSaveThread);
-      autoSaveThread.start();
+      enableAutosaving();
    }
 
    /**
-    * Cancel any active auto-save.
+    * Cancel any active auto-save. A save that is already in progress is
+    * completed.
     */
    public void disableAutosaving() {
       if (autoSaveTask != null) {
-         autoSaveTask.setCanceled(true);
+         autoSaveTask.cancel(false);
       }
       autoSaveTask = null;
-      autoSaveThread = null;
       autoSave = false;
    }
 
    protected void scheduleAutoSave(DataFile df) {
       checkNotNull(df);
       WeakReference<DataFile> ref = new WeakReference(df);
-      scheduled.add(ref); //No danger in adding to list that is accessed async because we are using .iterator() elsewhere
+      scheduled.add(ref);
    }
 
    protected void unscheduleAutoSaving(DataFile df) {
@@ -188,7 +276,12 @@ public class DataFileModule extends AbstractModule {
    }
 
    /**
-    * Save all scheduled files synchronously.
+    * Save all scheduled files. Files are saved in parallel on the writer
+    * threads, this method returns when all of them have been saved. When
+    * called from a writer thread, the files are saved on that thread.
+    *
+    * @throws DataFileException if any of the files could not be saved. All
+    *                           other files are still saved.
     */
    public void saveAll() throws DataFileException {
       save(dataFiles);
@@ -196,58 +289,262 @@ public class DataFileModule extends AbstractModule {
 
    /**
     * Save all scheduled files asynchronously.
+    *
+    * @return A Future that completes when all files have been saved.
+    */
+   public Future<?> saveAllAsync() {
+      if (scheduler != null) {
+         return scheduler.submit(new DataFileSaveTask());
+      } else {
+         throw new IllegalStateException("Cannot save asynchronously while " + getName() + " is not loaded.");
+      }
+   }
+
+   /**
+    * Load and parse the given files concurrently on the reader threads of the
+    * DataFileModule of the given Application. If it has no loaded
+    * DataFileModule, the files are loaded on the calling thread. See
+    * DataFileUtils.loadContents(DataFormat, File).
+    *
+    * @param application The Application.
+    * @param format      The DataFormat of the files.
+    * @param files       The files.
+    *
+    * @return Futures of the contents of the files, in the same order as the
+    *         given files.
+    */
+   public static List<CompletableFuture<Map<String, Object>>> loadAll(Application application, DataFormat format, List<File> files) {
+      ExecutorService executor = getReaders(application);
+      List<CompletableFuture<Map<String, Object>>> futures = new ArrayList(files.size());
+      for (File file : files) {
+         futures.add(load(executor, () -> DataFileUtils.loadContents(format, file)));
+      }
+      return futures;
+   }
+
+   /**
+    * Load and parse the given resources concurrently on the reader threads of
+    * the DataFileModule of the given Application. If it has no loaded
+    * DataFileModule, the resources are loaded on the calling thread. See
+    * DataFileUtils.loadResource(DataFormat, String).
+    *
+    * @param application   The Application.
+    * @param format        The DataFormat of the resources.
+    * @param resourcePaths The resource paths.
+    *
+    * @return Futures of the contents of the resources, in the same order as
+    *         the given paths.
+    */
+   public static List<CompletableFuture<Map<String, Object>>> loadAllResources(Application application, DataFormat format, List<String> resourcePaths) {
+      ExecutorService executor = getReaders(application);
+      List<CompletableFuture<Map<String, Object>>> futures = new ArrayList(resourcePaths.size());
+      for (String resourcePath : resourcePaths) {
+         futures.add(load(executor, () -> DataFileUtils.loadResource(format, resourcePath)));
+      }
+      return futures;
+   }
+
+   /**
+    * Load the given DataFiles concurrently on the reader threads. If this
+    * module is not loaded, the files are loaded on the calling thread.
+    *
+    * @param dataFiles The DataFiles.
+    *
+    * @return Futures of the contents of the DataFiles, in the same order as
+    *         the given DataFiles.
+    */
+   public List<CompletableFuture<Map<String, Object>>> loadAll(List<DataFile> dataFiles) {
+      ExecutorService executor = readers;
+      List<CompletableFuture<Map<String, Object>>> futures = new ArrayList(dataFiles.size());
+      for (DataFile dataFile : dataFiles) {
+         futures.add(load(executor, dataFile::load));
+      }
+      return futures;
+   }
+
+   private static ExecutorService getReaders(Application application) {
+      return (application.isLoaded(DataFileModule.class)) ? application.getModule(DataFileModule.class).readers : null;
+   }
+
+   /**
+    * Load and parse the given file on one of the reader threads. If this
+    * module is not loaded, the file is loaded on the calling thread.
+    *
+    * @param format The DataFormat of the file.
+    * @param file   The file.
+    *
+    * @return A Future of the contents of the file.
+    */
+   public CompletableFuture<Map<String, Object>> loadAsync(DataFormat format, File file) {
+      return load(() -> DataFileUtils.loadContents(format, file));
+   }
+
+   /**
+    * Load the given DataFile on one of the reader threads. If this module is
+    * not loaded, the file is loaded on the calling thread.
+    *
+    * @param dataFile The DataFile.
+    *
+    * @return A Future of the contents of the DataFile.
+    */
+   public CompletableFuture<Map<String, Object>> loadAsync(DataFile dataFile) {
+      return load(dataFile::load);
+   }
+
+   /**
+    * Load and parse the given resource on one of the reader threads. If this
+    * module is not loaded, the resource is loaded on the calling thread.
+    *
+    * @param format       The DataFormat of the resource.
+    * @param resourcePath The resource path.
+    *
+    * @return A Future of the contents of the resource.
+    */
+   public CompletableFuture<Map<String, Object>> loadResourceAsync(DataFormat format, String resourcePath) {
+      return load(() -> DataFileUtils.loadResource(format, resourcePath));
+   }
+
+   /**
+    * Wait for the given Future returned by one of the asynchronous load
+    * methods and return its contents.
+    *
+    * @param future The Future.
+    *
+    * @return The contents.
+    * @throws DataFileException if the contents could not be loaded.
     */
-   public void saveAllAsync() {
-      new Thread(new DataFileSaveTask()).start();
+   public static Map<String, Object> getLoaded(Future<Map<String, Object>> future) throws DataFileException {
+      try {
+         return future.get();
+      } catch (ExecutionException ex) {
+         Throwable cause = ex.getCause();
+         if (cause instanceof DataFileException) {
+            throw (DataFileException) cause;
+         } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else {
+            throw new DataFileException(cause);
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new DataFileException("Interrupted while waiting for a file to be loaded.", ex);
+      }
+   }
+
+   private CompletableFuture<Map<String, Object>> load(ContentsLoader loader) {
+      return load(readers, loader);
+   }
+
+   /* Loads on the calling thread if there is no executor. */
+   private static CompletableFuture<Map<String, Object>> load(ExecutorService executor, ContentsLoader loader) {
+      CompletableFuture<Map<String, Object>> future = new CompletableFuture();
+      Runnable task = () -> {
+         try {
+            future.complete(loader.load());
+         } catch (DataFileException | RuntimeException ex) {
+            future.completeExceptionally(ex);
+         }
+      };
+      if (executor != null) {
+         executor.execute(task);
+      } else {
+         task.run();
+      }
+      return future;
+   }
+
+   protected Future<?> saveAsync(DataFile df, Object obj) {
+      ExecutorService executor = writers;
+      if (executor != null) {
+         return executor.submit(() -> {
+            df.save(obj);
+            return null;
+         });
+      } else {
+         throw new IllegalStateException("Cannot save asynchronously while " + getName() + " is not loaded.");
+      }
+   }
+
+   private void save(Queue<WeakReference<DataFile>> toSave) throws DataFileException {
+      List<DataFile> files = getLiveDataFiles(toSave);
+      ExecutorService executor = writers;
+      if (executor == null || files.size() == 1 || Boolean.TRUE.equals(writerThread.get())) {
+         //Not loaded, nothing to gain from handing it off, or waiting for the writers from a writer would deadlock
+         for (DataFile df : files) {
+            df.save();
+         }
+         return;
+      }
+      List<Future<?>> futures = new ArrayList(files.size());
+      for (DataFile df : files) {
+         futures.add(executor.submit(() -> {
+            df.save();
+            return null;
+         }));
+      }
+      DataFileException failure = null;
+      for (Future<?> future : futures) {
+         try {
+            future.get();
+         } catch (ExecutionException ex) {
+            if (failure == null) {
+               failure = (ex.getCause() instanceof DataFileException) ? (DataFileException) ex.getCause() : new DataFileException(ex.getCause());
+            }
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataFileException("Interrupted while waiting for files to be saved.", ex);
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
    }
 
-   private void save(List<WeakReference<DataFile>> toSave) throws DataFileException {
-      Iterator<WeakReference<DataFile>> it = toSave.iterator();
+   private List<DataFile> getLiveDataFiles(Collection<WeakReference<DataFile>> refs) {
+      List<DataFile> files = new ArrayList(refs.size());
+      Iterator<WeakReference<DataFile>> it = refs.iterator();
       while (it.hasNext()) {
          WeakReference<DataFile> ref = it.next();
-         if (ref != null) {
-            DataFile df = ref.get();
-            if (df != null) {
-               df.save();
-            } else {
-               it.remove();
-            }
+         DataFile df = (ref != null) ? ref.get() : null;
+         if (df != null) {
+            files.add(df);
          } else {
             it.remove();
          }
       }
+      return files;
    }
 
    private void autosave() throws DataFileException {
       save(scheduled);
    }
 
-   public class AutoSaveTask implements Runnable {
+   private void drain(ExecutorService executor) {
+      if (executor != null) {
+         executor.shutdown();
+         try {
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+               Logger.getLogger(DataFileModule.class.getName()).log(Level.SEVERE, "Timed out waiting for data files to be saved.");
+               executor.shutdownNow();
+            }
+         } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
 
-      private boolean canceled = false;
+   public class AutoSaveTask implements Runnable {
 
       @Override
       public void run() {
-         while (autoSave) {
-            try {
-               Thread.sleep(autoSaveDelay);
-            } catch (InterruptedException ex) {
-               break;
-            }
-            if (autoSave && !canceled) {
-               try {
-                  autosave();
-               } catch (DataFileException ex) {
-                  Logger.getLogger(DataFileModule.class.getName()).log(Level.SEVERE, null, ex);
-               }
-            }
+         try {
+            autosave();
+         } catch (DataFileException ex) {
+            Logger.getLogger(DataFileModule.class.getName()).log(Level.SEVERE, null, ex);
          }
       }
 
-      public void setCanceled(boolean canceled) {
-         this.canceled = canceled;
-      }
-
    }
 
    public class DataFileSaveTask implements Runnable {
@@ -263,4 +560,38 @@ public class DataFileModule extends AbstractModule {
 
    }
 
+   private interface ContentsLoader {
+
+      public Map<String, Object> load() throws DataFileException;
+
+   }
+
+   private static class DataFileThreadFactory implements ThreadFactory {
+
+      private final String name;
+      private final ThreadLocal<Boolean> marker;
+      private final AtomicInteger count = new AtomicInteger();
+
+      private DataFileThreadFactory(String name, ThreadLocal<Boolean> marker) {
+         this.name = name;
+         this.marker = marker;
+      }
+
+      private DataFileThreadFactory(String name) {
+         this(name, null);
+      }
+
+      @Override
+      public Thread newThread(Runnable r) {
+         Runnable task = (marker != null) ? () -> {
+            marker.set(true);
+            r.run();
+         } : r;
+         Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+
+   }
+
 }
@@ -1,11 +1,21 @@
 package nl.larsdenbakker.datafile;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -17,7 +27,8 @@ public class DataFileUtils {
    /**
     * Load the contents of a File with the given DataFormat.
     * Content is returned as String-Object mappings. If no
-    * file could be found, an empty Map is returned.
+    * file could be found, an empty Map is returned. Compressed
+    * files are decompressed automatically.
     *
     * @param format The DataFormat.
     * @param file   The File.
@@ -26,8 +37,8 @@ public class DataFileUtils {
     * @throws DataFileException if the file could not be read.
     */
    public static Map<String, Object> loadContents(DataFormat format, File file) throws DataFileException {
-      try {
-         return format.getObjectMapper().readValue(file, Map.class);
+      try (InputStream input = new FileInputStream(file)) {
+         return loadContents(format, input);
       } catch (FileNotFoundException ex) {
          return new HashMap();
       } catch (IOException ex) {
@@ -53,7 +64,8 @@ public class DataFileUtils {
    /**
     * Load the contents of an InputStream with the given DataFormat.
     * Content is returned as String-Object mappings. If no
-    * file could be found, an empty Map is returned.
+    * file could be found, an empty Map is returned. Compressed
+    * streams are decompressed automatically.
     *
     * @param format The DataFormat.
     * @param input  The input stream.
@@ -62,7 +74,7 @@ public class DataFileUtils {
     * @throws IOException if the InputStream could not be read.
     */
    public static Map<String, Object> loadContents(DataFormat format, InputStream input) throws IOException {
-      return format.getObjectMapper().readValue(input, Map.class);
+      return format.getObjectMapper().readValue(DataCompression.decompress(input), Map.class);
    }
 
    /**
@@ -80,6 +92,118 @@ public class DataFileUtils {
       return format.getObjectMapper().readValue(url, Map.class);
    }
 
+   /**
+    * Load the contents of a File with the given DataFormat by mapping the file
+    * into memory instead of reading it through a stream. This is intended for
+    * large, read-mostly files. Content is returned as String-Object mappings.
+    * If no file could be found, an empty Map is returned.
+    *
+    * If lazy is true and the DataFormat reports byte offsets (JSON), only the
+    * byte ranges of the top-level keys are read and each top-level value is
+    * parsed the first time it is accessed. Formats without byte offsets (YAML)
+    * are always parsed completely, as are compressed files. The returned Map
+    * is then a LazyContentsMap that keeps the file mapped until all values
+    * have been parsed. DataFile.save(Object) replaces the file instead of
+    * overwriting it, so saving does not change the mapped contents.
+    *
+    * @param format The DataFormat.
+    * @param file   The File.
+    * @param lazy   Whether or not top-level values should be parsed on first access.
+    *
+    * @return The non-null contents of the file.
+    * @throws DataFileException if the file could not be read.
+    */
+   public static Map<String, Object> loadMappedContents(DataFormat format, File file, boolean lazy) throws DataFileException {
+      if (!file.exists()) {
+         return new HashMap();
+      }
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         long size = channel.size();
+         if (size == 0) {
+            return new HashMap();
+         } else if (size > Integer.MAX_VALUE) {
+            throw new DataFileException("File is too large to be mapped into memory.").addFailedAction("Reading file " + file.getPath());
+         }
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+         ObjectMapper mapper = format.getObjectMapper();
+         byte[] header = new byte[(int) Math.min(size, DataCompression.HEADER_SIZE)];
+         buffer.duplicate().get(header);
+         if (DataCompression.detect(header, header.length) != DataCompression.NONE) {
+            return loadContents(format, new ByteBufferBackedInputStream(buffer));
+         }
+         if (lazy) {
+            Map<String, long[]> ranges = getTopLevelRanges(mapper, buffer.duplicate(), size);
+            if (ranges != null) {
+               return new LazyContentsMap(file, mapper, buffer, ranges);
+            }
+         }
+         return mapper.readValue(new ByteBufferBackedInputStream(buffer), Map.class);
+      } catch (IOException ex) {
+         throw new DataFileException("Could not read file.", ex).addFailedAction("Reading file " + file.getPath());
+      }
+   }
+
+   /**
+    * Identical to loadMappedContents(format, file, false).
+    */
+   public static Map<String, Object> loadMappedContents(DataFormat format, File file) throws DataFileException {
+      return loadMappedContents(format, file, false);
+   }
+
+   /**
+    * Scan the top-level object in the given buffer and record the byte range of
+    * the value of every top-level key, without parsing the values themselves.
+    *
+    * @return The byte ranges mapped by key, or null if the parser of the given
+    * mapper does not report byte offsets.
+    */
+   private static Map<String, long[]> getTopLevelRanges(ObjectMapper mapper, ByteBuffer buffer, long size) throws IOException {
+      Map<String, long[]> ranges = new LinkedHashMap();
+      try (JsonParser parser = mapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer))) {
+         if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Top-level value is not an object.");
+         }
+         String pendingKey = null;
+         long pendingStart = -1;
+         JsonToken token;
+         while ((token = parser.nextToken()) != null) {
+            long offset = parser.getTokenLocation().getByteOffset();
+            if (offset < 0) {
+               return null;
+            }
+            if (pendingKey != null) {
+               //Values end where the next key or the closing brace starts, minus the separators in between
+               ranges.put(pendingKey, new long[]{pendingStart, trimSeparators(buffer, pendingStart, offset)});
+               pendingKey = null;
+            }
+            if (token == JsonToken.END_OBJECT) {
+               break;
+            } else if (token == JsonToken.FIELD_NAME) {
+               pendingKey = parser.getCurrentName();
+               parser.nextToken();
+               pendingStart = parser.getTokenLocation().getByteOffset();
+               parser.skipChildren();
+            }
+         }
+         if (pendingKey != null) {
+            ranges.put(pendingKey, new long[]{pendingStart, trimSeparators(buffer, pendingStart, size)});
+         }
+      }
+      return ranges;
+   }
+
+   private static long trimSeparators(ByteBuffer buffer, long start, long end) {
+      while (end > start) {
+         byte b = buffer.get((int) end - 1);
+         if (b == ',' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            end--;
+         } else {
+            break;
+         }
+      }
+      return end;
+   }
+
    /**
     * Load the contents of a resource (a file inside the jar) with the given DataFormat.
     * Content is returned as String-Object mappings. If no
@@ -0,0 +1,190 @@
+package nl.larsdenbakker.datafile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * A Map of the top-level contents of a memory-mapped data file. Only the
+ * byte ranges of the top-level values are known upon creation, a value is
+ * parsed the first time it is accessed. Once all values have been parsed the
+ * reference to the mapped buffer is dropped. Like a HashMap, this class is
+ * not thread-safe.
+ *
+ * A value that can not be parsed keeps its byte range, so accessing it again
+ * fails again. The methods of the Map interface report such failures with an
+ * UncheckedIOException, use load(String) or loadAll() to receive them as a
+ * DataFileException instead.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class LazyContentsMap extends AbstractMap<String, Object> {
+
+   private final Map<String, Object> contents;
+   private final File file;
+   private final ObjectMapper mapper;
+   private ByteBuffer buffer;
+   private int unparsed;
+
+   LazyContentsMap(File file, ObjectMapper mapper, ByteBuffer buffer, Map<String, long[]> ranges) {
+      this.file = file;
+      this.mapper = mapper;
+      this.buffer = buffer;
+      this.contents = new LinkedHashMap(ranges.size() * 2);
+      for (Entry<String, long[]> entry : ranges.entrySet()) {
+         contents.put(entry.getKey(), new Range(entry.getValue()[0], entry.getValue()[1]));
+      }
+      this.unparsed = ranges.size();
+   }
+
+   @Override
+   public Object get(Object key) {
+      try {
+         return (key instanceof String) ? load((String) key) : null;
+      } catch (DataFileException ex) {
+         throw new UncheckedIOException(ex.getMessage(), (IOException) ex.getCause());
+      }
+   }
+
+   /**
+    * Get the value of the given key, parsing it if it has not been parsed
+    * yet.
+    *
+    * @param key The key.
+    *
+    * @return The value, or null if there is no value for the given key.
+    * @throws DataFileException if the value could not be parsed.
+    */
+   public Object load(String key) throws DataFileException {
+      Object obj = contents.get(key);
+      if (obj instanceof Range) {
+         obj = parse(key, (Range) obj);
+         contents.put(key, obj);
+         unparsed--;
+         releaseBufferIfParsed();
+      }
+      return obj;
+   }
+
+   /**
+    * Parse all values that have not been parsed yet and drop the reference
+    * to the mapped buffer.
+    *
+    * @throws DataFileException if a value could not be parsed. The values
+    *                           that were parsed before are kept.
+    */
+   public void loadAll() throws DataFileException {
+      if (unparsed > 0) {
+         for (Entry<String, Object> entry : contents.entrySet()) {
+            if (entry.getValue() instanceof Range) {
+               entry.setValue(parse(entry.getKey(), (Range) entry.getValue()));
+               unparsed--;
+            }
+         }
+         releaseBufferIfParsed();
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      return contents.containsKey(key);
+   }
+
+   @Override
+   public int size() {
+      return contents.size();
+   }
+
+   @Override
+   public Set<String> keySet() {
+      return contents.keySet();
+   }
+
+   @Override
+   public Object put(String key, Object value) {
+      Object previous = contents.put(key, value);
+      if (previous instanceof Range) {
+         unparsed--;
+         releaseBufferIfParsed();
+         return null;
+      }
+      return previous;
+   }
+
+   @Override
+   public Object remove(Object key) {
+      Object previous = contents.remove(key);
+      if (previous instanceof Range) {
+         unparsed--;
+         releaseBufferIfParsed();
+         return null;
+      }
+      return previous;
+   }
+
+   @Override
+   public void clear() {
+      contents.clear();
+      unparsed = 0;
+      buffer = null;
+   }
+
+   @Override
+   public Collection<Object> values() {
+      parseAll();
+      return contents.values();
+   }
+
+   @Override
+   public Set<Entry<String, Object>> entrySet() {
+      parseAll();
+      return contents.entrySet();
+   }
+
+   private void parseAll() {
+      try {
+         loadAll();
+      } catch (DataFileException ex) {
+         throw new UncheckedIOException(ex.getMessage(), (IOException) ex.getCause());
+      }
+   }
+
+   private Object parse(String key, Range range) throws DataFileException {
+      ByteBuffer slice = buffer.duplicate();
+      slice.limit((int) range.end);
+      slice.position((int) range.start);
+      try {
+         return mapper.readValue(new ByteBufferBackedInputStream(slice), Object.class);
+      } catch (IOException ex) {
+         throw new DataFileException("Could not parse lazily loaded value.", ex).addFailedAction("Reading " + key + " of file " + file.getPath());
+      }
+   }
+
+   private void releaseBufferIfParsed() {
+      if (unparsed == 0) {
+         buffer = null;
+      }
+   }
+
+   /* The byte range of a value that has not been parsed yet. */
+   private static class Range {
+
+      private final long start;
+      private final long end;
+
+      private Range(long start, long end) {
+         this.start = start;
+         this.end = end;
+      }
+
+   }
+
+}
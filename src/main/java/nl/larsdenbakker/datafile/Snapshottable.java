@@ -0,0 +1,21 @@
+package nl.larsdenbakker.datafile;
+
+/**
+ * An Object that can provide a consistent point-in-time view of itself while
+ * it continues to be modified. When a DataFile saves a Snapshottable, a
+ * snapshot is taken and serialized instead of the live Object.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public interface Snapshottable {
+
+   /**
+    * Capture the current state of this Object. Taking a snapshot should be
+    * cheap, the returned Object must not reflect modifications made after it
+    * was taken.
+    *
+    * @return The snapshot.
+    */
+   public Object takeSnapshot();
+
+}
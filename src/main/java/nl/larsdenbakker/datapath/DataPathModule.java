@@ -39,6 +39,7 @@ public class DataPathModule extends AbstractModule {
    
    private final Map<Class, DataPathResolver> pathResolvers = new HashMap();
    private final DataPathRoot dataPathRoot;
+   private final DataPathStats stats = new DataPathStats();
    
    private DataPathConverter dataPathConverter;
    private DataReferenceConverter dataReferenceConverter;
@@ -129,7 +130,16 @@ public class DataPathModule extends AbstractModule {
       checkNotNull(start);
       checkNotNull(keys);
       checkArgument(keys.length != 0);
-      
+      stats.recordResolution(start.getClass(), keys.length);
+      try {
+         return _resolveKeys(start, keys);
+      } catch (DataPathResolveException ex) {
+         stats.recordFailure();
+         throw ex;
+      }
+   }
+   
+   private List<Object> _resolveKeys(Object start, String[] keys) throws DataPathResolveException {
       Object dataObject = start;
       List<Object> history = new ArrayList();
       for (int i = 0; i < keys.length; i++) {
@@ -209,4 +219,11 @@ public class DataPathModule extends AbstractModule {
       return dataPathRoot;
    }
    
+   /**
+    * @return The counters of the DataPaths resolved by this module.
+    */
+   public DataPathStats getStats() {
+      return stats;
+   }
+   
 }
@@ -0,0 +1,92 @@
+package nl.larsdenbakker.datapath;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the DataPaths resolved by a DataPathModule. Resolutions are
+ * counted per type of the object the path started from, together with the
+ * total amount of keys resolved and the amount of failed resolutions.
+ *
+ * Counting is enabled unless the system property lbtools.datapath.stats.disabled
+ * is set to true. The property is read once, when counting is disabled the
+ * counting methods are empty and are removed by the JIT compiler.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class DataPathStats {
+
+   public static final boolean ENABLED = !Boolean.getBoolean("lbtools.datapath.stats.disabled");
+
+   private final ConcurrentMap<Class<?>, LongAdder> resolutions = new ConcurrentHashMap();
+   private final LongAdder resolutionCount = new LongAdder();
+   private final LongAdder totalDepth = new LongAdder();
+   private final LongAdder failures = new LongAdder();
+
+   protected DataPathStats() {
+   }
+
+   protected void recordResolution(Class<?> rootType, int depth) {
+      if (ENABLED) {
+         LongAdder counter = resolutions.get(rootType);
+         if (counter == null) {
+            counter = resolutions.computeIfAbsent(rootType, (Class<?> type) -> new LongAdder());
+         }
+         counter.increment();
+         resolutionCount.increment();
+         totalDepth.add(depth);
+      }
+   }
+
+   protected void recordFailure() {
+      if (ENABLED) {
+         failures.increment();
+      }
+   }
+
+   /**
+    * @return The amount of resolutions per type of the object the path
+    *         started from, mapped by type name in alphabetical order.
+    */
+   public Map<String, Long> getResolutionCounts() {
+      Map<String, Long> counts = new TreeMap();
+      for (Map.Entry<Class<?>, LongAdder> entry : resolutions.entrySet()) {
+         counts.put(entry.getKey().getName(), entry.getValue().sum());
+      }
+      return counts;
+   }
+
+   /**
+    * @return The amount of resolutions, including the failed ones.
+    */
+   public long getResolutionCount() {
+      return resolutionCount.sum();
+   }
+
+   /**
+    * @return The average amount of keys in a resolved path, or 0 if no path
+    *         has been resolved.
+    */
+   public double getAverageDepth() {
+      long count = resolutionCount.sum();
+      return (count != 0) ? (double) totalDepth.sum() / count : 0;
+   }
+
+   public long getFailures() {
+      return failures.sum();
+   }
+
+   /**
+    * Reset all counters to zero.
+    */
+   public void reset() {
+      resolutions.clear();
+      resolutionCount.reset();
+      totalDepth.reset();
+      failures.reset();
+   }
+
+}
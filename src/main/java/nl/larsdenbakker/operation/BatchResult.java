@@ -0,0 +1,107 @@
+package nl.larsdenbakker.operation;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of executing one operation for a batch of variable sets. The
+ * outcome of every item is stored as a single bit, a message is only kept
+ * for items that failed.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class BatchResult {
+
+   private final int size;
+   //The index of the first item of the part of the batch this result was created for
+   private final int offset;
+   private final BitSet succeeded;
+   private final Map<Integer, String> failures;
+
+   /**
+    * Create the result of the part of a batch from the given index up to
+    * the given index. Results of later parts are merged into the result of
+    * the first part.
+    *
+    * @param size The amount of items in the batch.
+    * @param from The index of the first item of the part, inclusive.
+    * @param to   The index of the last item of the part, exclusive.
+    */
+   protected BatchResult(int size, int from, int to) {
+      this.size = size;
+      this.offset = from;
+      this.succeeded = new BitSet(to - from);
+      this.failures = new TreeMap();
+   }
+
+   protected void setSucceeded(int index) {
+      succeeded.set(index - offset);
+   }
+
+   protected void setFailed(int index, String message) {
+      if (message != null) {
+         failures.put(index, message);
+      }
+   }
+
+   /* Merge the results of a part of the batch into this result. */
+   protected void merge(BatchResult part) {
+      int shift = part.offset - offset;
+      for (int i = part.succeeded.nextSetBit(0); i >= 0; i = part.succeeded.nextSetBit(i + 1)) {
+         succeeded.set(i + shift);
+      }
+      failures.putAll(part.failures);
+   }
+
+   /**
+    * @return The amount of items in the batch.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * @param index The index of the item in the batch.
+    *
+    * @return Whether or not the item was executed successfully.
+    */
+   public boolean hasSucceeded(int index) {
+      return index >= offset && succeeded.get(index - offset);
+   }
+
+   /**
+    * @return Whether or not all items were executed successfully.
+    */
+   public boolean hasSucceeded() {
+      return getSuccessCount() == size;
+   }
+
+   public int getSuccessCount() {
+      return succeeded.cardinality();
+   }
+
+   public int getFailureCount() {
+      return size - getSuccessCount();
+   }
+
+   /**
+    * @param index The index of the item in the batch.
+    *
+    * @return The first message of the failed item, or null if the item
+    *         succeeded or failed without a message.
+    */
+   public String getFailureMessage(int index) {
+      return failures.get(index);
+   }
+
+   /**
+    * @return The first message of every failed item that has one, mapped by
+    *         the index of the item, in order.
+    */
+   public Map<Integer, String> getFailureMessages() {
+      return Collections.unmodifiableMap(failures);
+   }
+
+}
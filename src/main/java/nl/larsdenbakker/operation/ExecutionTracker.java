@@ -0,0 +1,66 @@
+package nl.larsdenbakker.operation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+
+/**
+ * Keeps track of which threads are executing operations, and which
+ * OperationTemplates they are executing. The executions of a thread are
+ * described by the keys of the templates from the outermost to the
+ * innermost execution, separated by semicolons. Nested executions that
+ * were started on another thread only describe the executions on that
+ * thread.
+ *
+ * An OperationModule only tracks executions while a tracker is acquired,
+ * see OperationModule.acquireExecutionTracker().
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ExecutionTracker {
+
+   public static final char SEPARATOR = ';';
+
+   private final ConcurrentMap<Thread, String> executions = new ConcurrentHashMap();
+
+   protected ExecutionTracker() {
+   }
+
+   /**
+    * Record that the current thread started executing the given template.
+    *
+    * @param template The template.
+    *
+    * @return The executions of the current thread before the given one, to
+    *         be passed to exit(String).
+    */
+   protected String enter(OperationTemplate template) {
+      Thread thread = Thread.currentThread();
+      String previous = executions.get(thread);
+      executions.put(thread, (previous != null) ? previous + SEPARATOR + template.getKey() : template.getKey());
+      return previous;
+   }
+
+   /**
+    * Record that the current thread finished executing its innermost template.
+    *
+    * @param previous The value returned by the matching enter(OperationTemplate).
+    */
+   protected void exit(String previous) {
+      if (previous != null) {
+         executions.put(Thread.currentThread(), previous);
+      } else {
+         executions.remove(Thread.currentThread());
+      }
+   }
+
+   /**
+    * @return The threads that are executing operations, mapped to a
+    *         description of their executions.
+    */
+   public Map<Thread, String> getExecutions() {
+      return new ConcurrentHashMap(executions);
+   }
+
+}
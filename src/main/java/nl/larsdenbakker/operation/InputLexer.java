@@ -0,0 +1,117 @@
+package nl.larsdenbakker.operation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written lexer for the command and operation input language. Input is
+ * scanned once, character by character, without regular expressions. Tokens
+ * are separated by whitespace, text between double quotes belongs to one
+ * token and the quotes themselves are removed. Quotes may appear in the
+ * middle of a token, so key="some value" is lexed as key=some value.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public final class InputLexer {
+
+   public static final char QUOTE = '"';
+   public static final char ASSIGNMENT = '=';
+   public static final char REFERENCE = '$';
+
+   private static final String[] EMPTY = new String[0];
+
+   private InputLexer() {
+   }
+
+   /**
+    * Split the given input into tokens on whitespace, except for whitespace
+    * between double quotes. An unclosed quote extends to the end of the input.
+    *
+    * @param input The input.
+    *
+    * @return The tokens, without quotes.
+    */
+   public static String[] tokenize(String input) {
+      return lex(input, true);
+   }
+
+   /**
+    * Split the given input into words on whitespace. Quotes have no special
+    * meaning.
+    *
+    * @param input The input.
+    *
+    * @return The words.
+    */
+   public static String[] splitWords(String input) {
+      return lex(input, false);
+   }
+
+   private static String[] lex(String input, boolean quotes) {
+      int length = input.length();
+      List<String> tokens = null;
+      int i = 0;
+      while (i < length) {
+         while (i < length && Character.isWhitespace(input.charAt(i))) {
+            i++;
+         }
+         if (i == length) {
+            break;
+         }
+         int start = i;
+         boolean quoted = false;
+         boolean inQuotes = false;
+         while (i < length) {
+            char c = input.charAt(i);
+            if (quotes && c == QUOTE) {
+               quoted = true;
+               inQuotes = !inQuotes;
+            } else if (!inQuotes && Character.isWhitespace(c)) {
+               break;
+            }
+            i++;
+         }
+         if (tokens == null) {
+            tokens = new ArrayList(4);
+         }
+         tokens.add((quoted) ? unquote(input, start, i) : input.substring(start, i));
+      }
+      return (tokens != null) ? tokens.toArray(new String[tokens.size()]) : EMPTY;
+   }
+
+   private static String unquote(String input, int start, int end) {
+      StringBuilder sb = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+         char c = input.charAt(i);
+         if (c != QUOTE) {
+            sb.append(c);
+         }
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @param token A token of the form key=value.
+    *
+    * @return The index of the assignment in the token, or -1 if the token
+    *         does not contain exactly one assignment with a non-empty key and
+    *         value.
+    */
+   public static int indexOfAssignment(String token) {
+      int index = token.indexOf(ASSIGNMENT);
+      if (index <= 0 || index == token.length() - 1 || token.indexOf(ASSIGNMENT, index + 1) != -1) {
+         return -1;
+      }
+      return index;
+   }
+
+   /**
+    * @param token A token.
+    *
+    * @return Whether or not the token is a reference to a variable ($key).
+    */
+   public static boolean isReference(String token) {
+      return token.length() > 1 && token.charAt(0) == REFERENCE;
+   }
+
+}
@@ -1,14 +1,14 @@
 package nl.larsdenbakker.operation;
 
+import nl.larsdenbakker.operation.metrics.OperationMetrics;
+import nl.larsdenbakker.operation.template.ExecutionPlan;
 import nl.larsdenbakker.operation.template.OperationTemplate;
 import nl.larsdenbakker.operation.operations.Operation;
-import com.google.common.collect.Lists;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import nl.larsdenbakker.storage.MemoryStorage;
 import nl.larsdenbakker.storage.Storage;
-import nl.larsdenbakker.operation.variables.Variable;
 import nl.larsdenbakker.util.TextUtils;
 import nl.larsdenbakker.app.ApplicationUser;
 import nl.larsdenbakker.app.InvalidInputException;
@@ -19,19 +19,71 @@ import nl.larsdenbakker.util.OperationResponse;
  * Operation execution. Contains information about the executor of the Operation, OperationTemplate being
  * executed and the Operation's variables.
  *
+ * Nested executions should be started through enter(OperationTemplate). The
+ * contexts of nested executions are frames on a stack that is owned by the
+ * outermost context created through the constructor. A frame, including
+ * its storage, is reused by the next nested execution at the same depth and
+ * the stack itself is reused by the next execution on the same thread once
+ * its owner has finished. A frame must therefore not be used after its
+ * execution has finished. A stack belongs to a single thread, contexts for
+ * concurrent executions should be created through the constructor.
+ *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
 public class OperationContext {
 
-   private final OperationContext parent;
+   private static final int INITIAL_DEPTH = 8;
+   //The frame stack that is reused by the next execution on this thread
+   private static final ThreadLocal<FrameStack> IDLE_FRAMES = new ThreadLocal();
+
+   private OperationContext parent;
+   private int depth;
    protected Storage storage;
-   private final OperationTemplate template;
+   private OperationTemplate template;
 
    private Operation operation;
 
+   private final boolean pooled;
+   private FrameStack frames;
+   private boolean active = false;
+
    public OperationContext(OperationContext parent, OperationTemplate template) {
+      this(parent, template, false);
+   }
+
+   private OperationContext(OperationContext parent, OperationTemplate template, boolean pooled) {
       this.parent = parent;
+      this.depth = (parent != null) ? parent.depth + 1 : 0;
       this.template = template;
+      this.pooled = pooled;
+   }
+
+   /**
+    * Create the context of an execution nested in the execution of this
+    * context. The returned context is a reused frame, see the description
+    * of this class.
+    *
+    * @param template The OperationTemplate of the nested execution.
+    *
+    * @return The context of the nested execution.
+    */
+   public OperationContext enter(OperationTemplate template) {
+      if (frames == null) {
+         frames = FrameStack.acquire(depth);
+      }
+      return frames.enter(this, template);
+   }
+
+   private void reset(OperationContext parent, OperationTemplate template) {
+      this.parent = parent;
+      this.depth = (parent != null) ? parent.depth + 1 : 0;
+      this.template = template;
+      this.operation = null;
+      if (storage instanceof MemoryStorage) {
+         ((MemoryStorage) storage).clear();
+      } else {
+         storage = null;
+      }
    }
 
    public OperationTemplate getOperationTemplate() {
@@ -54,7 +106,7 @@ public class OperationContext {
       if (storage != null) {
          return storage;
       } else {
-         storage = MemoryStorage.create(getOperationHandler().getConversionModule());
+         storage = template.getExecutionPlan().createStorage(getOperationHandler().getConversionModule());
          return storage;
       }
    }
@@ -77,30 +129,48 @@ public class OperationContext {
     * @return The response of the operation.
     */
    public OperationResponse execute() {
+      active = true;
+      OperationMetrics metrics = getOperationHandler().getMetrics();
+      ExecutionTracker tracker = getOperationHandler().getExecutionTracker();
+      String previousExecutions = (tracker != null) ? tracker.enter(template) : null;
+      boolean timed = metrics.isEnabled();
+      long start = (timed) ? System.nanoTime() : 0;
       try {
+         ExecutionPlan plan = template.getExecutionPlan();
          Storage storage = getStorage();
          Storage parentStorage = (parent != null) ? parent.getStorage() : getStorage();
-         for (Variable variable : template.getVariables()) {
-            variable.mapVariableToStorage(parentStorage, storage);
-         }
-         registerDefaults(storage);
+         plan.bind(parentStorage, storage, getExecutor());
          try {
-            operation = template.createInstance(this, storage);
-            return operation.execute();
+            operation = plan.instantiate(this, storage);
          } catch (InvalidInputException ex) {
+            if (timed) {
+               metrics.getStats(template).record(System.nanoTime() - start, 0, false);
+            }
             return OperationResponse.failed("An error occurred when executing this operation: " + ex.getMessage());
          }
+         long constructed = (timed) ? System.nanoTime() : 0;
+         OperationResponse response = operation.execute();
+         if (timed) {
+            metrics.getStats(template).record(constructed - start, System.nanoTime() - constructed, response.hasSucceeded());
+         }
+         return response;
       } catch (Exception ex) {
-         getOperationHandler().getParentApplication().getConsole();
+         if (timed) {
+            metrics.getStats(template).recordError(System.nanoTime() - start);
+         }
          return OperationResponse.failed("An unknown error occurred when executing this operation.");
+      } finally {
+         if (tracker != null) {
+            tracker.exit(previousExecutions);
+         }
+         active = false;
+         if (!pooled && frames != null) {
+            frames.release();
+            frames = null;
+         }
       }
    }
 
-   private void registerDefaults(Storage storage) {
-      storage.set("executor", getExecutor());
-      storage.set(Operation.KEY_NAME, getOperationTemplate().getKey());
-   }
-
    /**
     * Replace any variables (prefixed with a $) in the given
     * String with variable values of this OperationContext.
@@ -110,19 +180,9 @@ public class OperationContext {
     * @return The String with variables replaced.
     */
    public String replaceVariables(String string) {
-      String[] split = TextUtils.splitOnSpaces(string);
-      StringBuilder sb = new StringBuilder(24);
-      for (String str : split) {
-         if (str.startsWith("$")) {
-            String temp = str.substring(1);
-            if (storage.isSet(temp)) {
-               str = TextUtils.getDescription(storage.get(temp));
-            }
-         }
-         sb.append(str).append(' ');
-      }
-      sb.deleteCharAt(sb.length() - 1);
-      return sb.toString();
+      return template.getExecutionPlan().getInterpolation(string).format((String key) -> {
+         return (storage.isSet(key)) ? TextUtils.getDescription(storage.get(key)) : null;
+      });
    }
 
    /**
@@ -130,13 +190,62 @@ public class OperationContext {
     *         context.
     */
    public List<Operation> getExecutionTrail() {
+      Operation[] trail = new Operation[depth + 1];
       OperationContext context = this;
-      List<Operation> trail = new ArrayList();
-      while (context != null) {
-         trail.add(context.getOperation());
+      for (int i = depth; i >= 0 && context != null; i--) {
+         trail[i] = context.getOperation();
          context = context.getParent();
       }
-      return Lists.reverse(trail);
+      return Arrays.asList(trail);
+   }
+
+   /* The reusable contexts of the executions nested in the execution of an owning context, indexed by depth. */
+   private static class FrameStack {
+
+      private OperationContext[] frames = new OperationContext[INITIAL_DEPTH];
+      private int ownerDepth;
+
+      private static FrameStack acquire(int ownerDepth) {
+         FrameStack stack = IDLE_FRAMES.get();
+         if (stack != null) {
+            IDLE_FRAMES.set(null);
+         } else {
+            stack = new FrameStack();
+         }
+         stack.ownerDepth = ownerDepth;
+         return stack;
+      }
+
+      private OperationContext enter(OperationContext parent, OperationTemplate template) {
+         int index = parent.depth - ownerDepth;
+         if (index >= frames.length) {
+            frames = Arrays.copyOf(frames, Math.max(index + 1, frames.length * 2));
+         }
+         OperationContext frame = frames[index];
+         if (frame == null) {
+            frame = new OperationContext(parent, template, true);
+            frame.frames = this;
+            frames[index] = frame;
+         } else if (frame.active) {
+            //Only one nested execution per depth can use the frame
+            return new OperationContext(parent, template);
+         } else {
+            frame.reset(parent, template);
+         }
+         return frame;
+      }
+
+      private void release() {
+         for (OperationContext frame : frames) {
+            if (frame != null) {
+               frame.reset(null, null);
+            }
+         }
+         if (IDLE_FRAMES.get() == null) {
+            IDLE_FRAMES.set(this);
+         }
+      }
+
    }
 
 }
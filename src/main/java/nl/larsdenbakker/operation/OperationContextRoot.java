@@ -2,7 +2,6 @@ package nl.larsdenbakker.operation;
 
 import java.util.Map;
 import java.util.Map.Entry;
-import nl.larsdenbakker.storage.MemoryStorage;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.template.OperationTemplate;
 import nl.larsdenbakker.app.ApplicationUser;
@@ -16,7 +15,7 @@ public class OperationContextRoot extends OperationContext {
 
    private final OperationModule operationHandler;
    private final ApplicationUser executor;
-   private final Map<String, Object> arguments;
+   private Map<String, Object> arguments;
 
    public OperationContextRoot(OperationModule operationHandler, ApplicationUser executor, OperationTemplate template, Map<String, Object> arguments) {
       super(null, template);
@@ -45,14 +44,34 @@ public class OperationContextRoot extends OperationContext {
       if (storage != null) {
          return storage;
       } else {
-         storage = MemoryStorage.create(getOperationHandler().getConversionModule());
-         for (Entry<String, Object> argument : arguments.entrySet()) {
-            storage.set(argument.getKey(), argument.getValue());
-         }
+         storage = getOperationTemplate().getExecutionPlan().createStorage(getOperationHandler().getConversionModule());
+         setArguments();
          return storage;
       }
    }
 
+   private void setArguments() {
+      for (Entry<String, Object> argument : arguments.entrySet()) {
+         storage.set(argument.getKey(), argument.getValue());
+      }
+   }
+
+   /**
+    * Prepare this context for another execution of its OperationTemplate
+    * with the given arguments. The storage of the previous execution is
+    * emptied and reused, this context must therefore only be reused once its
+    * previous execution has finished and nothing refers to its storage.
+    *
+    * @param arguments The arguments of the next execution.
+    */
+   protected void reuse(Map<String, Object> arguments) {
+      this.arguments = arguments;
+      if (storage != null) {
+         getOperationTemplate().getExecutionPlan().resetStorage(storage);
+         setArguments();
+      }
+   }
+
    @Override
    public OperationContextRoot getRoot() {
       return this;
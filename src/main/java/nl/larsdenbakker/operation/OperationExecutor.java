@@ -2,35 +2,171 @@ package nl.larsdenbakker.operation;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import com.google.common.collect.Lists;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import nl.larsdenbakker.app.ApplicationUser;
 import nl.larsdenbakker.operation.command.Command;
-import nl.larsdenbakker.operation.command.CommandArgument;
+import nl.larsdenbakker.operation.command.CompiledCommand;
 import nl.larsdenbakker.operation.command.CommandArgumentProvider;
 import nl.larsdenbakker.operation.operations.Operation;
 import nl.larsdenbakker.operation.template.OperationTemplate;
 import nl.larsdenbakker.operation.template.SimpleOperationTemplate;
 import nl.larsdenbakker.util.OperationResponse;
-import nl.larsdenbakker.util.TextUtils;
 
 /**
  * Utility methods to execute commands and operations.
  *
+ * Commands and operations can also be executed asynchronously. Asynchronous
+ * executions of the same ApplicationUser are run one after the other in the
+ * order they were submitted, executions of different users run concurrently.
+ * By default they run on virtual threads when the runtime supports them and
+ * on a bounded pool of daemon threads otherwise. A different Executor can be
+ * plugged in with setAsyncExecutor(Executor).
+ *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
 public class OperationExecutor {
 
+   private static final int QUEUE_CAPACITY = 4096;
+
    private final OperationModule operationModule;
+   private final ConcurrentMap<ApplicationUser, CompletableFuture<?>> userQueues = new ConcurrentHashMap();
+   private Executor asyncExecutor = null;
+   private ExecutorService defaultExecutor = null;
 
    public OperationExecutor(OperationModule operationModule) {
       this.operationModule = operationModule;
    }
 
+   /**
+    * Set the Executor that asynchronous executions run on. The Executor is
+    * not shut down by this OperationExecutor.
+    *
+    * @param asyncExecutor The Executor, or null to use the default.
+    */
+   public synchronized void setAsyncExecutor(Executor asyncExecutor) {
+      this.asyncExecutor = asyncExecutor;
+   }
+
+   /**
+    * @return The Executor that asynchronous executions run on.
+    */
+   public synchronized Executor getAsyncExecutor() {
+      if (asyncExecutor != null) {
+         return asyncExecutor;
+      }
+      if (defaultExecutor == null) {
+         defaultExecutor = createDefaultExecutor();
+      }
+      return defaultExecutor;
+   }
+
+   /**
+    * Stop the default Executor, if it was started. Executions that are
+    * already queued are still completed. The default Executor is started
+    * again on the next asynchronous execution.
+    */
+   public synchronized void shutdown() {
+      if (defaultExecutor != null) {
+         defaultExecutor.shutdown();
+         defaultExecutor = null;
+      }
+   }
+
+   private static ExecutorService createDefaultExecutor() {
+      try {
+         //Only available on runtimes with virtual threads
+         Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) method.invoke(null);
+      } catch (ReflectiveOperationException ex) {
+         int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+         ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue(QUEUE_CAPACITY), new OperationThreadFactory());
+         executor.allowCoreThreadTimeOut(true);
+         return executor;
+      }
+   }
+
+   /**
+    * Execute a command asynchronously. See executeCommand(ApplicationUser, String[]).
+    *
+    * @param executor The executor of the command.
+    * @param args     The command and its arguments.
+    *
+    * @return A Future of the response. Cancelling it before the command has
+    *         started prevents it from running, cancelling it with interruption
+    *         while it runs interrupts the executing thread.
+    */
+   public CompletableFuture<OperationResponse> executeCommandAsync(ApplicationUser executor, String[] args) {
+      checkNotNull(executor);
+      checkNotNull(args);
+      return submit(executor, () -> executeCommand(executor, args));
+   }
+
+   /**
+    * Execute an operation asynchronously. See executeOperation(ApplicationUser, String).
+    *
+    * @param executor   The executor of the operation.
+    * @param rawCommand The operation and its variables.
+    *
+    * @return A Future of the response. See executeCommandAsync(ApplicationUser, String[]).
+    */
+   public CompletableFuture<OperationResponse> executeOperationAsync(ApplicationUser executor, String rawCommand) {
+      checkNotNull(executor);
+      checkNotNull(rawCommand);
+      return submit(executor, () -> executeOperation(executor, rawCommand));
+   }
+
+   /**
+    * Execute an operation asynchronously. See executeOperation(ApplicationUser, OperationTemplate, Map).
+    *
+    * @param executor  The executor of the operation.
+    * @param operation The operation.
+    * @param variables The variables of the operation.
+    *
+    * @return A Future of the response. See executeCommandAsync(ApplicationUser, String[]).
+    */
+   public CompletableFuture<OperationResponse> executeOperationAsync(ApplicationUser executor, OperationTemplate operation, Map<String, Object> variables) {
+      checkNotNull(executor);
+      checkNotNull(operation);
+      checkNotNull(variables);
+      return submit(executor, () -> executeOperation(executor, operation, variables));
+   }
+
+   private CompletableFuture<OperationResponse> submit(ApplicationUser user, Supplier<OperationResponse> task) {
+      Executor executor = getAsyncExecutor();
+      OperationFuture result = new OperationFuture();
+      CompletableFuture<?> queued = userQueues.compute(user, (ApplicationUser key, CompletableFuture<?> tail) -> {
+         CompletableFuture<?> previous = (tail != null) ? tail : CompletableFuture.completedFuture(null);
+         //Run after the previous execution of this user, regardless of how that one ended
+         return previous.handle((Object val, Throwable ex) -> null).thenRunAsync(() -> result.run(task), executor);
+      });
+      queued.whenComplete((Object val, Throwable ex) -> {
+         if (ex != null) {
+            //The Executor rejected the execution
+            result.completeExceptionally(ex);
+         }
+         userQueues.remove(user, queued);
+      });
+      return result;
+   }
+
    public OperationResponse executeCommand(ApplicationUser executor, String[] args) {
       if (args.length >= 1) {
          String mainCommand = args[0];
@@ -45,15 +181,12 @@ public class OperationExecutor {
                return OperationResponse.failed("You must provide an operation to perform. Use: operation <operation> [key=value] [key=value] [key=value]...");
             }
          } else if (mainCommand.equalsIgnoreCase("help")) {
-            if (args.length == 1) {
-               return executeOperation(executor, "data-info", "target=.commands");
-            } else {
-               return executeOperation(executor, "data-info", "target=.commands,key-filters=" + args[1]);
-            }
+            List<String> help = operationModule.getCommandRegistry().getHelp(operationModule.getOperationRegistry(), (args.length == 1) ? null : args[1]);
+            return OperationResponse.succeeded(help.get(0)).addMessages(help.subList(1, help.size()));
          } else {
-            Command command = operationModule.getCommandRegistry().getByKey(mainCommand);
+            CompiledCommand command = operationModule.getCommandRegistry().getCompiledCommand(operationModule.getOperationRegistry(), mainCommand);
             if (command != null) {
-               return executeCommand(null, command, executor, args, 1);
+               return executeCommand(command, executor, args, 1);
             } else {
                return OperationResponse.failed("Unknown command: " + mainCommand);
             }
@@ -63,75 +196,43 @@ public class OperationExecutor {
       }
    }
 
-   private OperationResponse executeCommand(Command parentCommand, Command command, ApplicationUser executor, String[] args, int index) {
-      if (index < args.length) {
-         String firstArgument = args[index];
-         Command subCommand = command.getSubcommand(firstArgument);
+   private OperationResponse executeCommand(CompiledCommand command, ApplicationUser executor, String[] args, int index) {
+      while (index < args.length) {
+         CompiledCommand subCommand = command.getSubcommand(args[index]);
          if (subCommand != null) {
-            return executeCommand(command, subCommand, executor, args, index + 1);
+            command = subCommand;
+            index++;
+         } else {
+            break;
          }
       }
-      if (command.getOperation() != null) {
+      Command baseCommand = command.getCommand();
+      if (baseCommand.getOperation() != null) {
          if (args.length - index < command.getRequiredArgumentsCount()) {
-            return OperationResponse.failed("Incorrect argument count. Use: " + command.listArguments());
-
+            return OperationResponse.failed("Incorrect argument count. Use: " + command.getUsage());
          }
-         Map<String, Object> arguments = new HashMap();
-         List<CommandArgument> argumentsMappings = command.getArgumentsMappings();
-         for (int i = index; i < args.length; i++) {
-            int argumentIndex = i - index;
-            if (argumentIndex < argumentsMappings.size()) {
-               addCommandArgument(arguments, argumentsMappings.get(argumentIndex).getVariable(), args[i]);
-            }
-         }
-         List<CommandArgumentProvider> argumentProviders = command.getArgumentProviders();
+         Map<String, Object> arguments = command.bindArguments(args, index);
+         List<CommandArgumentProvider> argumentProviders = baseCommand.getArgumentProviders();
          if (argumentProviders != null) {
+            Command parentCommand = (command.getParent() != null) ? command.getParent().getCommand() : null;
             for (CommandArgumentProvider argumentProvider : argumentProviders) {
-               argumentProvider.onCommand(parentCommand, command, args, arguments);
+               argumentProvider.onCommand(parentCommand, baseCommand, args, arguments);
             }
          }
-         if (command.getVariables() != null) {
-            arguments.putAll(command.getVariables());
+         if (baseCommand.getVariables() != null) {
+            arguments.putAll(baseCommand.getVariables());
          }
-         return executeOperation(executor, command.getOperation(), arguments);
-      } else {
-         if (command.getSubCommands() != null && !command.getSubCommands().isEmpty()) {
-            List<String> subCommands = new ArrayList();
-            for (Command subCommand : command.getSubCommands().values()) {
-               subCommands.add(subCommand.listArguments());
-            }
-            return OperationResponse.succeeded().addMessages(Lists.reverse(subCommands)).addMessages("Use: ");
+         if (command.getOperation() != null) {
+            return executeOperation(executor, command.getOperation(), arguments);
          } else {
-            return OperationResponse.failed("Misconfigured command.");
+            return executeOperation(executor, baseCommand.getOperation(), arguments);
          }
-      }
-   }
-
-   private void addCommandArgument(Map<String, Object> map, String key, Object val) {
-      if (map.containsKey(key)) {
-         Object presentObject = map.get(key);
-         if (presentObject instanceof List) {
-            List list = (List) presentObject;
-            if (list.isEmpty()) {
-               list.add(val);
-            } else {
-               Object firstObject = list.get(0);
-               if (firstObject.getClass().isAssignableFrom(val.getClass())) {
-                  list.add(val);
-               } else {
-                  throw new IllegalArgumentException("Trying to add argument at key " + key + " with value of type " + val.getClass().getSimpleName() + " to a list of type " + firstObject.getClass().getSimpleName());
-               }
-            }
-         } else if (presentObject.getClass().isAssignableFrom(val.getClass())) {
-            List list = new ArrayList();
-            list.add(presentObject);
-            list.add(val);
-            map.put(key, list);
+      } else {
+         if (!command.getSubCommandUsages().isEmpty()) {
+            return OperationResponse.succeeded().addMessages(command.getSubCommandUsages()).addMessages("Use: ");
          } else {
-            throw new IllegalArgumentException("Trying to add argument at key " + key + " with value of type " + val.getClass().getSimpleName() + " to a list of type " + presentObject.getClass().getSimpleName());
+            return OperationResponse.failed("Misconfigured command.");
          }
-      } else {
-         map.put(key, val);
       }
    }
 
@@ -140,7 +241,10 @@ public class OperationExecutor {
       checkNotNull(rawCommand);
       checkArgument(!rawCommand.isEmpty());
 
-      String[] splitCommand = TextUtils.splitOnSpacesExceptInQuotes(rawCommand);
+      String[] splitCommand = InputLexer.tokenize(rawCommand);
+      if (splitCommand.length == 0) {
+         return OperationResponse.failed("Empty operation given.");
+      }
 
       OperationResponse templateResponse = OperationResponse.succeeded();
       OperationTemplate template = getTemplateFromInput(templateResponse, splitCommand[0]);
@@ -196,7 +300,7 @@ public class OperationExecutor {
       OperationTemplate template = getTemplateFromInput(templateResponse, operation);
       if (templateResponse.hasSucceeded()) {
          OperationResponse variablesResponse = OperationResponse.succeeded();
-         Map<String, Object> mappedVariables = getVariablesFromInput(variablesResponse, TextUtils.splitOnSpacesExceptInQuotes(variables), 0);
+         Map<String, Object> mappedVariables = getVariablesFromInput(variablesResponse, InputLexer.tokenize(variables), 0);
          if (variablesResponse.hasSucceeded()) {
             return executeOperation(executor, template, mappedVariables);
          } else {
@@ -229,7 +333,7 @@ public class OperationExecutor {
       checkArgument(!variables.isEmpty());
 
       OperationResponse response = OperationResponse.succeeded();
-      Map<String, Object> mappedVariables = getVariablesFromInput(response, TextUtils.splitOnSpacesExceptInQuotes(variables), 0);
+      Map<String, Object> mappedVariables = getVariablesFromInput(response, InputLexer.tokenize(variables), 0);
       if (response.hasSucceeded()) {
          return executeOperation(executor, operation, mappedVariables);
       } else {
@@ -245,6 +349,81 @@ public class OperationExecutor {
       return context.execute();
    }
 
+   /**
+    * Execute an operation once for every set of variables in the given list.
+    * The operation is compiled once for the whole batch and the items are
+    * executed with one context and storage that is emptied between items.
+    * The responses are not kept, only whether or not each item succeeded and
+    * the first message of the items that failed.
+    *
+    * @param executor  The executor of the operations.
+    * @param operation The operation.
+    * @param variables The variables of every execution.
+    *
+    * @return The result of the batch.
+    */
+   public BatchResult executeBatch(ApplicationUser executor, OperationTemplate operation, List<Map<String, Object>> variables) {
+      return executeBatch(executor, operation, variables, variables.size());
+   }
+
+   /**
+    * Execute an operation once for every set of variables in the given list,
+    * in chunks of the given size that are executed in parallel on the common
+    * ForkJoinPool. Items should not depend on each other when more than one
+    * chunk is used. See executeBatch(ApplicationUser, OperationTemplate, List).
+    *
+    * @param executor  The executor of the operations.
+    * @param operation The operation.
+    * @param variables The variables of every execution.
+    * @param chunkSize The amount of items executed by one thread at a time.
+    *
+    * @return The result of the batch.
+    */
+   public BatchResult executeBatch(ApplicationUser executor, OperationTemplate operation, List<Map<String, Object>> variables, int chunkSize) {
+      checkNotNull(executor);
+      checkNotNull(operation);
+      checkNotNull(variables);
+      checkArgument(chunkSize > 0 || variables.isEmpty());
+
+      int size = variables.size();
+      //Compile before the batch is split up
+      operation.getExecutionPlan();
+      if (size <= chunkSize) {
+         return executeChunk(executor, operation, variables, 0, size);
+      }
+      List<ForkJoinTask<BatchResult>> chunks = new ArrayList();
+      for (int start = chunkSize; start < size; start += chunkSize) {
+         int from = start;
+         int to = Math.min(size, start + chunkSize);
+         chunks.add(ForkJoinPool.commonPool().submit(() -> executeChunk(executor, operation, variables, from, to)));
+      }
+      BatchResult result = executeChunk(executor, operation, variables, 0, chunkSize);
+      for (ForkJoinTask<BatchResult> chunk : chunks) {
+         result.merge(chunk.join());
+      }
+      return result;
+   }
+
+   private BatchResult executeChunk(ApplicationUser executor, OperationTemplate operation, List<Map<String, Object>> variables, int from, int to) {
+      BatchResult result = new BatchResult(variables.size(), from, to);
+      //One context and its storage are reused for all items of the chunk
+      OperationContextRoot context = null;
+      for (int i = from; i < to; i++) {
+         if (context == null) {
+            context = new OperationContextRoot(operationModule, executor, operation, variables.get(i));
+         } else {
+            context.reuse(variables.get(i));
+         }
+         OperationResponse response = context.execute();
+         if (response.hasSucceeded()) {
+            result.setSucceeded(i);
+         } else {
+            result.setFailed(i, response.getMessage());
+         }
+      }
+      return result;
+   }
+
    public OperationResponse executeOperation(ApplicationUser executor, OperationTemplate operation) {
       checkNotNull(executor);
       checkNotNull(operation);
@@ -302,12 +481,12 @@ public class OperationExecutor {
    }
 
    private Map<String, Object> getVariablesFromInput(OperationResponse response, String[] input, int start) {
-      Map<String, Object> variables = new HashMap();
+      Map<String, Object> variables = new HashMap((int) ((input.length - start) / 0.75f) + 1);
       for (int i = start; i < input.length; i++) {
          String str = input[i];
-         String[] pairArray = str.split("=");
-         if (pairArray.length == 2) {
-            variables.put(pairArray[0], pairArray[1]);
+         int assignment = InputLexer.indexOfAssignment(str);
+         if (assignment != -1) {
+            variables.put(str.substring(0, assignment), str.substring(assignment + 1));
          } else {
             response.setSucceeded(false).addMessages("Incorrect variable mapping: " + str + ". Mapping should be: 'key=value'.");
             return null;
@@ -316,4 +495,57 @@ public class OperationExecutor {
       return variables;
    }
 
+   /* A Future that interrupts the thread running its execution when it is cancelled with interruption. */
+   private static class OperationFuture extends CompletableFuture<OperationResponse> {
+
+      private Thread runner;
+
+      private void run(Supplier<OperationResponse> task) {
+         synchronized (this) {
+            if (isDone()) {
+               return;
+            }
+            runner = Thread.currentThread();
+         }
+         try {
+            complete(task.get());
+         } catch (RuntimeException ex) {
+            completeExceptionally(ex);
+         } finally {
+            synchronized (this) {
+               runner = null;
+            }
+            //Clear an interrupt that arrived after the execution finished
+            Thread.interrupted();
+         }
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         boolean cancelled = super.cancel(mayInterruptIfRunning);
+         if (cancelled && mayInterruptIfRunning) {
+            synchronized (this) {
+               if (runner != null) {
+                  runner.interrupt();
+               }
+            }
+         }
+         return cancelled;
+      }
+
+   }
+
+   private static class OperationThreadFactory implements ThreadFactory {
+
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+         Thread thread = new Thread(r, "operation-executor-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+
+   }
+
 }
@@ -7,14 +7,21 @@ import nl.larsdenbakker.operation.procedure.ProcedureTemplate;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.configuration.ConfigurationReloader;
 import nl.larsdenbakker.datafile.DataFileException;
 import nl.larsdenbakker.storage.MemoryStorage;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.procedure.ConditionalStatement;
 import nl.larsdenbakker.operation.procedure.OperationSequence;
+import nl.larsdenbakker.operation.procedure.ParallelSequence;
 import nl.larsdenbakker.operation.procedure.ProcedureTask;
 import nl.larsdenbakker.operation.variables.Variable;
 import nl.larsdenbakker.util.ApplicationUtils;
@@ -74,7 +81,7 @@ public class OperationFactory {
       try {
          OperationRegistry registry = operationModule.getOperationRegistry();
          for (Storage node : storage.getNodes()) {
-            OperationTemplate operationTemplate = createProcedure(parentModule, operationModule, node);
+            OperationTemplate operationTemplate = createProcedure(parentModule, operationModule, node, Collections.emptyMap());
             if (!registry.isRegistered(operationTemplate)) {
                registry.register(operationTemplate.getKey(), operationTemplate);
             } else {
@@ -102,7 +109,9 @@ public class OperationFactory {
 
    /**
     * Register Procedures from the given Module's configuration. Default Module
-    * configuration (resource and configuration folder) is searched.
+    * configuration (resource and configuration folder) is searched. The
+    * configuration file is watched by the ConfigurationReloader, changes are
+    * applied with reloadProcedures(Module, OperationModule, Map, Map).
     *
     * @param parentModule    The module the Procedures belong to.
     * @param operationModule The associated OperationModule.
@@ -114,17 +123,125 @@ public class OperationFactory {
    public static void registerProcedures(Module parentModule, OperationModule operationModule, String fileName) throws DataFileException, InvalidInputException {
       try {
          Map<String, Object> configuration = ApplicationUtils.loadModuleConfiguration(parentModule, fileName);
+         Map<String, Object> registered = ConfigurationReloader.copy(configuration);
          registerProcedures(parentModule, operationModule, configuration);
+         operationModule.getConfigurationModule().getReloader().watch(parentModule, fileName, registered, (Map<String, Object> previous, Map<String, Object> current) -> {
+            reloadProcedures(parentModule, operationModule, previous, current);
+         });
       } catch (InvalidInputException ex) {
          throw ex.addFailedAction("reading file: '" + fileName + "'");
       }
    }
 
-   private static OperationTemplate createProcedure(Module parentModule, OperationModule operationModule, Storage storage) throws InvalidInputException {
+   /**
+    * Apply a changed Procedures configuration. Procedures that were added or
+    * whose configuration changed are created, together with the Procedures
+    * in the same configuration that execute them, since a Procedure refers to
+    * the templates it executes directly. All of them are created before any
+    * is registered, so an invalid configuration changes nothing. They then
+    * replace the registered Procedures, which stay registered while they are
+    * replaced, and removed Procedures are unregistered. Procedures of other
+    * configurations that execute a replaced Procedure keep executing the
+    * Procedure they were created with, while Properties validate with the
+    * replacing Procedure from then on.
+    *
+    * @param parentModule    The module the Procedures belong to.
+    * @param operationModule The associated OperationModule.
+    * @param previous        The configuration of the registered Procedures.
+    * @param current         The changed configuration.
+    *
+    * @throws InvalidInputException if any of the Procedures were configured incorrectly.
+    */
+   public static void reloadProcedures(Module parentModule, OperationModule operationModule, Map<String, Object> previous, Map<String, Object> current) throws InvalidInputException {
+      try {
+         OperationRegistry registry = operationModule.getOperationRegistry();
+         Set<String> changed = ConfigurationReloader.getChangedKeys(previous, current);
+         Set<String> removed = ConfigurationReloader.getRemovedKeys(previous, current);
+         //Recreate the Procedures that execute a changed or removed Procedure, until there are no more
+         boolean added = true;
+         while (added) {
+            added = false;
+            for (Map.Entry<String, Object> entry : current.entrySet()) {
+               if (!changed.contains(entry.getKey()) && (refersTo(entry.getValue(), changed) || refersTo(entry.getValue(), removed))) {
+                  changed.add(entry.getKey());
+                  added = true;
+               }
+            }
+         }
+
+         //Templates that will be registered or unregistered, a removed Procedure maps to null
+         Map<String, OperationTemplate> pending = new HashMap();
+         for (String key : removed) {
+            pending.put(key, null);
+         }
+         Map<String, OperationTemplate> created = new LinkedHashMap();
+         Storage storage = MemoryStorage.create(operationModule.getConversionModule(), current);
+         for (Storage node : storage.getNodes()) {
+            if (changed.contains(node.getStorageKey())) {
+               OperationTemplate operationTemplate = createProcedure(parentModule, operationModule, node, pending);
+               if (!isOwnProcedure(registry.getByKey(operationTemplate.getKey()), parentModule)) {
+                  throw new InvalidInputException("An operation called " + operationTemplate.getKey() + " is already registered under that name.");
+               }
+               pending.put(operationTemplate.getKey(), operationTemplate);
+               created.put(operationTemplate.getKey(), operationTemplate);
+            }
+         }
+
+         for (OperationTemplate operationTemplate : created.values()) {
+            if (registry.replace(operationTemplate) == null) {
+               registry.register(operationTemplate);
+            }
+         }
+         for (String key : removed) {
+            OperationTemplate registered = registry.getByKey(key);
+            if (registered != null && isOwnProcedure(registered, parentModule)) {
+               registry.unregister(key);
+            }
+         }
+      } catch (InvalidInputException ex) {
+         throw ex.addFailedAction("reloading procedures");
+      }
+   }
+
+   /* Whether or not the given template can be replaced by a Procedure of the given module. */
+   private static boolean isOwnProcedure(OperationTemplate registered, Module parentModule) {
+      return registered == null || (registered instanceof ProcedureTemplate && registered.getParentModule().equals(parentModule));
+   }
+
+   /* Whether or not the given configuration mentions any of the given keys. */
+   private static boolean refersTo(Object configuration, Set<String> keys) {
+      if (configuration instanceof Map) {
+         for (Object value : ((Map) configuration).values()) {
+            if (refersTo(value, keys)) {
+               return true;
+            }
+         }
+      } else if (configuration instanceof Collection) {
+         for (Object element : (Collection) configuration) {
+            if (refersTo(element, keys)) {
+               return true;
+            }
+         }
+      } else if (configuration instanceof String) {
+         for (String key : keys) {
+            if (key.equalsIgnoreCase((String) configuration)) {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /* Look up a template, preferring the templates that are about to be registered or unregistered. */
+   private static OperationTemplate getOperationTemplate(OperationModule operationModule, Map<String, OperationTemplate> pending, String name) {
+      return (pending.containsKey(name)) ? pending.get(name) : operationModule.getOperationRegistry().getByKey(name);
+   }
+
+   private static OperationTemplate createProcedure(Module parentModule, OperationModule operationModule, Storage storage, Map<String, OperationTemplate> pending) throws InvalidInputException {
       Variable[] variables = createVariables(operationModule, storage);
       final String operationsKey = "local operations";
       Storage operationsStorage = storage.getAndAssert(operationsKey, Storage.class);
-      ProcedureTask[] procedureTasks = createProcedureTasks(operationModule, storage);
+      ProcedureTask[] procedureTasks = createProcedureTasks(operationModule, storage, pending);
       ProcedureTemplate procedureTemplate = new ProcedureTemplate(parentModule, operationModule, storage.getStorageKey(), variables, procedureTasks);
       return procedureTemplate;
 
@@ -154,44 +271,51 @@ public class OperationFactory {
 //      }
 //      return operations;
 //   }
-   private static ProcedureTask[] createProcedureTasks(OperationModule operationModule, Storage storage) throws InvalidInputException {
+   private static ProcedureTask[] createProcedureTasks(OperationModule operationModule, Storage storage, Map<String, OperationTemplate> pending) throws InvalidInputException {
       final String conditionsKey = "conditionals";
       final String operationsKey = "operations";
+      final String parallelKey = "parallel";
 
       if (storage.isStorage(conditionsKey)) {
          Storage conditionsNode = storage.getAndAssertStorage(conditionsKey);
          //It is a procedure with if/then/else conditionals
          List<ProcedureTask> procedures = new ArrayList();
          for (String key : conditionsNode.getKeys()) {
-            ProcedureTask procedureTask = createProcedureTask(operationModule, storage, key);
+            ProcedureTask procedureTask = createProcedureTask(operationModule, storage, key, pending);
             procedures.add(procedureTask);
          }
          return procedures.toArray(new ProcedureTask[procedures.size()]);
       } else if (storage.isSet(operationsKey)) {
-         List<String> operationNames = storage.getAndAssertCollection(operationsKey, List.class, String.class, 0);
-         List<OperationTemplate> operations = new ArrayList();
-         for (String operationName : operationNames) {
-            OperationTemplate template = operationModule.getOperationRegistry().getByKey(operationName);
-            if (template != null) {
-               operations.add(template);
-            } else {
-               throw new InvalidInputException("Could not find operation " + operationName + " specified at: " + storage.getStoragePath() + "." + operationsKey);
-            }
-         }
-         OperationTemplate[] templateArray = CollectionUtils.asArrayOfType(OperationTemplate.class, operations);
-         return CollectionUtils.asArray(new OperationSequence(templateArray));
+         return CollectionUtils.asArray(new OperationSequence(getOperationTemplates(operationModule, storage, operationsKey, pending)));
+      } else if (storage.isSet(parallelKey)) {
+         //Independent operations that may be executed concurrently
+         return CollectionUtils.asArray(new ParallelSequence(getOperationTemplates(operationModule, storage, parallelKey, pending)));
       } else {
-         throw new InvalidInputException("Could not find either " + conditionsKey + " or " + operationsKey + " at: " + storage.getStoragePath());
+         throw new InvalidInputException("Could not find either " + conditionsKey + ", " + operationsKey + " or " + parallelKey + " at: " + storage.getStoragePath());
+      }
+   }
+
+   private static OperationTemplate[] getOperationTemplates(OperationModule operationModule, Storage storage, String key, Map<String, OperationTemplate> pending) throws InvalidInputException {
+      List<String> operationNames = storage.getAndAssertCollection(key, List.class, String.class, 0);
+      List<OperationTemplate> operations = new ArrayList();
+      for (String operationName : operationNames) {
+         OperationTemplate template = getOperationTemplate(operationModule, pending, operationName);
+         if (template != null) {
+            operations.add(template);
+         } else {
+            throw new InvalidInputException("Could not find operation " + operationName + " specified at: " + storage.getStoragePath() + "." + key);
+         }
       }
+      return CollectionUtils.asArrayOfType(OperationTemplate.class, operations);
    }
 
-   private static ProcedureTask createProcedureTask(OperationModule operationModule, Storage storage, String key) throws InvalidInputException {
+   private static ProcedureTask createProcedureTask(OperationModule operationModule, Storage storage, String key, Map<String, OperationTemplate> pending) throws InvalidInputException {
       storage.assertSet(key);
       if (storage.isStorage(key)) {
          Storage node = storage.getStorage(key);
-         ProcedureTask ifStatement = createProcedureTask(operationModule, node, "if");
-         ProcedureTask thenStatement = createProcedureTask(operationModule, node, "then");
-         ProcedureTask elseStatement = createProcedureTask(operationModule, node, "else");
+         ProcedureTask ifStatement = createProcedureTask(operationModule, node, "if", pending);
+         ProcedureTask thenStatement = createProcedureTask(operationModule, node, "then", pending);
+         ProcedureTask elseStatement = createProcedureTask(operationModule, node, "else", pending);
          ConditionalStatement conditionalStatement = new ConditionalStatement(ifStatement, thenStatement, elseStatement);
          return conditionalStatement;
       } else {
@@ -199,7 +323,7 @@ public class OperationFactory {
          List<OperationTemplate> operationList = new ArrayList();
          for (String operationName : operationNames) {
             operationName = operationName.toLowerCase();
-            OperationTemplate template = operationModule.getOperationRegistry().getByKey(operationName);
+            OperationTemplate template = getOperationTemplate(operationModule, pending, operationName);
             if (template != null) {
                operationList.add(template);
             } else {
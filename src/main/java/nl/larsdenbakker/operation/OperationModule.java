@@ -8,14 +8,20 @@ import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.configuration.ConfigurationModule;
 import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.datapath.DataPathModule;
+import nl.larsdenbakker.operation.metrics.OperationMetrics;
 import nl.larsdenbakker.registry.RegistryModule;
 import nl.larsdenbakker.operation.command.Command;
 import nl.larsdenbakker.operation.command.CommandArgumentProvider;
+import nl.larsdenbakker.operation.command.CommandFactory;
 import nl.larsdenbakker.operation.command.CommandRegistry;
 import nl.larsdenbakker.operation.operations.constraints.CollectionSizeConstraint;
 import nl.larsdenbakker.operation.operations.ComparisonOperation;
 import nl.larsdenbakker.operation.operations.DataHolderInfoOperation;
 import nl.larsdenbakker.operation.operations.InfoOperation;
+import nl.larsdenbakker.operation.operations.MemoryReportOperation;
+import nl.larsdenbakker.operation.operations.OperationStatsOperation;
+import nl.larsdenbakker.operation.operations.ConversionStatsOperation;
+import nl.larsdenbakker.operation.operations.DataPathStatsOperation;
 import nl.larsdenbakker.operation.operations.ElementOfOperation;
 import nl.larsdenbakker.operation.operations.constraints.FilterConstraint;
 import nl.larsdenbakker.operation.operations.constraints.BigDecimalSizeConstraint;
@@ -36,6 +42,9 @@ import nl.larsdenbakker.app.UserInputException;
 public class OperationModule extends AbstractModule {
 
    private final OperationExecutor operationExecutor = new OperationExecutor(this);
+   private final OperationMetrics metrics = new OperationMetrics();
+   private volatile ExecutionTracker executionTracker;
+   private int executionTrackerUsers = 0;
    private OperationRegistry operationRegistry;
    private CommandRegistry commandRegistry;
 
@@ -76,10 +85,18 @@ public class OperationModule extends AbstractModule {
 
       OperationFactory.registerOperations(this, this, "string-only-ascii", StringOnlyASCIIConstraint.class);
       OperationFactory.registerOperations(this, this, "string-only-letters", StringOnlyLettersConstraint.class);
+
+      OperationFactory.registerOperations(this, this, "operation-stats", OperationStatsOperation.class);
+      OperationFactory.registerOperations(this, this, "conversion-stats", ConversionStatsOperation.class);
+      OperationFactory.registerOperations(this, this, "datapath-stats", DataPathStatsOperation.class);
+      OperationFactory.registerOperations(this, this, "memory-report", MemoryReportOperation.class);
+
+      CommandFactory.createAndRegisterCommands(this, this, "commands.yml");
    }
 
    @Override
    protected void _unload() {
+      operationExecutor.shutdown();
       operationRegistry = null;
       commandRegistry = null;
    }
@@ -122,6 +139,46 @@ public class OperationModule extends AbstractModule {
       return operationExecutor;
    }
 
+   /**
+    * @return The recorded executions of all OperationTemplates.
+    */
+   public OperationMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * Start tracking which threads are executing operations, if that is not
+    * done already. Every call must be followed by a call to
+    * releaseExecutionTracker() once tracking is no longer needed.
+    *
+    * @return The tracker.
+    */
+   public synchronized ExecutionTracker acquireExecutionTracker() {
+      if (executionTracker == null) {
+         executionTracker = new ExecutionTracker();
+      }
+      executionTrackerUsers++;
+      return executionTracker;
+   }
+
+   /**
+    * Stop tracking which threads are executing operations, unless the
+    * tracker was acquired more often than it was released.
+    */
+   public synchronized void releaseExecutionTracker() {
+      if (executionTrackerUsers > 0 && --executionTrackerUsers == 0) {
+         executionTracker = null;
+      }
+   }
+
+   /**
+    * @return The tracker of the threads that are executing operations, or
+    *         null if executions are not tracked.
+    */
+   public ExecutionTracker getExecutionTracker() {
+      return executionTracker;
+   }
+
    public boolean registerCommandArgumentProvider(CommandArgumentProvider argumentProvider, String... commands) {
       checkNotNull(argumentProvider);
       checkNotNull(commands);
@@ -33,6 +33,8 @@ public class Command implements Registrable<String> {
    private final Map<String, Object> variables;
 
    private Registry parentRegistry;
+   //The rendered usage, cleared when this command is moved to another parent
+   private volatile String usage;
 
    public Command(Module parentModule, String key, boolean adminCommand, boolean rootCommand, String operation, List<CommandArgument> argumentsMappings, Map<String, Command> subCommands, Map<String, Object> variables) {
       this.parentModule = parentModule;
@@ -75,6 +77,17 @@ public class Command implements Registrable<String> {
 
    protected void setParentCommand(Command parentCommand) {
       this.parentCommand = parentCommand;
+      clearUsage();
+   }
+
+   /* The usage of sub commands starts with the usage of this command. */
+   private void clearUsage() {
+      usage = null;
+      if (subCommands != null) {
+         for (Command command : subCommands.values()) {
+            command.clearUsage();
+         }
+      }
    }
 
    public boolean isAdminCommand() {
@@ -130,7 +143,21 @@ public class Command implements Registrable<String> {
       }
    }
 
+   /**
+    * @return The usage of this command: the keys of its parent commands and
+    *         this command followed by its arguments. The usage is rendered
+    *         once and cached.
+    */
    public String listArguments() {
+      String current = usage;
+      if (current == null) {
+         current = renderUsage();
+         usage = current;
+      }
+      return current;
+   }
+
+   private String renderUsage() {
       StringBuilder sb = new StringBuilder();
       if (parentCommand != null) {
          sb.append(parentCommand.listArguments());
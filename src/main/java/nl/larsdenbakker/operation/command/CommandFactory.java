@@ -4,7 +4,9 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.configuration.ConfigurationReloader;
 import nl.larsdenbakker.configuration.ConfigurationTemplate;
 import nl.larsdenbakker.datafile.DataFile;
 import nl.larsdenbakker.datafile.DataFileException;
@@ -24,24 +26,91 @@ public class CommandFactory {
 
    /**
     * Create and register commands from configuration. Configuration is read from the
-    * the module's default resource (jar file) and configuration file locations.
+    * the module's default resource (jar file) and configuration file locations. All
+    * files are read concurrently, commands are registered in the order of the file names.
+    * The configuration files are watched by the ConfigurationReloader, changes are applied
+    * with reloadCommands(Module, OperationModule, Map, Map).
     *
     * @param parentModule    The module the commands are registered from.
     * @param operationModule The associated OperationModule.
-    * @param fileName        The name of the configuration file.
+    * @param fileNames       The names of the configuration files.
+    *
+    * @throws DataFileException     if anything goes wrong when loading the files.
+    * @throws InvalidInputException if there were any problems parsing the configuration.
+    */
+   public static void createAndRegisterCommands(Module parentModule, OperationModule operationModule, String... fileNames) throws DataFileException, InvalidInputException {
+      Map<String, Map<String, Object>> configurations = ApplicationUtils.loadModuleConfigurations(parentModule, fileNames);
+      for (Map.Entry<String, Map<String, Object>> entry : configurations.entrySet()) {
+         try {
+            Map<String, Object> registered = ConfigurationReloader.copy(entry.getValue());
+            CommandFactory.createAndRegisterCommands(parentModule, operationModule, entry.getValue());
+            operationModule.getConfigurationModule().getReloader().watch(parentModule, entry.getKey(), registered, (Map<String, Object> previous, Map<String, Object> current) -> {
+               reloadCommands(parentModule, operationModule, previous, current);
+            });
+         } catch (InvalidInputException ex) {
+            throw ex.addFailedAction("reading file: '" + entry.getKey() + "'");
+         }
+      }
+   }
+
+   /**
+    * Apply a changed command configuration. Commands that were added or whose
+    * configuration changed are created before any is registered, so an invalid
+    * configuration changes nothing. They then replace the registered commands,
+    * which stay registered while they are replaced, and removed commands are
+    * unregistered. Commands that did not change are left as they are.
+    *
+    * @param parentModule    The module the commands are registered from.
+    * @param operationModule The associated OperationModule.
+    * @param previous        The configuration of the registered commands.
+    * @param current         The changed configuration.
     *
-    * @throws DataFileException     if anything goes wrong when loading the file.
     * @throws InvalidInputException if there were any problems parsing the configuration.
     */
-   public static void createAndRegisterCommands(Module parentModule, OperationModule operationModule, String fileName) throws DataFileException, InvalidInputException {
+   public static void reloadCommands(Module parentModule, OperationModule operationModule, Map<String, Object> previous, Map<String, Object> current) throws InvalidInputException {
       try {
-         Map<String, Object> configuration = ApplicationUtils.loadModuleConfiguration(parentModule, fileName);
-         CommandFactory.createAndRegisterCommands(parentModule, operationModule, configuration);
+         CommandRegistry registry = operationModule.getCommandRegistry();
+         Map<String, Object> previousCommands = getCommandsConfiguration(previous);
+         Map<String, Object> currentCommands = getCommandsConfiguration(current);
+         Set<String> changed = ConfigurationReloader.getChangedKeys(previousCommands, currentCommands);
+         Set<String> removed = ConfigurationReloader.getRemovedKeys(previousCommands, currentCommands);
+
+         List<Command> created = new ArrayList();
+         Storage commandsStorage = MemoryStorage.create(operationModule.getConversionModule(), currentCommands);
+         for (String key : changed) {
+            if (commandsStorage.isStorage(key)) {
+               Command command = createCommand(parentModule, operationModule, key, commandsStorage.getStorage(key));
+               Command registered = registry.getByKey(command.getKey());
+               if (registered != null && !registered.getParentModule().equals(parentModule)) {
+                  throw new InvalidInputException("A command called " + command.getKey() + " is already registered by another module.");
+               }
+               created.add(command);
+            } else {
+               removed.add(key);
+            }
+         }
+
+         for (Command command : created) {
+            if (registry.replace(command) == null) {
+               registry.register(command);
+            }
+         }
+         for (String key : removed) {
+            Command registered = registry.getByKey(key);
+            if (registered != null && registered.getParentModule().equals(parentModule)) {
+               registry.unregister(key);
+            }
+         }
       } catch (InvalidInputException ex) {
-         throw ex.addFailedAction("reading file: '" + fileName + "'");
+         throw ex.addFailedAction("reloading commands");
       }
    }
 
+   private static Map<String, Object> getCommandsConfiguration(Map<String, Object> configuration) {
+      Object commands = configuration.get("commands");
+      return (commands instanceof Map) ? (Map) commands : new LinkedHashMap();
+   }
+
    /**
     * Create and register commands from configuration. Configuration is read from the
     * the provided DataFile.
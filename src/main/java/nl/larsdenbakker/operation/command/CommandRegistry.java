@@ -1,15 +1,27 @@
 package nl.larsdenbakker.operation.command;
 
+import com.google.common.collect.ImmutableList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.operation.OperationRegistry;
 import nl.larsdenbakker.registry.RegisterableRegistry;
 import nl.larsdenbakker.registry.RegistryModule;
+import nl.larsdenbakker.util.TextUtils;
 
 /**
+ * A Registry of Commands. For dispatching, the registered Commands are
+ * compiled into a case-insensitive trie of CompiledCommands. The trie is
+ * built on first use and rebuilt after Commands or Operations have been
+ * registered or unregistered, together with the cached help listing.
  *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
 public class CommandRegistry extends RegisterableRegistry<String, Command> {
 
+   private volatile Trie trie;
+
    public CommandRegistry(Module parentModule, RegistryModule registryHandler) {
       super(parentModule, registryHandler, String.class, Command.class);
    }
@@ -29,4 +41,108 @@ public class CommandRegistry extends RegisterableRegistry<String, Command> {
       return "Commands";
    }
 
+   /**
+    * Get the compiled form of a main command.
+    *
+    * @param operationRegistry The OperationRegistry the operations of the
+    *                          commands are resolved from.
+    * @param key               The key of the command, case-insensitive.
+    *
+    * @return The compiled command, or null if there is no such command.
+    */
+   public CompiledCommand getCompiledCommand(OperationRegistry operationRegistry, String key) {
+      return getTrie(operationRegistry).commands.get(key.toLowerCase());
+   }
+
+   /**
+    * Get the help listing of the registered commands: a description of this
+    * registry followed by a line per command, as listed by the data-info
+    * operation. The listing is rendered once and cached until Commands or
+    * Operations are registered or unregistered.
+    *
+    * @param operationRegistry The OperationRegistry the operations of the
+    *                          commands are resolved from.
+    * @param keyFilter         Only commands whose key contains this text,
+    *                          case-insensitive, are listed. May be null to
+    *                          list all commands.
+    *
+    * @return An immutable List of the lines.
+    */
+   public List<String> getHelp(OperationRegistry operationRegistry, String keyFilter) {
+      Trie current = getTrie(operationRegistry);
+      Help help = current.help;
+      if (help == null) {
+         help = new Help(this);
+         current.help = help;
+      }
+      if (keyFilter == null) {
+         return help.lines;
+      }
+      String filter = keyFilter.toLowerCase();
+      ImmutableList.Builder<String> lines = ImmutableList.builder();
+      lines.add(help.lines.get(0));
+      for (int i = 0; i < help.keys.size(); i++) {
+         if (help.keys.get(i).contains(filter)) {
+            lines.add(help.lines.get(i + 1));
+         }
+      }
+      return lines.build();
+   }
+
+   private Trie getTrie(OperationRegistry operationRegistry) {
+      Trie current = trie;
+      if (current == null || !current.isValid(this, operationRegistry)) {
+         current = new Trie(this, operationRegistry);
+         trie = current;
+      }
+      return current;
+   }
+
+   private static class Trie {
+
+      private final Map<String, CompiledCommand> commands = new HashMap();
+      private final OperationRegistry operationRegistry;
+      private final int commandsModificationCount;
+      private final int operationsModificationCount;
+      //Rendered on first use
+      private volatile Help help;
+
+      private Trie(CommandRegistry commandRegistry, OperationRegistry operationRegistry) {
+         this.operationRegistry = operationRegistry;
+         //Read the counts first, so changes made while building invalidate the trie
+         this.commandsModificationCount = commandRegistry.getModificationCount();
+         this.operationsModificationCount = operationRegistry.getModificationCount();
+         for (Command command : commandRegistry.getAll()) {
+            commands.putIfAbsent(command.getKey().toLowerCase(), new CompiledCommand(command, null, operationRegistry));
+         }
+      }
+
+      private boolean isValid(CommandRegistry commandRegistry, OperationRegistry operationRegistry) {
+         return this.operationRegistry == operationRegistry
+                && commandsModificationCount == commandRegistry.getModificationCount()
+                && operationsModificationCount == operationRegistry.getModificationCount();
+      }
+
+   }
+
+   private static class Help {
+
+      //The lower case key of the command on every line but the first
+      private final List<String> keys;
+      private final List<String> lines;
+
+      private Help(CommandRegistry commandRegistry) {
+         ImmutableList.Builder<String> keyList = ImmutableList.builder();
+         ImmutableList.Builder<String> lineList = ImmutableList.builder();
+         lineList.add(commandRegistry.getTypeAndValueDescription());
+         for (Map.Entry<String, Object> entry : commandRegistry.getContents().entrySet()) {
+            keyList.add(entry.getKey().toLowerCase());
+            lineList.add(TextUtils.getDescription(entry.getKey()) + ": " + TextUtils.getDescription(entry.getValue(), ""));
+         }
+         this.keys = keyList.build();
+         this.lines = lineList.build();
+      }
+
+   }
+
 }
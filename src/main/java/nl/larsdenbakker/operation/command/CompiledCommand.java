@@ -0,0 +1,164 @@
+package nl.larsdenbakker.operation.command;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.operation.OperationRegistry;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+
+/**
+ * A node in the dispatch trie of a CommandRegistry. Every node wraps a
+ * Command and holds its sub commands by their lower case key, so commands
+ * are matched case-insensitively. The operation of the Command is resolved
+ * and the mapping of command arguments to variables is computed when the
+ * trie is built, so dispatching a command only has to walk the trie and
+ * copy the arguments. The usage of the command and its sub commands is
+ * rendered when the trie is built as well.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class CompiledCommand {
+
+   private final Command command;
+   private final CompiledCommand parent;
+   private final Map<String, CompiledCommand> subCommands;
+   private final OperationTemplate operation;
+   private final String[] argumentVariables;
+   /* Whether the variable at the same index is mapped by more than one argument and collects its values in a List. */
+   private final boolean[] multiValued;
+   private final int requiredArgumentsCount;
+   private final int argumentsCapacity;
+   private final String usage;
+   private final List<String> subCommandUsages;
+
+   protected CompiledCommand(Command command, CompiledCommand parent, OperationRegistry operationRegistry) {
+      this.command = command;
+      this.parent = parent;
+      this.operation = (command.getOperation() != null) ? operationRegistry.getByKey(command.getOperation()) : null;
+      this.requiredArgumentsCount = command.getRequiredArgumentsCount();
+
+      List<CommandArgument> mappings = command.getArgumentsMappings();
+      int size = (mappings != null) ? mappings.size() : 0;
+      this.argumentVariables = new String[size];
+      this.multiValued = new boolean[size];
+      for (int i = 0; i < size; i++) {
+         argumentVariables[i] = mappings.get(i).getVariable();
+         for (int j = 0; j < i; j++) {
+            if (argumentVariables[j].equals(argumentVariables[i])) {
+               multiValued[i] = true;
+               multiValued[j] = true;
+            }
+         }
+      }
+      int variableCount = (command.getVariables() != null) ? command.getVariables().size() : 0;
+      //Arguments, fixed variables and some room for argument providers, at the default load factor
+      this.argumentsCapacity = (int) ((size + variableCount + 2) / 0.75f) + 1;
+
+      if (command.getSubCommands() != null) {
+         this.subCommands = new HashMap();
+         for (Command subCommand : command.getSubCommands().values()) {
+            subCommands.putIfAbsent(subCommand.getKey().toLowerCase(), new CompiledCommand(subCommand, this, operationRegistry));
+         }
+      } else {
+         this.subCommands = null;
+      }
+      this.usage = command.listArguments();
+      if (command.getSubCommands() != null) {
+         List<String> usages = new ArrayList(command.getSubCommands().size());
+         for (Command subCommand : command.getSubCommands().values()) {
+            usages.add(subCommand.listArguments());
+         }
+         this.subCommandUsages = ImmutableList.copyOf(Lists.reverse(usages));
+      } else {
+         this.subCommandUsages = ImmutableList.of();
+      }
+   }
+
+   public Command getCommand() {
+      return command;
+   }
+
+   /**
+    * @return The parent of this command, or null if this is a main command.
+    */
+   public CompiledCommand getParent() {
+      return parent;
+   }
+
+   /**
+    * @param key The key of the sub command, case-insensitive.
+    *
+    * @return The sub command, or null if there is none.
+    */
+   public CompiledCommand getSubcommand(String key) {
+      return (subCommands != null) ? subCommands.get(key.toLowerCase()) : null;
+   }
+
+   /**
+    * @return The operation of this command, or null if the command has no
+    *         operation or the operation was not registered when the trie was
+    *         built.
+    */
+   public OperationTemplate getOperation() {
+      return operation;
+   }
+
+   public int getRequiredArgumentsCount() {
+      return requiredArgumentsCount;
+   }
+
+   /**
+    * @return The usage of this command, see Command.listArguments().
+    */
+   public String getUsage() {
+      return usage;
+   }
+
+   /**
+    * @return The usages of the sub commands of this command in reverse
+    *         order, as listed when this command is used without a sub
+    *         command. An immutable, possibly empty List.
+    */
+   public List<String> getSubCommandUsages() {
+      return subCommandUsages;
+   }
+
+   /**
+    * Map the given command arguments to the variables of this command.
+    * Arguments beyond the ones that are mapped are ignored. Variables that
+    * are mapped by more than one argument receive a List of their values.
+    *
+    * @param args  The full command.
+    * @param index The index of the first argument of this command.
+    *
+    * @return A modifiable map of the variables.
+    */
+   public Map<String, Object> bindArguments(String[] args, int index) {
+      Map<String, Object> arguments = new HashMap(argumentsCapacity);
+      int count = Math.min(args.length - index, argumentVariables.length);
+      for (int i = 0; i < count; i++) {
+         String variable = argumentVariables[i];
+         String value = args[index + i];
+         if (multiValued[i]) {
+            Object present = arguments.get(variable);
+            if (present == null) {
+               arguments.put(variable, value);
+            } else if (present instanceof List) {
+               ((List) present).add(value);
+            } else {
+               List list = new ArrayList();
+               list.add(present);
+               list.add(value);
+               arguments.put(variable, list);
+            }
+         } else {
+            arguments.put(variable, value);
+         }
+      }
+      return arguments;
+   }
+
+}
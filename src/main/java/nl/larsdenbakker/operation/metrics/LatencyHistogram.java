@@ -0,0 +1,168 @@
+package nl.larsdenbakker.operation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds with log-linear buckets, similar
+ * to an HdrHistogram. Every power of two is divided into 16 equally sized
+ * buckets, so a recorded value is off by at most 1/16th. Durations up to
+ * 2^44 nanoseconds (almost 5 hours) are tracked, longer durations are
+ * counted in the last bucket. Recording is lock-free and can be done by any
+ * amount of threads concurrently.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 4;
+   private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   private static final int MAX_EXPONENT = 44;
+   private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+   private final LongAdder count = new LongAdder();
+   private final LongAdder total = new LongAdder();
+   private final AtomicLong max = new AtomicLong();
+
+   /**
+    * Record a duration.
+    *
+    * @param nanos The duration in nanoseconds. Negative durations are
+    *              recorded as 0.
+    */
+   public void record(long nanos) {
+      if (nanos < 0) {
+         nanos = 0;
+      }
+      counts.incrementAndGet(bucketOf(nanos));
+      count.increment();
+      total.add(nanos);
+      long currentMax = max.get();
+      while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+         currentMax = max.get();
+      }
+   }
+
+   /**
+    * Clear all recorded durations. Durations recorded concurrently with a
+    * reset may be partially kept.
+    */
+   public void reset() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         counts.set(i, 0);
+      }
+      count.reset();
+      total.reset();
+      max.set(0);
+   }
+
+   /**
+    * @return A copy of the recorded durations.
+    */
+   public Snapshot snapshot() {
+      long[] copy = new long[BUCKET_COUNT];
+      long copyCount = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         copy[i] = counts.get(i);
+         copyCount += copy[i];
+      }
+      //Count the buckets instead of using the counter, so percentiles are consistent with the copy
+      return new Snapshot(copy, copyCount, total.sum(), max.get());
+   }
+
+   private static int bucketOf(long value) {
+      if (value < SUB_BUCKET_COUNT) {
+         return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      if (exponent > MAX_EXPONENT) {
+         return BUCKET_COUNT - 1;
+      }
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+   }
+
+   /* The highest value that is counted in the given bucket. */
+   private static long highestValueOf(int bucket) {
+      if (bucket < SUB_BUCKET_COUNT) {
+         return bucket;
+      }
+      int shift = bucket / SUB_BUCKET_COUNT - 1;
+      long lowest = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+      return lowest + (1L << shift) - 1;
+   }
+
+   /**
+    * An immutable copy of the durations recorded by a LatencyHistogram.
+    */
+   public static class Snapshot {
+
+      private final long[] counts;
+      private final long count;
+      private final long total;
+      private final long max;
+
+      private Snapshot(long[] counts, long count, long total, long max) {
+         this.counts = counts;
+         this.count = count;
+         this.total = total;
+         this.max = max;
+      }
+
+      /**
+       * @return The amount of recorded durations.
+       */
+      public long getCount() {
+         return count;
+      }
+
+      /**
+       * @return The sum of all recorded durations in nanoseconds.
+       */
+      public long getTotalNanos() {
+         return total;
+      }
+
+      /**
+       * @return The longest recorded duration in nanoseconds.
+       */
+      public long getMaxNanos() {
+         return max;
+      }
+
+      /**
+       * @return The average recorded duration in nanoseconds, or 0 if
+       *         nothing was recorded.
+       */
+      public long getMeanNanos() {
+         return (count != 0) ? total / count : 0;
+      }
+
+      /**
+       * @param percentile The percentile, between 0 and 100.
+       *
+       * @return The duration in nanoseconds that the given percentage of
+       *         recorded durations does not exceed, or 0 if nothing was
+       *         recorded.
+       */
+      public long getPercentileNanos(double percentile) {
+         if (count == 0) {
+            return 0;
+         }
+         long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+         long seen = 0;
+         for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+               //The last bucket also counts every duration that is too long to track
+               return (i == counts.length - 1) ? max : Math.min(highestValueOf(i), max);
+            }
+         }
+         return max;
+      }
+
+   }
+
+}
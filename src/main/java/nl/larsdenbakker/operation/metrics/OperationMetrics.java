@@ -0,0 +1,73 @@
+package nl.larsdenbakker.operation.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+
+/**
+ * The recorded executions of all OperationTemplates of an OperationModule,
+ * mapped by the key of the template. Recording can be disabled, in which
+ * case executions are not timed at all.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class OperationMetrics {
+
+   private final ConcurrentMap<String, OperationStats> stats = new ConcurrentHashMap();
+   private volatile boolean enabled = true;
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   /**
+    * @param template The OperationTemplate.
+    *
+    * @return The stats of the given template, created if there are none yet.
+    */
+   public OperationStats getStats(OperationTemplate template) {
+      String key = template.getKey();
+      OperationStats templateStats = stats.get(key);
+      if (templateStats == null) {
+         templateStats = stats.computeIfAbsent(key, OperationStats::new);
+      }
+      return templateStats;
+   }
+
+   /**
+    * @param key The key of the OperationTemplate.
+    *
+    * @return A snapshot of the stats of the given template, or null if it
+    *         has not been executed.
+    */
+   public OperationStats.Snapshot getSnapshot(String key) {
+      OperationStats templateStats = stats.get(key);
+      return (templateStats != null) ? templateStats.snapshot() : null;
+   }
+
+   /**
+    * @return A snapshot of the stats of every template that has been
+    *         executed, in no particular order.
+    */
+   public List<OperationStats.Snapshot> getSnapshots() {
+      List<OperationStats.Snapshot> snapshots = new ArrayList(stats.size());
+      for (OperationStats templateStats : stats.values()) {
+         snapshots.add(templateStats.snapshot());
+      }
+      return snapshots;
+   }
+
+   /**
+    * Clear the stats of all templates.
+    */
+   public void reset() {
+      stats.clear();
+   }
+
+}
@@ -0,0 +1,138 @@
+package nl.larsdenbakker.operation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The recorded executions of a single OperationTemplate. The time spent on
+ * an execution is split in construction, binding the variables and creating
+ * the Operation, and execution, running the Operation. Executions that
+ * failed with an exception are counted as failures as well as errors.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class OperationStats {
+
+   private final String key;
+   private final LongAdder successes = new LongAdder();
+   private final LongAdder failures = new LongAdder();
+   private final LongAdder errors = new LongAdder();
+   private final LatencyHistogram construction = new LatencyHistogram();
+   private final LatencyHistogram execution = new LatencyHistogram();
+
+   protected OperationStats(String key) {
+      this.key = key;
+   }
+
+   /**
+    * @return The key of the OperationTemplate.
+    */
+   public String getKey() {
+      return key;
+   }
+
+   /**
+    * Record an execution that returned a response.
+    *
+    * @param constructionNanos The construction time in nanoseconds.
+    * @param executionNanos    The execution time in nanoseconds.
+    * @param succeeded         Whether or not the response was successful.
+    */
+   public void record(long constructionNanos, long executionNanos, boolean succeeded) {
+      construction.record(constructionNanos);
+      execution.record(executionNanos);
+      if (succeeded) {
+         successes.increment();
+      } else {
+         failures.increment();
+      }
+   }
+
+   /**
+    * Record an execution that failed with an exception. The time spent is
+    * recorded as construction time, since it is not known where the
+    * exception occurred.
+    *
+    * @param nanos The time spent in nanoseconds.
+    */
+   public void recordError(long nanos) {
+      construction.record(nanos);
+      failures.increment();
+      errors.increment();
+   }
+
+   public Snapshot snapshot() {
+      return new Snapshot(key, successes.sum(), failures.sum(), errors.sum(), construction.snapshot(), execution.snapshot());
+   }
+
+   /**
+    * An immutable copy of the recorded executions of an OperationTemplate.
+    */
+   public static class Snapshot {
+
+      private final String key;
+      private final long successes;
+      private final long failures;
+      private final long errors;
+      private final LatencyHistogram.Snapshot construction;
+      private final LatencyHistogram.Snapshot execution;
+
+      private Snapshot(String key, long successes, long failures, long errors, LatencyHistogram.Snapshot construction, LatencyHistogram.Snapshot execution) {
+         this.key = key;
+         this.successes = successes;
+         this.failures = failures;
+         this.errors = errors;
+         this.construction = construction;
+         this.execution = execution;
+      }
+
+      public String getKey() {
+         return key;
+      }
+
+      public long getInvocationCount() {
+         return successes + failures;
+      }
+
+      public long getSuccessCount() {
+         return successes;
+      }
+
+      /**
+       * @return The amount of failed executions, including the ones that
+       *         failed with an exception.
+       */
+      public long getFailureCount() {
+         return failures;
+      }
+
+      /**
+       * @return The amount of executions that failed with an exception.
+       */
+      public long getErrorCount() {
+         return errors;
+      }
+
+      /**
+       * @return The time spent binding variables and creating the Operation.
+       */
+      public LatencyHistogram.Snapshot getConstruction() {
+         return construction;
+      }
+
+      /**
+       * @return The time spent running the Operation.
+       */
+      public LatencyHistogram.Snapshot getExecution() {
+         return execution;
+      }
+
+      /**
+       * @return The total time spent on all executions in nanoseconds.
+       */
+      public long getTotalNanos() {
+         return construction.getTotalNanos() + execution.getTotalNanos();
+      }
+
+   }
+
+}
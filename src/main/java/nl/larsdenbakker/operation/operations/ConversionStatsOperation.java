@@ -0,0 +1,60 @@
+package nl.larsdenbakker.operation.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.conversion.ConversionStats;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to describe the conversions counted by the ConversionModule.
+ * The totals per way of converting and the cache hit rates are listed
+ * first, followed by the amount of conversions per source and target type.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConversionStatsOperation extends Operation {
+
+   /* Only conversions whose source or target type name contains this text are listed. Optional. */
+   public static final String KEY_FILTER = "filter".intern();
+   /* Whether or not to clear the counters after listing them. Default false. */
+   public static final String KEY_RESET = "reset".intern();
+
+   private final String filter;
+   private final boolean reset;
+
+   public ConversionStatsOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.filter = storage.get(KEY_FILTER, String.class);
+      this.reset = storage.get(KEY_RESET, Boolean.class, false);
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      ConversionStats stats = getContext().getOperationHandler().getConversionModule().getStats();
+      List<String> lines = new ArrayList();
+      lines.add("overrides " + stats.getOverrideHits() + ", casts " + stats.getCasts() + ", converters " + stats.getConverterHits()
+                + ", super type converters " + stats.getSuperTypeFallbacks() + ", failures " + stats.getFailures());
+      lines.add("collection element types " + describeCache(stats.getElementTypeCacheHits(), stats.getElementTypeCacheMisses()));
+      lines.add("map key and value types " + describeCache(stats.getMapTypesCacheHits(), stats.getMapTypesCacheMisses()));
+      for (Map.Entry<String, Long> entry : stats.getConversionCounts().entrySet()) {
+         if (filter == null || entry.getKey().toLowerCase().contains(filter.toLowerCase())) {
+            lines.add("   " + entry.getKey() + ": " + entry.getValue());
+         }
+      }
+      if (reset) {
+         stats.reset();
+      }
+      return OperationResponse.succeeded((ConversionStats.ENABLED) ? "Conversion stats:" : "Conversion stats (counting is disabled):")
+              .addMessages(lines);
+   }
+
+   private static String describeCache(long hits, long misses) {
+      long lookups = hits + misses;
+      return hits + " hits, " + misses + " misses" + ((lookups != 0) ? String.format(" (%.1f%%)", hits * 100d / lookups) : "");
+   }
+
+}
@@ -0,0 +1,53 @@
+package nl.larsdenbakker.operation.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.datapath.DataPathStats;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to describe the data paths counted by the DataPathModule. The
+ * totals are listed first, followed by the amount of resolutions per type
+ * of the object the paths started from.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class DataPathStatsOperation extends Operation {
+
+   /* Only types whose name contains this text are listed. Optional. */
+   public static final String KEY_FILTER = "filter".intern();
+   /* Whether or not to clear the counters after listing them. Default false. */
+   public static final String KEY_RESET = "reset".intern();
+
+   private final String filter;
+   private final boolean reset;
+
+   public DataPathStatsOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.filter = storage.get(KEY_FILTER, String.class);
+      this.reset = storage.get(KEY_RESET, Boolean.class, false);
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      DataPathStats stats = getContext().getOperationHandler().getDataPathModule().getStats();
+      List<String> lines = new ArrayList();
+      lines.add(stats.getResolutionCount() + " resolutions, " + stats.getFailures() + " failed, "
+                + String.format("%.1f", stats.getAverageDepth()) + " keys on average");
+      for (Map.Entry<String, Long> entry : stats.getResolutionCounts().entrySet()) {
+         if (filter == null || entry.getKey().toLowerCase().contains(filter.toLowerCase())) {
+            lines.add("   " + entry.getKey() + ": " + entry.getValue());
+         }
+      }
+      if (reset) {
+         stats.reset();
+      }
+      return OperationResponse.succeeded((DataPathStats.ENABLED) ? "Data path stats:" : "Data path stats (counting is disabled):")
+              .addMessages(lines);
+   }
+
+}
@@ -1,6 +1,7 @@
 package nl.larsdenbakker.operation.operations;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
@@ -29,13 +30,20 @@ public class ElementOfOperation extends Operation {
    private final ComparisonOperator operator;
    private final List<Object> left;
    private final List<Object> right;
+   //Indexed views of the values, cached for configured values
+   private final Collection<Object> leftIndex;
+   private final Collection<Object> rightIndex;
    private final boolean inverted;
 
    public ElementOfOperation(OperationContext context, Storage storage) throws InvalidInputException {
       super(context, storage);
       this.operator = storage.getAndAssert(KEY_OPERATOR, ComparisonOperator.class);
+      Object leftSource = storage.get(KEY_LEFT);
+      Object rightSource = storage.get(KEY_RIGHT);
       this.left = storage.getAndAssertCollection(KEY_LEFT, ArrayList.class, Object.class, 1);
       this.right = storage.getAndAssertCollection(KEY_RIGHT, ArrayList.class, Object.class, 1);
+      this.leftIndex = ComparisonUtils.indexed(leftSource, left);
+      this.rightIndex = ComparisonUtils.indexed(rightSource, right);
       this.inverted = storage.get(KEY_INVERTED, Boolean.class, false);
    }
 
@@ -46,12 +54,12 @@ public class ElementOfOperation extends Operation {
          if (right.size() == 1) {
             val = ComparisonUtils.elementOf(operator, left.get(0), right.get(0));
          } else {
-            val = ComparisonUtils.elementOf(operator, left.get(0), right);
+            val = ComparisonUtils.elementOf(operator, left.get(0), rightIndex);
          }
       } else if (right.size() == 1) {
-         val = ComparisonUtils.elementOf(operator, left, right.get(0));
+         val = ComparisonUtils.elementOf(operator, leftIndex, right.get(0));
       } else {
-         val = ComparisonUtils.elementOf(operator, left, right);
+         val = ComparisonUtils.elementOf(operator, leftIndex, rightIndex);
       }
       return OperationResponse.of((inverted) ? !val : val);
    }
@@ -0,0 +1,187 @@
+package nl.larsdenbakker.operation.operations;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javafx.util.Pair;
+import nl.larsdenbakker.app.Application;
+import nl.larsdenbakker.app.ApplicationUser;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.property.properties.Properties;
+import nl.larsdenbakker.property.properties.Property;
+import nl.larsdenbakker.registry.Registrable;
+import nl.larsdenbakker.registry.Registry;
+import nl.larsdenbakker.registry.RegistryModule;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.ObjectSizeEstimator;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to estimate the memory retained by the registered data. Every
+ * Registry reachable from the RootRegistry is measured with an
+ * ObjectSizeEstimator, attributing to it the values registered to it and
+ * the objects only they reference: their storage, converted collections and
+ * DataReferences. Modules, templates, Properties, other registries and the
+ * Registrables registered to them are not counted, so shared data is
+ * attributed to the Registry it is registered to.
+ *
+ * The report lists the size per Registry, the size per value type, the
+ * size of the type caches of the ConversionModule and the classes that use
+ * the most memory. Sizes are estimates, and the data is measured while it
+ * may be modified by other operations.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class MemoryReportOperation extends Operation {
+
+   /* The amount of classes to list. Default 10. */
+   public static final String KEY_TOP = "top".intern();
+
+   private final int top;
+
+   //The Registry that is being measured
+   private Registry measuring;
+
+   public MemoryReportOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.top = storage.get(KEY_TOP, Integer.class, 10);
+      if (top < 0) {
+         throw new InvalidInputException("Top must be at least 0.");
+      }
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      RegistryModule registryModule = getContext().getOperationHandler().getRegistryModule();
+      List<Registry> registries = new ArrayList();
+      List<Integer> depths = new ArrayList();
+      collectRegistries(registryModule.getRootRegistry(), 0, registries, depths);
+
+      ObjectSizeEstimator estimator = new ObjectSizeEstimator(this::isBoundary);
+      Map<Class<?>, long[]> types = new HashMap();
+      List<String> registryLines = new ArrayList(registries.size());
+      long total = 0;
+      for (int i = 0; i < registries.size(); i++) {
+         Registry registry = registries.get(i);
+         measuring = registry;
+         long valuesSize = 0;
+         int valueCount = 0;
+         for (Object value : new ArrayList<>(registry.getAll())) {
+            if (value instanceof Registry) {
+               continue;
+            }
+            long size = estimator.measure(value);
+            long[] type = types.computeIfAbsent(value.getClass(), (Class<?> c) -> new long[2]);
+            type[0]++;
+            type[1] += size;
+            valuesSize += size;
+            valueCount++;
+         }
+         long overhead = estimator.measure(registry);
+         total += valuesSize + overhead;
+         registryLines.add(indent(depths.get(i)) + describe(registry) + ": " + valueCount + " values, "
+                           + formatBytes(valuesSize + overhead) + " (" + formatBytes(overhead) + " registry)");
+      }
+      measuring = null;
+
+      List<String> lines = new ArrayList();
+      lines.add("Estimated " + formatBytes(total) + " in " + estimator.getObjectCount() + " objects held by " + registries.size() + " registries.");
+      lines.add("Registries:");
+      lines.addAll(registryLines);
+      lines.add("Value types:");
+      for (Map.Entry<Class<?>, long[]> entry : sortBySize(types, types.size())) {
+         long[] type = entry.getValue();
+         lines.add("   " + entry.getKey().getSimpleName() + ": " + type[0] + " values, " + formatBytes(type[1])
+                   + " (" + formatBytes(type[1] / type[0]) + " each)");
+      }
+
+      ConversionModule conversionModule = registryModule.getConversionModule();
+      int elementTypes = conversionModule.getCachedElementTypeCount();
+      int keyValueTypes = conversionModule.getCachedKeyValueTypesCount();
+      long entrySize = weakHashMapEntrySize();
+      long cacheSize = elementTypes * entrySize + keyValueTypes * (entrySize + ObjectSizeEstimator.shallowSizeOf(Pair.class));
+      lines.add("Type caches: " + elementTypes + " collection element types, " + keyValueTypes + " map key-value types, "
+                + formatBytes(cacheSize) + ".");
+
+      if (top > 0) {
+         lines.add("Top classes:");
+         for (Map.Entry<Class<?>, long[]> entry : sortBySize(estimator.getHistogram(), top)) {
+            long[] type = entry.getValue();
+            lines.add("   " + entry.getKey().getName() + ": " + type[0] + " objects, " + formatBytes(type[1]));
+         }
+      }
+      return OperationResponse.succeeded("Memory report:").addMessages(lines);
+   }
+
+   private static void collectRegistries(Registry registry, int depth, List<Registry> registries, List<Integer> depths) {
+      registries.add(registry);
+      depths.add(depth);
+      for (Object value : new ArrayList<>(registry.getAll())) {
+         if (value instanceof Registry) {
+            collectRegistries((Registry) value, depth + 1, registries, depths);
+         }
+      }
+   }
+
+   /* Objects that are shared or belong to another Registry are not attributed to the measured Registry. */
+   private boolean isBoundary(Object obj) {
+      if (obj instanceof Module || obj instanceof Application || obj instanceof ApplicationUser
+          || obj instanceof Class || obj instanceof ClassLoader || obj instanceof Thread
+          || obj instanceof OperationTemplate || obj instanceof Property || obj instanceof Properties) {
+         return true;
+      } else if (obj instanceof Registry) {
+         return obj != measuring;
+      } else if (obj instanceof Registrable) {
+         Registry parent = ((Registrable) obj).getParentRegistry();
+         return parent != null && parent != measuring;
+      }
+      return false;
+   }
+
+   private static List<Map.Entry<Class<?>, long[]>> sortBySize(Map<Class<?>, long[]> sizes, int limit) {
+      List<Map.Entry<Class<?>, long[]>> entries = new ArrayList(sizes.entrySet());
+      entries.sort((Map.Entry<Class<?>, long[]> a, Map.Entry<Class<?>, long[]> b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+      return (entries.size() > limit) ? entries.subList(0, limit) : entries;
+   }
+
+   private static long weakHashMapEntrySize() {
+      try {
+         return ObjectSizeEstimator.shallowSizeOf(Class.forName(WeakHashMap.class.getName() + "$Entry"));
+      } catch (ClassNotFoundException ex) {
+         //A WeakReference with a value, hash and next entry
+         return ObjectSizeEstimator.shallowSizeOf(WeakReference.class) + 16;
+      }
+   }
+
+   private static String describe(Registry registry) {
+      return (registry.getKey() != null) ? registry.getKey().toString() : registry.getClass().getSimpleName();
+   }
+
+   private static String indent(int depth) {
+      StringBuilder sb = new StringBuilder("   ");
+      for (int i = 0; i < depth; i++) {
+         sb.append("   ");
+      }
+      return sb.toString();
+   }
+
+   private static String formatBytes(long bytes) {
+      if (bytes < 1024) {
+         return bytes + " B";
+      } else if (bytes < 1024 * 1024) {
+         return String.format("%.1f KB", bytes / 1024d);
+      } else if (bytes < 1024 * 1024 * 1024) {
+         return String.format("%.1f MB", bytes / (1024d * 1024));
+      } else {
+         return String.format("%.2f GB", bytes / (1024d * 1024 * 1024));
+      }
+   }
+
+}
@@ -0,0 +1,84 @@
+package nl.larsdenbakker.operation.operations;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.metrics.LatencyHistogram;
+import nl.larsdenbakker.operation.metrics.OperationMetrics;
+import nl.larsdenbakker.operation.metrics.OperationStats;
+import nl.larsdenbakker.storage.Storage;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * Operation to describe the recorded executions of OperationTemplates. The
+ * templates are listed by the total time spent on them, the most expensive
+ * first.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class OperationStatsOperation extends Operation {
+
+   /* Only templates whose key contains this text are listed. Optional. */
+   public static final String KEY_FILTER = "filter".intern();
+   /* Whether or not to clear the recorded executions after listing them. Default false. */
+   public static final String KEY_RESET = "reset".intern();
+
+   private final String filter;
+   private final boolean reset;
+
+   public OperationStatsOperation(OperationContext context, Storage storage) throws InvalidInputException {
+      super(context, storage);
+      this.filter = storage.get(KEY_FILTER, String.class);
+      this.reset = storage.get(KEY_RESET, Boolean.class, false);
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      OperationMetrics metrics = getContext().getOperationHandler().getMetrics();
+      List<OperationStats.Snapshot> snapshots = new ArrayList();
+      for (OperationStats.Snapshot snapshot : metrics.getSnapshots()) {
+         if (filter == null || snapshot.getKey().toLowerCase().contains(filter.toLowerCase())) {
+            snapshots.add(snapshot);
+         }
+      }
+      snapshots.sort(Comparator.comparingLong(OperationStats.Snapshot::getTotalNanos).reversed());
+      if (reset) {
+         metrics.reset();
+      }
+
+      OperationResponse response = OperationResponse.succeeded((metrics.isEnabled()) ? "Operation stats:" : "Operation stats (recording is disabled):");
+      if (snapshots.isEmpty()) {
+         return response.addMessages("No operations have been executed.");
+      }
+      List<String> lines = new ArrayList(snapshots.size() * 3);
+      for (OperationStats.Snapshot snapshot : snapshots) {
+         lines.add(snapshot.getKey() + ": " + snapshot.getInvocationCount() + " calls, " + snapshot.getSuccessCount() + " succeeded, "
+                   + snapshot.getFailureCount() + " failed (" + snapshot.getErrorCount() + " errors)");
+         lines.add("   construction " + describe(snapshot.getConstruction()));
+         lines.add("   execution    " + describe(snapshot.getExecution()));
+      }
+      return response.addMessages(lines);
+   }
+
+   private static String describe(LatencyHistogram.Snapshot histogram) {
+      return "mean " + formatNanos(histogram.getMeanNanos())
+             + " p50 " + formatNanos(histogram.getPercentileNanos(50))
+             + " p99 " + formatNanos(histogram.getPercentileNanos(99))
+             + " max " + formatNanos(histogram.getMaxNanos());
+   }
+
+   private static String formatNanos(long nanos) {
+      if (nanos < 1_000) {
+         return nanos + "ns";
+      } else if (nanos < 1_000_000) {
+         return String.format("%.1fus", nanos / 1_000d);
+      } else if (nanos < 1_000_000_000) {
+         return String.format("%.1fms", nanos / 1_000_000d);
+      } else {
+         return String.format("%.2fs", nanos / 1_000_000_000d);
+      }
+   }
+
+}
@@ -1,11 +1,14 @@
 package nl.larsdenbakker.operation.operations.constraints;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.app.InvalidInputException;
 import nl.larsdenbakker.operation.operations.TargetedOperation;
+import nl.larsdenbakker.operation.template.Validator;
+import nl.larsdenbakker.util.ComparisonUtils;
 import nl.larsdenbakker.util.OperationResponse;
 import nl.larsdenbakker.util.TextUtils;
 
@@ -24,24 +27,60 @@ public class FilterConstraint<T> extends TargetedOperation<T> {
 
    private final List<T> allowedValues;
    private final List<T> blockedValues;
+   //Indexed views of the values, cached for configured values
+   private final Collection<Object> allowedIndex;
+   private final Collection<Object> blockedIndex;
 
    public FilterConstraint(OperationContext context, Storage storage, Class<T> inputType) throws InvalidInputException {
       super(context, storage, inputType);
+      Object allowedSource = storage.get(KEY_ALLOWED_VALUES);
+      Object blockedSource = storage.get(KEY_BLOCKED_VALUES);
       this.allowedValues = storage.getCollection(KEY_ALLOWED_VALUES, ArrayList.class, inputType);
       this.blockedValues = storage.getCollection(KEY_BLOCKED_VALUES, ArrayList.class, inputType);
-      if (allowedValues.isEmpty() && blockedValues.isEmpty()) {
-         throw new InvalidInputException("allowed-values and blocked-values are both empty");
-      }
+      checkValues(allowedValues, blockedValues);
+      this.allowedIndex = ComparisonUtils.indexed(allowedSource, allowedValues);
+      this.blockedIndex = ComparisonUtils.indexed(blockedSource, blockedValues);
    }
 
-   @Override
-   protected OperationResponse _execute() {
-      T target = getTarget();
-      if (allowedValues == null || allowedValues.contains(target)) {
-         if (blockedValues == null || !blockedValues.contains(target)) {
-            return OperationResponse.succeeded();
+   public FilterConstraint(OperationContext context, Storage storage) throws InvalidInputException {
+      this(context, storage, (Class<T>) Object.class);
+   }
+
+   /**
+    * Compile this constraint into a Validator for targets of any type.
+    *
+    * @param storage The storage containing the constraint parameters.
+    *
+    * @return The Validator.
+    * @throws InvalidInputException if the parameters are invalid.
+    */
+   public static Validator compileValidator(Storage storage) throws InvalidInputException {
+      List<Object> allowedValues = storage.getCollection(KEY_ALLOWED_VALUES, ArrayList.class, Object.class);
+      List<Object> blockedValues = storage.getCollection(KEY_BLOCKED_VALUES, ArrayList.class, Object.class);
+      checkValues(allowedValues, blockedValues);
+      Collection<Object> allowedIndex = ComparisonUtils.indexed(allowedValues);
+      Collection<Object> blockedIndex = ComparisonUtils.indexed(blockedValues);
+      return new TargetValidator<Object>(storage.getConversionModule(), Object.class) {
+         @Override
+         protected String check(Object target) {
+            //Rejections are rare, they share the response of an execution to report the same message
+            return (isAllowed(target, allowedIndex, blockedIndex)) ? null : getFailure(target, allowedValues).getMessage();
          }
+      };
+   }
+
+   private static void checkValues(Collection<?> allowedValues, Collection<?> blockedValues) throws InvalidInputException {
+      if ((allowedValues == null || allowedValues.isEmpty()) && (blockedValues == null || blockedValues.isEmpty())) {
+         throw new InvalidInputException("allowed-values and blocked-values are both empty");
       }
+   }
+
+   private static boolean isAllowed(Object target, Collection<?> allowedValues, Collection<?> blockedValues) {
+      return (allowedValues == null || allowedValues.contains(target))
+             && (blockedValues == null || !blockedValues.contains(target));
+   }
+
+   private static OperationResponse getFailure(Object target, Collection<?> allowedValues) {
       OperationResponse result = OperationResponse.failed(TextUtils.getDescription(target) + " is not allowed.");
       if (allowedValues != null) {
          result.addMessages("Allowed values: " + TextUtils.getDescription(allowedValues));
@@ -49,4 +88,13 @@ public class FilterConstraint<T> extends TargetedOperation<T> {
       return result;
    }
 
+   @Override
+   protected OperationResponse _execute() {
+      T target = getTarget();
+      if (isAllowed(target, allowedIndex, blockedIndex)) {
+         return OperationResponse.succeeded();
+      }
+      return getFailure(target, allowedValues);
+   }
+
 }
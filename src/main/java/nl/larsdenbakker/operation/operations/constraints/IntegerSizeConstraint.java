@@ -4,6 +4,7 @@ import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.util.OperationResponse;
 
 /**
@@ -22,6 +23,30 @@ public class IntegerSizeConstraint extends TargetedOperation<Integer> {
       super(context, storage, Integer.class);
       this.minSize = storage.get(KEY_MIN_SIZE, Integer.class, -1);
       this.maxSize = storage.get(KEY_MAX_SIZE, Integer.class, -1);
+      checkBounds(minSize, maxSize);
+   }
+
+   /**
+    * Compile this constraint into a Validator.
+    *
+    * @param storage The storage containing the constraint parameters.
+    *
+    * @return The Validator.
+    * @throws InvalidInputException if the parameters are invalid.
+    */
+   public static Validator compileValidator(Storage storage) throws InvalidInputException {
+      int minSize = storage.get(KEY_MIN_SIZE, Integer.class, -1);
+      int maxSize = storage.get(KEY_MAX_SIZE, Integer.class, -1);
+      checkBounds(minSize, maxSize);
+      return new TargetValidator<Integer>(storage.getConversionModule(), Integer.class) {
+         @Override
+         protected String check(Integer target) {
+            return getError(target, minSize, maxSize);
+         }
+      };
+   }
+
+   private static void checkBounds(int minSize, int maxSize) throws InvalidInputException {
       if (minSize == -1 && maxSize == -1) {
          throw new InvalidInputException("Neither min-size nor max-size is set.");
       } else if (maxSize != -1 && maxSize < minSize) {
@@ -29,16 +54,20 @@ public class IntegerSizeConstraint extends TargetedOperation<Integer> {
       }
    }
 
-   @Override
-   protected OperationResponse _execute() {
-      Integer target = getTarget();
+   private static String getError(int target, int minSize, int maxSize) {
       if (minSize != -1 && target < minSize) {
-         return OperationResponse.failed("Input cannot be lower than " + minSize + ".");
+         return "Input cannot be lower than " + minSize + ".";
       }
       if (maxSize != -1 && target > maxSize) {
-         return OperationResponse.failed("Input cannot be higher than " + maxSize + ".");
+         return "Input cannot be higher than " + maxSize + ".";
       }
-      return OperationResponse.succeeded();
+      return null;
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      String error = getError(getTarget(), minSize, maxSize);
+      return (error == null) ? OperationResponse.succeeded() : OperationResponse.failed(error);
    }
 
 }
@@ -4,6 +4,7 @@ import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.util.OperationResponse;
 
 /**
@@ -25,6 +26,30 @@ public class StringLengthConstraint extends TargetedOperation<String> {
       super(context, storage, String.class);
       this.minLength = storage.get(KEY_MIN_LENGTH, Integer.class, -1);
       this.maxLength = storage.get(KEY_MAX_LENGTH, Integer.class, -1);
+      checkBounds(minLength, maxLength);
+   }
+
+   /**
+    * Compile this constraint into a Validator.
+    *
+    * @param storage The storage containing the constraint parameters.
+    *
+    * @return The Validator.
+    * @throws InvalidInputException if the parameters are invalid.
+    */
+   public static Validator compileValidator(Storage storage) throws InvalidInputException {
+      int minLength = storage.get(KEY_MIN_LENGTH, Integer.class, -1);
+      int maxLength = storage.get(KEY_MAX_LENGTH, Integer.class, -1);
+      checkBounds(minLength, maxLength);
+      return new TargetValidator<String>(storage.getConversionModule(), String.class) {
+         @Override
+         protected String check(String target) {
+            return getError(target, minLength, maxLength);
+         }
+      };
+   }
+
+   private static void checkBounds(int minLength, int maxLength) throws InvalidInputException {
       if (minLength == -1 && maxLength == -1) {
          throw new InvalidInputException("Neither min-length nor max-length is set.");
       } else if (maxLength != -1 && maxLength < minLength) {
@@ -32,20 +57,24 @@ public class StringLengthConstraint extends TargetedOperation<String> {
       }
    }
 
-   @Override
-   protected OperationResponse _execute() {
-      String target = getTarget();
+   private static String getError(String target, int minLength, int maxLength) {
       if (minLength != -1) {
          if (target.length() < minLength) {
-            return OperationResponse.failed("Input must be at least " + minLength + " characters long.");
+            return "Input must be at least " + minLength + " characters long.";
          }
       }
       if (maxLength != -1) {
          if (target.length() > maxLength) {
-            return OperationResponse.failed("Input cannot be longer than " + maxLength + " characters.");
+            return "Input cannot be longer than " + maxLength + " characters.";
          }
       }
-      return OperationResponse.succeeded();
+      return null;
+   }
+
+   @Override
+   protected OperationResponse _execute() {
+      String error = getError(getTarget(), minLength, maxLength);
+      return (error == null) ? OperationResponse.succeeded() : OperationResponse.failed(error);
    }
 
 }
@@ -0,0 +1,58 @@
+package nl.larsdenbakker.operation.operations.constraints;
+
+import nl.larsdenbakker.conversion.ConversionException;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.operations.AbstractTargetedOperation;
+import nl.larsdenbakker.operation.template.Validator;
+import nl.larsdenbakker.util.TextUtils;
+
+/**
+ * Base class for the Validators that constraint Operations compile into.
+ * The target is converted to the target type of the constraint the same way
+ * a TargetedOperation converts it, targets that already have the correct type
+ * are checked without any conversion.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ * @param <T> The target type.
+ */
+public abstract class TargetValidator<T> implements Validator {
+
+   private static final String ERROR_PREFIX = "An error occurred when executing this operation: ";
+
+   private final ConversionModule conversionModule;
+   private final Class<T> targetType;
+
+   public TargetValidator(ConversionModule conversionModule, Class<T> targetType) {
+      this.conversionModule = conversionModule;
+      this.targetType = targetType;
+   }
+
+   @Override
+   public String validate(Object target) {
+      if (target == null) {
+         return ERROR_PREFIX + "Missing value at: '." + AbstractTargetedOperation.KEY_TARGET + "'";
+      }
+      T t;
+      if (targetType.isInstance(target)) {
+         t = (T) target;
+      } else {
+         try {
+            t = conversionModule.convert(target, targetType);
+         } catch (ConversionException ex) {
+            return ERROR_PREFIX + TextUtils.getTypeAndValueDescription(target) + " could not be converted to type: " + TextUtils.getDescription(targetType);
+         }
+      }
+      return check(t);
+   }
+
+   /**
+    * Check the converted target.
+    *
+    * @param target The non-null target.
+    *
+    * @return null if the target is valid, otherwise a message describing why
+    *         it is not.
+    */
+   protected abstract String check(T target);
+
+}
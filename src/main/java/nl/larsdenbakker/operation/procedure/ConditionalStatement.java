@@ -25,7 +25,7 @@ public class ConditionalStatement implements ProcedureTask {
    @Override
    public OperationResponse execute(OperationContext context, boolean stopOnFailure) {
       OperationResponse result = ifStatement.execute(context, true);
-      result = (result.hasSucceeded()) ? thenStatement.execute(context, false) : elseStatement.execute(context, false);
+      result = (result.hasSucceeded()) ? thenStatement.execute(context, stopOnFailure) : elseStatement.execute(context, stopOnFailure);
       return result;
    }
 }
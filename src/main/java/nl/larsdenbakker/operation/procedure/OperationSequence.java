@@ -1,11 +1,14 @@
 package nl.larsdenbakker.operation.procedure;
 
+import java.util.ArrayList;
+import java.util.List;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.template.OperationTemplate;
 import nl.larsdenbakker.util.OperationResponse;
 
 /**
  * A type of ProcedureTask that executed a series of OperationTemplates sequentially.
+ * The responses are aggregated in the order the OperationTemplates were defined.
  *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
@@ -17,15 +20,25 @@ public class OperationSequence implements ProcedureTask {
       this.templates = templates;
    }
 
+   public OperationTemplate[] getTemplates() {
+      return templates;
+   }
+
    @Override
    public OperationResponse execute(OperationContext context, boolean stopOnFailure) {
+      boolean succeeded = true;
+      List<String> messages = new ArrayList();
       for (OperationTemplate template : templates) {
-         OperationResponse result = new OperationContext(context, template).execute();
-         if (stopOnFailure && !result.hasSucceeded()) {
-            return result;
+         OperationResponse result = context.enter(template).execute();
+         if (!result.hasSucceeded()) {
+            if (stopOnFailure) {
+               return result;
+            }
+            succeeded = false;
          }
+         messages.addAll(result.getMessages());
       }
-      return OperationResponse.succeeded();
+      return OperationResponse.of(succeeded).addMessages(messages);
    }
 
 }
@@ -0,0 +1,140 @@
+package nl.larsdenbakker.operation.procedure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.util.OperationResponse;
+
+/**
+ * A type of ProcedureTask that executes a series of independent OperationTemplates
+ * concurrently on a ForkJoinPool. The responses are aggregated in the order the
+ * OperationTemplates were defined. If execution should stop on failure, the
+ * first failing OperationTemplate cancels the ones that have not started yet and
+ * its response is returned.
+ *
+ * Operations may block, for instance on file or network access. They are executed
+ * on a pool of daemon threads of their own instead of the common pool, the size
+ * of which is set by the system property lbtools.procedure.parallelism, and the
+ * pool is allowed to start a replacement thread while an operation runs.
+ *
+ * @author Lars den Bakker<larsdenbakker@gmail.com>
+ */
+public class ParallelSequence implements ProcedureTask {
+
+   /* The maximum amount of operations of parallel sequences executing at the same time, not counting replacement threads. */
+   private static final int PARALLELISM = Integer.getInteger("lbtools.procedure.parallelism", Runtime.getRuntime().availableProcessors());
+
+   private final ForkJoinPool pool;
+   private final OperationTemplate[] templates;
+
+   public ParallelSequence(ForkJoinPool pool, OperationTemplate... templates) {
+      this.pool = pool;
+      this.templates = templates;
+   }
+
+   public ParallelSequence(OperationTemplate... templates) {
+      this(DefaultPool.POOL, templates);
+   }
+
+   public OperationTemplate[] getTemplates() {
+      return templates;
+   }
+
+   @Override
+   public OperationResponse execute(OperationContext context, boolean stopOnFailure) {
+      if (templates.length == 0) {
+         return OperationResponse.succeeded();
+      }
+      ForkJoinTask<OperationResponse>[] tasks = new ForkJoinTask[templates.length];
+      for (int i = 0; i < templates.length; i++) {
+         OperationTemplate template = templates[i];
+         int index = i;
+         tasks[i] = ForkJoinTask.adapt(() -> {
+            OperationResponse result = execute(new OperationContext(context, template));
+            if (stopOnFailure && !result.hasSucceeded()) {
+               cancelOthers(tasks, index);
+            }
+            return result;
+         });
+      }
+      for (int i = 1; i < tasks.length; i++) {
+         pool.execute(tasks[i]);
+      }
+      //The first task is executed by the calling thread
+      tasks[0].quietlyInvoke();
+
+      boolean succeeded = true;
+      List<String> messages = new ArrayList();
+      for (ForkJoinTask<OperationResponse> task : tasks) {
+         OperationResponse result;
+         try {
+            result = task.join();
+         } catch (CancellationException ex) {
+            continue;
+         }
+         if (!result.hasSucceeded()) {
+            if (stopOnFailure) {
+               return result;
+            }
+            succeeded = false;
+         }
+         messages.addAll(result.getMessages());
+      }
+      return OperationResponse.of(succeeded).addMessages(messages);
+   }
+
+   /* Executes the operation as a blocking action, so the pool can compensate for the thread it occupies. */
+   private static OperationResponse execute(OperationContext context) throws InterruptedException {
+      OperationBlocker blocker = new OperationBlocker(context);
+      ForkJoinPool.managedBlock(blocker);
+      return blocker.result;
+   }
+
+   private static void cancelOthers(ForkJoinTask[] tasks, int index) {
+      for (int i = 0; i < tasks.length; i++) {
+         if (i != index) {
+            tasks[i].cancel(false);
+         }
+      }
+   }
+
+   private static class OperationBlocker implements ForkJoinPool.ManagedBlocker {
+
+      private final OperationContext context;
+      private OperationResponse result;
+
+      private OperationBlocker(OperationContext context) {
+         this.context = context;
+      }
+
+      @Override
+      public boolean block() {
+         result = context.execute();
+         return true;
+      }
+
+      @Override
+      public boolean isReleasable() {
+         return result != null;
+      }
+
+   }
+
+   /* Created when a ParallelSequence without a pool is first created. */
+   private static class DefaultPool {
+
+      private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, (ForkJoinPool pool) -> {
+         ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+         thread.setName("procedure-worker-" + thread.getPoolIndex());
+         thread.setDaemon(true);
+         return thread;
+      }, null, false);
+
+   }
+
+}
@@ -1,5 +1,7 @@
 package nl.larsdenbakker.operation.procedure;
 
+import java.util.ArrayList;
+import java.util.List;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.operations.Operation;
 import nl.larsdenbakker.operation.OperationContext;
@@ -8,6 +10,8 @@ import nl.larsdenbakker.util.OperationResponse;
 
 /**
  * A type of Operation that consists of one or more ProdecureTasks that are executed in order.
+ * Execution stops at the first ProcedureTask that fails, whose response is the response of the
+ * Procedure. Otherwise the Procedure succeeds with the messages of all ProcedureTasks.
  *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
@@ -22,10 +26,15 @@ public class Procedure extends Operation {
 
    @Override
    protected OperationResponse _execute() {
+      List<String> messages = new ArrayList();
       for (ProcedureTask procedureTask : procedureTasks) {
-         procedureTask.execute(getContext(), false);
+         OperationResponse result = procedureTask.execute(getContext(), true);
+         if (!result.hasSucceeded()) {
+            return result;
+         }
+         messages.addAll(result.getMessages());
       }
-      return OperationResponse.succeeded();
+      return OperationResponse.succeeded().addMessages(messages);
    }
 
 }
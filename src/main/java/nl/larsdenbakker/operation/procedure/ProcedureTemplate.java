@@ -1,17 +1,31 @@
 package nl.larsdenbakker.operation.procedure;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.operations.Operation;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.operation.variables.Variable;
 import nl.larsdenbakker.app.InvalidInputException;
 
 /**
  * A template to that defines ProcedureTasks and variables for a Procedure.
  *
+ * A Procedure that only consists of operation sequences is compiled into a
+ * Validator that validates the target with the Validators of its operations,
+ * in order, each bound to the variables of the Procedure. Like an execution of
+ * the Procedure, which stops at the first operation that fails, the target is
+ * valid if it is valid for all of them and the first error is reported. An
+ * operation that does not declare the target as a variable does not see the
+ * target when it is executed, such Procedures are validated by executing them.
+ *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
 public class ProcedureTemplate extends OperationTemplate {
@@ -27,6 +41,54 @@ public class ProcedureTemplate extends OperationTemplate {
       return procedures;
    }
 
+   @Override
+   public Validator compileValidator(Map<String, Object> parameters) {
+      Map<String, Object> bound = bindParameters(parameters);
+      if (bound == null) {
+         return super.compileValidator(parameters);
+      }
+      //Like the arguments of an execution, parameters that are not variables are set as well
+      for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+         bound.putIfAbsent(entry.getKey(), entry.getValue());
+      }
+      List<OperationTemplate> templates = new ArrayList();
+      for (ProcedureTask procedure : procedures) {
+         if (procedure instanceof OperationSequence) {
+            Collections.addAll(templates, ((OperationSequence) procedure).getTemplates());
+         } else if (procedure instanceof ParallelSequence) {
+            Collections.addAll(templates, ((ParallelSequence) procedure).getTemplates());
+         } else {
+            return super.compileValidator(parameters);
+         }
+      }
+      Validator[] validators = new Validator[templates.size()];
+      for (int i = 0; i < validators.length; i++) {
+         Map<String, Object> operationParameters = templates.get(i).bindParameters(bound);
+         if (operationParameters == null || !declaresTarget(templates.get(i))) {
+            return super.compileValidator(parameters);
+         }
+         validators[i] = templates.get(i).compileValidator(operationParameters);
+      }
+      return (Object target) -> {
+         for (Validator validator : validators) {
+            String error = validator.validate(target);
+            if (error != null) {
+               return error;
+            }
+         }
+         return null;
+      };
+   }
+
+   private static boolean declaresTarget(OperationTemplate template) {
+      for (Variable variable : template.getVariables()) {
+         if (variable.getName().equals(TargetedOperation.KEY_TARGET)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
    @Override
    public Operation createInstance(OperationContext context, Storage storage) throws InvalidInputException {
       return new Procedure(context, storage, procedures);
@@ -0,0 +1,257 @@
+package nl.larsdenbakker.operation.template;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.larsdenbakker.app.ApplicationUser;
+import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.conversion.ConversionException;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.conversion.reference.DataReferencable;
+import nl.larsdenbakker.operation.OperationContext;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.operation.variables.VariableTemplate;
+import nl.larsdenbakker.storage.MemoryStorage;
+import nl.larsdenbakker.storage.MemoryStorageRoot;
+import nl.larsdenbakker.storage.Storage;
+
+/**
+ * The compiled form of an OperationTemplate. Everything that does not depend
+ * on the arguments of an execution is resolved when the plan is created:
+ * variables are classified, the Operation constructor is looked up and the
+ * size of the execution storage is known up front. Executing the plan only
+ * binds the runtime values to a storage and creates the Operation.
+ *
+ * Literal variables are constants of the plan. They are put in the execution
+ * storage in one go instead of one by one, and the conversions the Operation
+ * constructor does on them are remembered by the plan when the result is an
+ * immutable value, so that every execution after the first reads the
+ * converted parameter instead of converting it again.
+ *
+ * An ExecutionPlan can be shared between threads.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ExecutionPlan {
+
+   public static final String KEY_EXECUTOR = "executor";
+
+   private static final int MAX_CACHED_INTERPOLATIONS = 64;
+
+   private static final Set<Class> IMMUTABLE_TYPES = ImmutableSet.of(String.class, Boolean.class, Character.class, Byte.class, Short.class,
+                                                                     Integer.class, Long.class, Float.class, Double.class,
+                                                                     BigInteger.class, BigDecimal.class, Class.class);
+
+   private final OperationTemplate template;
+   private final Variable[] variables;
+   private final Variable[] dynamicVariables;
+   private final Map<String, Object> constants;
+   private final Map<String, Map<Class, Object>> conversions;
+   private final int storageCapacity;
+   //Texts whose variables were replaced during executions of this plan, compiled once
+   private final Map<String, VariableTemplate.Interpolation> interpolations = new ConcurrentHashMap();
+
+   protected ExecutionPlan(OperationTemplate template) {
+      this.template = template;
+      this.variables = template.getVariables().clone();
+      List<Variable> dynamic = new ArrayList();
+      Map<String, Object> constantValues = new HashMap();
+      ImmutableMap.Builder<String, Map<Class, Object>> constantConversions = ImmutableMap.builder();
+      //A literal can only be set up front if no earlier variable could have looked it up in the storage
+      boolean localLookups = false;
+      for (Variable variable : variables) {
+         if (!localLookups && isConstant(variable)) {
+            constantValues.put(variable.getName(), variable.getValue());
+            constantConversions.put(variable.getName(), new ConcurrentHashMap());
+         } else {
+            dynamic.add(variable);
+            localLookups |= variable.getTemplate() instanceof VariableTemplate.Reference
+                            || variable.getTemplate() instanceof VariableTemplate.Interpolation;
+         }
+      }
+      this.dynamicVariables = dynamic.toArray(new Variable[dynamic.size()]);
+      this.constants = constantValues;
+      this.conversions = constantConversions.build();
+      //Variables plus the executor and operation name, at the default load factor
+      this.storageCapacity = (int) ((variables.length + 2) / 0.75f) + 1;
+   }
+
+   private static boolean isConstant(Variable variable) {
+      return variable.getTemplate() instanceof VariableTemplate.Literal
+             && variable.getName().indexOf('.') < 0
+             && !(variable.getValue() instanceof DataReferencable);
+   }
+
+   public OperationTemplate getTemplate() {
+      return template;
+   }
+
+   /**
+    * Create a storage for an execution of this plan that fits all variables
+    * without having to be resized, and already contains the constants.
+    *
+    * @param conversionModule The ConversionModule of the storage.
+    *
+    * @return The storage.
+    */
+   public Storage createStorage(ConversionModule conversionModule) {
+      ExecutionStorage storage = new ExecutionStorage(conversionModule, storageCapacity);
+      storage.setConstants(this);
+      return storage;
+   }
+
+   /**
+    * Empty a storage of an execution of this plan for another execution of
+    * this plan, only the constants remain.
+    *
+    * @param storage The storage, created by createStorage(ConversionModule).
+    */
+   public void resetStorage(Storage storage) {
+      if (storage instanceof ExecutionStorage) {
+         ExecutionStorage executionStorage = (ExecutionStorage) storage;
+         executionStorage.clear();
+         executionStorage.setConstants(this);
+      } else if (storage instanceof MemoryStorage) {
+         ((MemoryStorage) storage).clear();
+      }
+   }
+
+   /**
+    * Map the variables of this plan from the parent storage to the storage
+    * of an execution and register the default variables.
+    *
+    * @param parentStorage The storage of the parent execution, may be the
+    *                      given storage itself for a root execution.
+    * @param storage       The storage of this execution.
+    * @param executor      The executor of the operation.
+    */
+   public void bind(Storage parentStorage, Storage storage, ApplicationUser executor) {
+      if (storage instanceof ExecutionStorage) {
+         ExecutionStorage executionStorage = (ExecutionStorage) storage;
+         if (executionStorage.plan != this) {
+            executionStorage.setConstants(this);
+         }
+         //For a root execution the arguments were set over the constants already
+         if (parentStorage != null && parentStorage != storage) {
+            for (String name : constants.keySet()) {
+               if (parentStorage.isSet(name)) {
+                  storage.set(name, parentStorage.get(name));
+               }
+            }
+         }
+         for (Variable variable : dynamicVariables) {
+            variable.mapVariableToStorage(parentStorage, storage);
+         }
+      } else {
+         for (Variable variable : variables) {
+            variable.mapVariableToStorage(parentStorage, storage);
+         }
+      }
+      storage.set(KEY_EXECUTOR, executor);
+      storage.set(Operation.KEY_NAME, template.getKey());
+   }
+
+   /**
+    * Create the Operation of this plan from a bound storage.
+    *
+    * @param context The context of execution.
+    * @param storage The bound storage.
+    *
+    * @return The Operation.
+    * @throws InvalidInputException if the Operation could not be created from
+    *                               the contents of the storage.
+    */
+   public Operation instantiate(OperationContext context, Storage storage) throws InvalidInputException {
+      return template.createInstance(context, storage);
+   }
+
+   /**
+    * Get the compiled form of a text whose variables are replaced during an
+    * execution of this plan. Texts are usually messages of the template and
+    * are compiled once, up to a limit, after which texts are compiled for
+    * every call.
+    *
+    * @param text The text.
+    *
+    * @return The compiled text.
+    */
+   public VariableTemplate.Interpolation getInterpolation(String text) {
+      VariableTemplate.Interpolation interpolation = interpolations.get(text);
+      if (interpolation == null) {
+         interpolation = VariableTemplate.Interpolation.compile(text);
+         if (interpolations.size() < MAX_CACHED_INTERPOLATIONS) {
+            interpolations.putIfAbsent(text, interpolation);
+         }
+      }
+      return interpolation;
+   }
+
+   private static boolean isImmutable(Object obj) {
+      return IMMUTABLE_TYPES.contains(obj.getClass()) || obj instanceof Enum;
+   }
+
+   /**
+    * The storage of an execution. It knows which plan's constants it holds,
+    * and answers conversions of a constant that was not overridden from the
+    * conversions remembered by that plan.
+    */
+   private static class ExecutionStorage extends MemoryStorageRoot {
+
+      //The plan whose constants were set, null once the storage was cleared
+      private volatile ExecutionPlan plan;
+
+      private ExecutionStorage(ConversionModule conversionModule, int capacity) {
+         super(conversionModule, "", new HashMap(capacity));
+      }
+
+      private void setConstants(ExecutionPlan plan) {
+         _setAll(plan.constants);
+         this.plan = plan;
+      }
+
+      @Override
+      public void clear() {
+         plan = null;
+         super.clear();
+      }
+
+      @Override
+      public <T> T get(String key, Class<T> clazz) {
+         ExecutionPlan current = plan;
+         Object constant = (current != null) ? current.constants.get(key) : null;
+         if (constant == null || get(key) != constant
+             || Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz) || Storage.class.isAssignableFrom(clazz)) {
+            return super.get(key, clazz);
+         }
+         Map<Class, Object> converted = current.conversions.get(key);
+         Object t = converted.get(clazz);
+         if (t == null) {
+            try {
+               t = getConversionModule().convert(constant, clazz);
+            } catch (ConversionException ex) {
+               return null;
+            }
+            if (t == null) {
+               return null;
+            } else if (isImmutable(t)) {
+               converted.put(clazz, t);
+            } else {
+               //Mutable results are private to the execution, like any other conversion
+               set(key, t);
+            }
+         }
+         return (T) t;
+      }
+
+   }
+
+}
@@ -1,16 +1,21 @@
 package nl.larsdenbakker.operation.template;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.registry.Registrable;
 import nl.larsdenbakker.registry.Registry;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.OperationModule;
 import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.operation.variables.VariableTemplate;
 import nl.larsdenbakker.app.ApplicationUser;
 import nl.larsdenbakker.app.InvalidInputException;
+import nl.larsdenbakker.util.MapUtils;
 import nl.larsdenbakker.util.OperationResponse;
 
 /**
@@ -27,6 +32,8 @@ public abstract class OperationTemplate implements Registrable<String> {
    private final Variable[] variables;
 
    private Registry parentRegistry;
+   private volatile ExecutionPlan executionPlan;
+   private volatile Validator validator;
 
    public OperationTemplate(Module parentModule, OperationModule operationHandler, String name, Variable[] variables) {
       this.parentModule = parentModule;
@@ -61,6 +68,96 @@ public abstract class OperationTemplate implements Registrable<String> {
 
    public abstract Operation createInstance(OperationContext context, Storage storage) throws InvalidInputException;
 
+   /**
+    * Compile this template into a new ExecutionPlan.
+    *
+    * @return The ExecutionPlan.
+    */
+   public ExecutionPlan compile() {
+      return new ExecutionPlan(this);
+   }
+
+   /**
+    * @return The ExecutionPlan of this template, compiled on first use.
+    */
+   public ExecutionPlan getExecutionPlan() {
+      ExecutionPlan plan = executionPlan;
+      if (plan == null) {
+         plan = compile();
+         executionPlan = plan;
+      }
+      return plan;
+   }
+
+   /**
+    * Compile this template into a Validator that executes it with the
+    * validated value as target, after the given parameters have been set.
+    * Subclasses may return a Validator that checks the target directly. The
+    * default implementation runs the full operation pipeline for every
+    * validation.
+    *
+    * @param parameters The variables to execute this template with, besides
+    *                   the target.
+    *
+    * @return The Validator.
+    */
+   public Validator compileValidator(Map<String, Object> parameters) {
+      if (parameters.isEmpty()) {
+         return (Object target) -> {
+            OperationResponse response = execute(MapUtils.of(TargetedOperation.KEY_TARGET, target));
+            return (response.hasSucceeded()) ? null : response.getMessage();
+         };
+      } else {
+         Map<String, Object> copy = new HashMap(parameters);
+         return (Object target) -> {
+            Map<String, Object> arguments = new HashMap(copy);
+            arguments.put(TargetedOperation.KEY_TARGET, target);
+            OperationResponse response = execute(arguments);
+            return (response.hasSucceeded()) ? null : response.getMessage();
+         };
+      }
+   }
+
+   /**
+    * @return The Validator of this template without additional parameters,
+    *         compiled on first use.
+    */
+   public Validator getValidator() {
+      Validator v = validator;
+      if (v == null) {
+         v = compileValidator(Collections.emptyMap());
+         validator = v;
+      }
+      return v;
+   }
+
+   /**
+    * Bind the variables of this template to parameters the way an execution
+    * binds them: a value in the given parent parameters overrides the
+    * variable, otherwise the literal value of the variable is used.
+    *
+    * @param parentParameters The parameters of the parent execution.
+    *
+    * @return The bound parameters, without the variables that have no value,
+    *         or null if any of the variables can only be resolved during an
+    *         execution.
+    */
+   public Map<String, Object> bindParameters(Map<String, Object> parentParameters) {
+      Map<String, Object> parameters = new HashMap();
+      for (Variable variable : variables) {
+         if (parentParameters.containsKey(variable.getName())) {
+            parameters.put(variable.getName(), parentParameters.get(variable.getName()));
+         } else if (variable.getTemplate() instanceof VariableTemplate.Literal) {
+            if (variable.getValue() != null) {
+               parameters.put(variable.getName(), variable.getValue());
+            }
+         } else {
+            return null;
+         }
+      }
+      return parameters;
+   }
+
    @Override
    public String getKey() {
       return name;
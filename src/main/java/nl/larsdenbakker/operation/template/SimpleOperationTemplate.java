@@ -3,7 +3,12 @@ package nl.larsdenbakker.operation.template;
 import nl.larsdenbakker.operation.operations.Operation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
 import nl.larsdenbakker.app.Module;
+import nl.larsdenbakker.operation.operations.AbstractTargetedOperation;
+import nl.larsdenbakker.storage.MemoryStorage;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.OperationContext;
 import nl.larsdenbakker.operation.OperationModule;
@@ -14,27 +19,93 @@ import nl.larsdenbakker.app.InvalidInputException;
  * A type of OperationTemplate that executes an Operation defined in-code
  * by an implementation of Operation.
  *
+ * An Operation class that declares a public static method
+ * compileValidator(Storage) returning a Validator is compiled into that
+ * Validator when the template is used for validation. The Storage contains
+ * the variables of the template bound to the parameters of the Validator.
+ *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
 public class SimpleOperationTemplate extends OperationTemplate {
 
    private final Class<? extends Operation> operationClass;
+   private final Constructor<? extends Operation> constructor;
+   private final Method validatorCompiler;
 
    public SimpleOperationTemplate(Module parentModule, OperationModule operationHandler, String name, Variable[] variables, Class<? extends Operation> operationClass) {
       super(parentModule, operationHandler, name, variables);
       this.operationClass = operationClass;
+      this.constructor = getOperationConstructor(operationClass);
+      this.validatorCompiler = getValidatorCompiler(operationClass);
+   }
+
+   private static Method getValidatorCompiler(Class<? extends Operation> operationClass) {
+      try {
+         Method method = operationClass.getMethod("compileValidator", Storage.class);
+         if (Modifier.isStatic(method.getModifiers()) && Validator.class.isAssignableFrom(method.getReturnType())) {
+            return method;
+         }
+      } catch (NoSuchMethodException | SecurityException ex) {
+      }
+      return null;
+   }
+
+   private static Constructor<? extends Operation> getOperationConstructor(Class<? extends Operation> operationClass) {
+      try {
+         return operationClass.getConstructor(OperationContext.class, Storage.class);
+      } catch (NoSuchMethodException | SecurityException ex) {
+         //Reported when an instance is created
+         return null;
+      }
    }
 
    public Class<? extends Operation> getOperationClass() {
       return operationClass;
    }
 
+   @Override
+   public Validator compileValidator(Map<String, Object> parameters) {
+      Map<String, Object> bound = bindParameters(parameters);
+      //Variables resolved during execution and targets that are looked up in a registry need the full pipeline
+      if (validatorCompiler == null || bound == null || bound.containsKey(AbstractTargetedOperation.KEY_REGISTRY)) {
+         return super.compileValidator(parameters);
+      }
+      //Like the arguments of an execution, parameters that are not variables are set as well
+      for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+         bound.putIfAbsent(entry.getKey(), entry.getValue());
+      }
+      Storage storage = MemoryStorage.create(getOperationHandler().getConversionModule(), bound);
+      Validator validator;
+      try {
+         validator = (Validator) validatorCompiler.invoke(null, storage);
+      } catch (IllegalAccessException | IllegalArgumentException ex) {
+         throw new IllegalArgumentException("Malformed Operation Class: " + operationClass, ex);
+      } catch (InvocationTargetException ex) {
+         if (ex.getCause() instanceof InvalidInputException) {
+            //The Operation could never be created with these parameters, report it like an execution would
+            String error = "An error occurred when executing this operation: " + ex.getCause().getMessage();
+            return (Object target) -> error;
+         }
+         throw new IllegalArgumentException("Malformed Operation Class: " + operationClass, ex);
+      }
+      String errorMessage = storage.get(Operation.KEY_ERROR_MESSAGE, String.class);
+      boolean reportErrors = storage.get(Operation.KEY_REPORT_ERRORS, Boolean.class, true);
+      if (errorMessage != null || !reportErrors) {
+         String replacement = (errorMessage != null) ? errorMessage : "";
+         Validator compiled = validator;
+         validator = (Object target) -> (compiled.validate(target) != null) ? replacement : null;
+      }
+      return validator;
+   }
+
    @Override
    public Operation createInstance(OperationContext context, Storage storage) throws InvalidInputException {
+      if (constructor == null) {
+         throw new IllegalArgumentException("Malformed Operation Class: " + operationClass);
+      }
       try {
-         Constructor<? extends Operation> constructor = operationClass.getConstructor(OperationContext.class, Storage.class);
          return constructor.newInstance(context, storage);
-      } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException ex) {
+      } catch (InstantiationException | IllegalAccessException | IllegalArgumentException ex) {
          throw new IllegalArgumentException("Malformed Operation Class: " + operationClass, ex);
       } catch (InvocationTargetException ex) {
          if (ex.getCause() instanceof InvalidInputException) {
@@ -0,0 +1,27 @@
+package nl.larsdenbakker.operation.template;
+
+/**
+ * A compiled check of a single target value. Validators are created from
+ * OperationTemplates (see OperationTemplate.getValidator()) and are used where
+ * values are validated at a high rate, such as Property validation. Constraint
+ * Operations compile into Validators that check the target directly, without
+ * creating an OperationContext, Storage or Operation.
+ *
+ * Validators are immutable and can be shared between threads.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public interface Validator {
+
+   /**
+    * Validate the given target. No objects are allocated when the target is
+    * valid.
+    *
+    * @param target The target.
+    *
+    * @return null if the target is valid, otherwise a message describing why
+    *         it is not.
+    */
+   public String validate(Object target);
+
+}
@@ -0,0 +1,263 @@
+package nl.larsdenbakker.operation.variables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import nl.larsdenbakker.datapath.DataPathResolveException;
+import nl.larsdenbakker.operation.InputLexer;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.storage.Storage;
+
+/**
+ * The parsed value of a Variable. The value is parsed once into one of the
+ * following forms:
+ * <ul>
+ * <li>Literal: any value that is not one of the forms below.</li>
+ * <li>Reference: $key, the value of another variable.</li>
+ * <li>Data path: .path.to.value, resolved from the root registry.</li>
+ * <li>Property of a variable: path.$key, a data path resolved from the value
+ * of another variable in the parent storage.</li>
+ * <li>Interpolation: text containing $key words that are replaced by the
+ * values of other variables.</li>
+ * </ul>
+ * Evaluating a template only performs the lookups, an interpolation is
+ * concatenated into a single pre-sized buffer.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public abstract class VariableTemplate {
+
+   private static final String PROPERTY_SEPARATOR = ".$";
+
+   /**
+    * Parse the value of a variable.
+    *
+    * @param operationModule The OperationModule to resolve data paths with.
+    * @param value           The value.
+    *
+    * @return The template.
+    */
+   public static VariableTemplate compile(OperationModule operationModule, Object value) {
+      if (!(value instanceof String)) {
+         return new Literal(value);
+      }
+      String string = (String) value;
+      if (string.startsWith("$")) {
+         return new Reference(string.substring(1));
+      }
+      int separator = string.indexOf(PROPERTY_SEPARATOR);
+      if (separator > 0 && string.indexOf('$', separator + 2) == -1 && isWord(string)) {
+         return new PropertyOfVariable(operationModule, string.substring(0, separator), string.substring(separator + 2));
+      } else if (string.indexOf('$') != -1) {
+         return Interpolation.compile(string);
+      } else if (string.startsWith(".")) {
+         return new DataPath(operationModule, string);
+      } else {
+         return new Literal(value);
+      }
+   }
+
+   private static boolean isWord(String string) {
+      for (int i = 0; i < string.length(); i++) {
+         if (Character.isWhitespace(string.charAt(i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Evaluate this template for an execution.
+    *
+    * @param parentStorage The storage of the parent execution, nullable.
+    * @param storage       The storage of this execution. Referenced variables
+    *                      are looked up here before the parent storage.
+    *
+    * @return The value, or null if it could not be resolved.
+    */
+   public abstract Object evaluate(Storage parentStorage, Storage storage);
+
+   protected static Object lookup(Storage parentStorage, Storage storage, String key) {
+      //Grab the variable from the local storage first
+      Object obj = storage.get(key);
+      if (obj == null) {
+         //Then from the parent storage if it could not be found
+         obj = (parentStorage != null) ? parentStorage.get(key) : null;
+      }
+      return obj;
+   }
+
+   public static class Literal extends VariableTemplate {
+
+      private final Object value;
+
+      public Literal(Object value) {
+         this.value = value;
+      }
+
+      @Override
+      public Object evaluate(Storage parentStorage, Storage storage) {
+         return value;
+      }
+
+   }
+
+   public static class Reference extends VariableTemplate {
+
+      private final String key;
+
+      public Reference(String key) {
+         this.key = key;
+      }
+
+      public String getKey() {
+         return key;
+      }
+
+      @Override
+      public Object evaluate(Storage parentStorage, Storage storage) {
+         return lookup(parentStorage, storage, key);
+      }
+
+   }
+
+   public static class DataPath extends VariableTemplate {
+
+      private final OperationModule operationModule;
+      private final String path;
+
+      public DataPath(OperationModule operationModule, String path) {
+         this.operationModule = operationModule;
+         this.path = path;
+      }
+
+      @Override
+      public Object evaluate(Storage parentStorage, Storage storage) {
+         try {
+            return operationModule.getDataPathModule().resolveDataPath(operationModule.getRegistryModule().getRootRegistry(), path);
+         } catch (DataPathResolveException ex) {
+            return null;
+         }
+      }
+
+   }
+
+   public static class PropertyOfVariable extends VariableTemplate {
+
+      private final OperationModule operationModule;
+      private final String path;
+      private final String key;
+
+      public PropertyOfVariable(OperationModule operationModule, String path, String key) {
+         this.operationModule = operationModule;
+         this.path = path;
+         this.key = key;
+      }
+
+      @Override
+      public Object evaluate(Storage parentStorage, Storage storage) {
+         Object holder = (parentStorage != null) ? parentStorage.get(key) : null;
+         if (holder != null) {
+            try {
+               return operationModule.getDataPathModule().resolveDataPath(holder, path);
+            } catch (DataPathResolveException ex) {
+               return null;
+            }
+         }
+         return null;
+      }
+
+   }
+
+   /* Text with $key words. Literal text, including whitespace, is kept as it is. */
+   public static class Interpolation extends VariableTemplate {
+
+      private static final String NOT_FOUND = "<variable not found>";
+
+      //Literal text before every reference, plus the text after the last one
+      private final String[] literals;
+      private final String[] references;
+      private final int literalLength;
+
+      private Interpolation(String[] literals, String[] references) {
+         this.literals = literals;
+         this.references = references;
+         int length = 0;
+         for (String literal : literals) {
+            length += literal.length();
+         }
+         this.literalLength = length;
+      }
+
+      /**
+       * Parse text with $key words.
+       *
+       * @param text The text.
+       *
+       * @return The interpolation.
+       */
+      public static Interpolation compile(String text) {
+         List<String> literals = new ArrayList();
+         List<String> references = new ArrayList();
+         int literalStart = 0;
+         int i = 0;
+         int length = text.length();
+         while (i < length) {
+            //A reference is a whitespace separated word that starts with a $
+            if (text.charAt(i) == InputLexer.REFERENCE && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+               int end = i + 1;
+               while (end < length && !Character.isWhitespace(text.charAt(end))) {
+                  end++;
+               }
+               if (end > i + 1) {
+                  literals.add(text.substring(literalStart, i));
+                  references.add(text.substring(i + 1, end));
+                  literalStart = end;
+               }
+               i = end;
+            } else {
+               i++;
+            }
+         }
+         literals.add(text.substring(literalStart));
+         return new Interpolation(literals.toArray(new String[literals.size()]), references.toArray(new String[references.size()]));
+      }
+
+      /**
+       * Replace every reference with the value provided by the given
+       * resolver. References that resolve to null are kept as $key.
+       *
+       * @param resolver Provides the replacement of a referenced key.
+       *
+       * @return The text with references replaced.
+       */
+      public String format(Function<String, String> resolver) {
+         if (references.length == 0) {
+            return literals[0];
+         }
+         String[] values = new String[references.length];
+         int length = literalLength;
+         for (int i = 0; i < references.length; i++) {
+            String value = resolver.apply(references[i]);
+            values[i] = (value != null) ? value : InputLexer.REFERENCE + references[i];
+            length += values[i].length();
+         }
+         StringBuilder sb = new StringBuilder(length);
+         for (int i = 0; i < values.length; i++) {
+            sb.append(literals[i]).append(values[i]);
+         }
+         sb.append(literals[literals.length - 1]);
+         return sb.toString();
+      }
+
+      @Override
+      public Object evaluate(Storage parentStorage, Storage storage) {
+         return format((String key) -> {
+            Object obj = lookup(parentStorage, storage, key);
+            return (obj != null) ? obj.toString() : NOT_FOUND;
+         });
+      }
+
+   }
+
+}
@@ -3,10 +3,12 @@ package nl.larsdenbakker.property;
 import nl.larsdenbakker.util.InitializationException;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.conversion.ConversionException;
 import nl.larsdenbakker.conversion.ConversionModule;
@@ -144,6 +146,40 @@ public abstract class PropertyHolderRegistry<K, V extends PropertyHolder<K>> ext
       }
    }
 
+   /**
+    * Load the DataFiles of all given Registries concurrently, then create
+    * PropertyHolders from their contents and register them to their Registry
+    * in the given order. All Registries must have an associated DataFile.
+    *
+    * @param registries The Registries to load.
+    *
+    * @throws PropertyHolderCreationException if anything goes wrong creating
+    *                                         the PropertyHolders.
+    * @throws DataFileException               if anything goes wrong loading a DataFile.
+    * @throws IllegalStateException           if a Registry has no associated DataFile.
+    */
+   public static void loadDataFiles(List<? extends PropertyHolderRegistry> registries) throws PropertyHolderCreationException, DataFileException {
+      List<DataFile> dataFiles = new ArrayList(registries.size());
+      for (PropertyHolderRegistry registry : registries) {
+         DataFile dataFile = registry.getDataFile();
+         if (dataFile != null) {
+            dataFiles.add(dataFile);
+         } else {
+            throw new IllegalStateException("Cannot load DataFile for a "
+                                            + "Registry that has no associated DataFile.");
+         }
+      }
+      if (dataFiles.isEmpty()) {
+         return;
+      }
+      List<CompletableFuture<Map<String, Object>>> contents = dataFiles.get(0).getDataFileManager().loadAll(dataFiles);
+      for (int i = 0; i < registries.size(); i++) {
+         PropertyHolderRegistry registry = registries.get(i);
+         Map<String, Object> map = DataFileModule.getLoaded(contents.get(i));
+         registry.createAndRegisterContents(MemoryStorage.create(registry.getConversionModule(), map));
+      }
+   }
+
    protected void createAndRegisterContents(Storage mainStorage) throws PropertyHolderCreationException {
       boolean allSucceeded = true;
       int count = 0;
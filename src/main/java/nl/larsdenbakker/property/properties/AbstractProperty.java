@@ -4,6 +4,7 @@ import java.util.List;
 import nl.larsdenbakker.property.PropertyHolder;
 import nl.larsdenbakker.storage.Storage;
 import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.util.CollectionUtils;
 
 /**
@@ -18,7 +19,7 @@ public abstract class AbstractProperty<V> implements Property<V> {
    private final V defaultValue;
    private final boolean nullable;
    private final boolean constructorParameter;
-   private final OperationTemplate[] validationOperations;
+   private final ValidationOperations validationOperations;
 
    public AbstractProperty(Storage config, Class<V> propertyValueClass) {
       this.propertyValueClass = propertyValueClass;
@@ -26,7 +27,7 @@ public abstract class AbstractProperty<V> implements Property<V> {
       this.description = config.get(KEY_DESCRIPTION, name);
       this.defaultValue = config.get(KEY_DEFAULT_VALUE, propertyValueClass);
       List<OperationTemplate> validationOperationsList = config.getCollection(KEY_VALIDATION_OPERATIONS, List.class, OperationTemplate.class, false);
-      this.validationOperations = (validationOperationsList != null) ? CollectionUtils.asArrayOfType(OperationTemplate.class, validationOperationsList) : null;
+      this.validationOperations = (validationOperationsList != null) ? ValidationOperations.of(CollectionUtils.asArrayOfType(OperationTemplate.class, validationOperationsList)) : null;
       this.nullable = config.get(KEY_NULLABLE, true);
       this.constructorParameter = config.get(KEY_CONSTRUCTOR_PARAMETERS, false);
    }
@@ -62,7 +63,12 @@ public abstract class AbstractProperty<V> implements Property<V> {
 
    @Override
    public OperationTemplate[] getValidationOperations() {
-      return validationOperations;
+      return (validationOperations != null) ? validationOperations.getTemplates() : null;
+   }
+
+   @Override
+   public Validator[] getValidators() {
+      return (validationOperations != null) ? validationOperations.getValidators() : null;
    }
 
    @Override
@@ -9,11 +9,10 @@ import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.property.PropertyHolder;
 import nl.larsdenbakker.property.PropertyValidationException;
 import nl.larsdenbakker.storage.Storage;
-import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.util.CollectionUtils;
 import nl.larsdenbakker.util.MapUtils;
-import nl.larsdenbakker.util.OperationResponse;
 import nl.larsdenbakker.util.TextUtils;
 
 /**
@@ -29,9 +28,9 @@ public class MapProperty<K, V> extends StorageProperty<Map<K, V>> {
    private final Class<K> keyType;
    private final Class<V> valueType;
    private final Class<? extends Map<K, V>> mapType;
-   private final OperationTemplate[] keyValidationOperations;
-   private final OperationTemplate[] valueValidationOperations;
-   private final OperationTemplate[] entryValidationOperations;
+   private final ValidationOperations keyValidationOperations;
+   private final ValidationOperations valueValidationOperations;
+   private final ValidationOperations entryValidationOperations;
 
    public MapProperty(Storage storage, Class<? extends Map<K, V>> mapType, Class<K> keyType, Class<V> valueType) {
       super(storage, (Class<Map<K, V>>) ((Class) Map.class));
@@ -39,11 +38,11 @@ public class MapProperty<K, V> extends StorageProperty<Map<K, V>> {
       this.keyType = keyType;
       this.valueType = valueType;
       List<OperationTemplate> keyConstraintList = storage.getCollection(KEY_KEY_VALIDATION_OPERATIONS, List.class, OperationTemplate.class, false);
-      this.keyValidationOperations = (keyConstraintList != null) ? CollectionUtils.asArrayOfType(OperationTemplate.class, keyConstraintList) : null;
+      this.keyValidationOperations = (keyConstraintList != null) ? ValidationOperations.of(CollectionUtils.asArrayOfType(OperationTemplate.class, keyConstraintList)) : null;
       List<OperationTemplate> valueConstraintList = storage.getCollection(KEY_VALUE_VALIDATION_OPERATIONS, List.class, OperationTemplate.class, false);
-      this.valueValidationOperations = (valueConstraintList != null) ? CollectionUtils.asArrayOfType(OperationTemplate.class, valueConstraintList) : null;
+      this.valueValidationOperations = (valueConstraintList != null) ? ValidationOperations.of(CollectionUtils.asArrayOfType(OperationTemplate.class, valueConstraintList)) : null;
       List<OperationTemplate> entryConstraintList = storage.getCollection(KEY_ENTRY_VALIDATION_OPERATIONS, List.class, OperationTemplate.class, false);
-      this.entryValidationOperations = (entryConstraintList != null) ? CollectionUtils.asArrayOfType(OperationTemplate.class, entryConstraintList) : null;
+      this.entryValidationOperations = (entryConstraintList != null) ? ValidationOperations.of(CollectionUtils.asArrayOfType(OperationTemplate.class, entryConstraintList)) : null;
    }
 
    @Override
@@ -62,33 +61,38 @@ public class MapProperty<K, V> extends StorageProperty<Map<K, V>> {
    @Override
    public void validate(Map<K, V> val) throws PropertyValidationException {
       super.validate(val);
-      if (keyValidationOperations != null || valueValidationOperations != null || entryValidationOperations != null) {
+      Validator[] keyValidators = (keyValidationOperations != null) ? keyValidationOperations.getValidators() : null;
+      Validator[] valueValidators = (valueValidationOperations != null) ? valueValidationOperations.getValidators() : null;
+      Validator[] entryValidators = (entryValidationOperations != null) ? entryValidationOperations.getValidators() : null;
+      if (keyValidators != null || valueValidators != null || entryValidators != null) {
          for (Entry<K, V> entry : val.entrySet()) {
             if (entry.getValue() != null) {
 
-               if (keyValidationOperations != null) {
-                  for (OperationTemplate template : keyValidationOperations) {
-                     OperationResponse response = template.execute(MapUtils.of(TargetedOperation.KEY_TARGET, entry.getKey()));
-                     if (!response.hasSucceeded()) {
-                        throw new PropertyValidationException("Error at key " + entry.getKey() + ": " + response.getMessage());
+               if (keyValidators != null) {
+                  for (Validator validator : keyValidators) {
+                     String error = validator.validate(entry.getKey());
+                     if (error != null) {
+                        throw new PropertyValidationException("Error at key " + entry.getKey() + ": " + error);
                      }
                   }
                }
 
-               if (valueValidationOperations != null) {
-                  for (OperationTemplate template : valueValidationOperations) {
-                     OperationResponse response = template.execute(MapUtils.of(TargetedOperation.KEY_TARGET, entry.getValue()));
-                     if (!response.hasSucceeded()) {
-                        throw new PropertyValidationException("Error at value " + entry.getValue() + ": " + response.getMessage());
+               if (valueValidators != null) {
+                  for (Validator validator : valueValidators) {
+                     String error = validator.validate(entry.getValue());
+                     if (error != null) {
+                        throw new PropertyValidationException("Error at value " + entry.getValue() + ": " + error);
                      }
                   }
                }
 
-               if (entryValidationOperations != null) {
-                  for (OperationTemplate template : entryValidationOperations) {
-                     OperationResponse response = template.execute(MapUtils.of(TargetedOperation.KEY_TARGET, new Pair(entry.getKey(), entry.getValue())));
-                     if (!response.hasSucceeded()) {
-                        throw new PropertyValidationException("Error at entry " + entry.getKey() + "=" + entry.getValue() + ": " + response.getMessage());
+               if (entryValidators != null) {
+                  //Entries are validated as a whole, which requires a Pair per entry
+                  Pair<K, V> pair = new Pair(entry.getKey(), entry.getValue());
+                  for (Validator validator : entryValidators) {
+                     String error = validator.validate(pair);
+                     if (error != null) {
+                        throw new PropertyValidationException("Error at entry " + entry.getKey() + "=" + entry.getValue() + ": " + error);
                      }
                   }
                }
@@ -1,17 +1,18 @@
 package nl.larsdenbakker.property.properties;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.datafile.DataFileException;
-import nl.larsdenbakker.datafile.DataFormat;
+import nl.larsdenbakker.datafile.DataFileModule;
 import nl.larsdenbakker.property.PropertyModule;
 import nl.larsdenbakker.storage.MemoryStorage;
 import nl.larsdenbakker.storage.Storage;
-import nl.larsdenbakker.datafile.DataFileUtils;
+import nl.larsdenbakker.util.ApplicationUtils;
 
 /**
  * A grouping of Properties belonging to a PropertyHolder type. Only one instance of
@@ -25,7 +26,8 @@ public abstract class Properties {
    public static final String KEY_PROPERTIES = "properties";
 
    private final PropertyModule propertyModule;
-   private final Property<?>[] properties;
+   //Replaced rather than modified, see replaceProperty(Property)
+   private volatile Property<?>[] properties;
 
    /**
     * Construct an instance of Properties.
@@ -65,6 +67,31 @@ public abstract class Properties {
       return properties;
    }
 
+   /**
+    * Replace the Property with the same key as the given Property, for
+    * instance when its configuration was reloaded. PropertyHolders that use
+    * this Properties object see either the old or the new Property. Properties
+    * objects that copied the old Property from this one as their parent are
+    * not affected.
+    *
+    * @param property The new Property.
+    *
+    * @return The replaced Property, or null if there is no Property with the
+    *         same key, in which case nothing is replaced.
+    */
+   public synchronized Property<?> replaceProperty(Property<?> property) {
+      Property<?>[] current = properties;
+      for (int i = 0; i < current.length; i++) {
+         if (current[i].getKey().equalsIgnoreCase(property.getKey())) {
+            Property<?>[] replaced = current.clone();
+            replaced[i] = property;
+            properties = replaced;
+            return current[i];
+         }
+      }
+      return null;
+   }
+
    public final Property<?> getProperty(String key) {
       for (Property<?> prop : properties) {
          if (prop.getKey().equalsIgnoreCase(key)) {
@@ -97,15 +124,38 @@ public abstract class Properties {
       return list;
    }
 
+   /**
+    * Load the properties configuration of the given module. The configuration
+    * file overrides the resource. The configuration file can be watched for
+    * changes with the ConfigurationReloader of the ConfigurationModule. A
+    * reloaded configuration can be read with getPropertiesConfiguration(ConversionModule, Map, Map),
+    * after which changed Properties can be swapped with replaceProperty(Property).
+    *
+    * @param conversionModule The ConversionModule.
+    * @param module           The module.
+    * @param fileName         The name of the configuration file.
+    *
+    * @return The Storage of the properties configuration.
+    *
+    * @throws DataFileException if the configuration could not be read.
+    */
    public static Storage getPropertiesConfiguration(ConversionModule conversionModule, Module module, String fileName) throws DataFileException {
-      String resourcePath = "resources" + File.separator + module.getName() + File.separator + fileName;
-      String filePath = module.getModuleConfigFolder() + File.separator + fileName;
-
-      Map<String, Object> configuration;
-      configuration = DataFileUtils.loadContents(DataFormat.YAML, new File(filePath));
+      //Read both files concurrently, the resource is not added to the configuration but used as the defaults
+      CompletableFuture<Map<String, Object>>[] futures = ApplicationUtils.loadModuleConfigurationsAsync(Collections.singletonList(module), Collections.singletonList(fileName)).get(0);
+      Map<String, Object> configuration = DataFileModule.getLoaded(futures[0]);
+      Map<String, Object> defaults = DataFileModule.getLoaded(futures[1]);
+      return getPropertiesConfiguration(conversionModule, defaults, configuration);
+   }
 
-      Map<String, Object> defaults;
-      defaults = DataFileUtils.loadResource(DataFormat.YAML, resourcePath);
+   /**
+    * @param conversionModule The ConversionModule.
+    * @param defaults         The default configuration. Can be null.
+    * @param configuration    The configuration that overrides the defaults.
+    *                         Can be null.
+    *
+    * @return The Storage of the properties configuration.
+    */
+   public static Storage getPropertiesConfiguration(ConversionModule conversionModule, Map<String, Object> defaults, Map<String, Object> configuration) {
       Storage configurationStorage = (defaults != null) ? MemoryStorage.create(conversionModule, defaults) : MemoryStorage.create(conversionModule);
       if (configuration != null) {
          configurationStorage.setAll(configuration);
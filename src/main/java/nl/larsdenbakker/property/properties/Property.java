@@ -2,11 +2,9 @@ package nl.larsdenbakker.property.properties;
 
 import nl.larsdenbakker.property.PropertyHolder;
 import nl.larsdenbakker.property.PropertyValidationException;
-import nl.larsdenbakker.operation.operations.TargetedOperation;
 import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.Validator;
 import nl.larsdenbakker.util.Describable;
-import nl.larsdenbakker.util.MapUtils;
-import nl.larsdenbakker.util.OperationResponse;
 
 /**
  * A Property marks a key-value mapping of a PropertyHolder. The Property class defines methods
@@ -134,11 +132,12 @@ public interface Property<V> extends Describable {
     */
    public default void validate(V val) throws PropertyValidationException {
       if (val != null) {
-         if (getValidationOperations() != null) {
-            for (OperationTemplate template : getValidationOperations()) {
-               OperationResponse response = template.execute(MapUtils.of(TargetedOperation.KEY_TARGET, val));
-               if (!response.hasSucceeded()) {
-                  throw new PropertyValidationException(response.getMessage());
+         Validator[] validators = getValidators();
+         if (validators != null) {
+            for (Validator validator : validators) {
+               String error = validator.validate(val);
+               if (error != null) {
+                  throw new PropertyValidationException(error);
                }
             }
          }
@@ -164,6 +163,31 @@ public interface Property<V> extends Describable {
     */
    public OperationTemplate[] getValidationOperations();
 
+   /**
+    * @return The Validators of the validation operations of this Property, or
+    *         null if there are none.
+    */
+   public default Validator[] getValidators() {
+      return getValidators(getValidationOperations());
+   }
+
+   /**
+    * @param templates The validation operations, may be null.
+    *
+    * @return The Validators of the given validation operations, or null if
+    *         there are none.
+    */
+   public static Validator[] getValidators(OperationTemplate[] templates) {
+      if (templates == null) {
+         return null;
+      }
+      Validator[] validators = new Validator[templates.length];
+      for (int i = 0; i < templates.length; i++) {
+         validators[i] = templates[i].getValidator();
+      }
+      return validators;
+   }
+
    @Override
    public default String getTypeDescription() {
       return "Property";
@@ -0,0 +1,87 @@
+package nl.larsdenbakker.property.properties;
+
+import nl.larsdenbakker.operation.OperationRegistry;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.Validator;
+
+/**
+ * The validation operations of a Property together with their Validators.
+ * Registered OperationTemplates can be replaced, for example when their
+ * configuration is reloaded, so the templates are looked up again by key
+ * whenever their OperationRegistry was modified. A template that is no longer
+ * registered keeps being used.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+final class ValidationOperations {
+
+   private final OperationTemplate[] templates;
+   private final OperationRegistry registry;
+   private volatile Compiled compiled;
+
+   private ValidationOperations(OperationTemplate[] templates) {
+      this.templates = templates;
+      this.registry = (templates.length > 0) ? templates[0].getOperationHandler().getOperationRegistry() : null;
+      this.compiled = new Compiled(templates, getModificationCount());
+   }
+
+   /**
+    * @param templates The validation operations, may be null.
+    *
+    * @return The validation operations, or null if the given templates are
+    *         null.
+    */
+   static ValidationOperations of(OperationTemplate[] templates) {
+      return (templates != null) ? new ValidationOperations(templates) : null;
+   }
+
+   /**
+    * @return The currently registered validation operations.
+    */
+   OperationTemplate[] getTemplates() {
+      return getCompiled().templates;
+   }
+
+   /**
+    * @return The Validators of the currently registered validation
+    *         operations.
+    */
+   Validator[] getValidators() {
+      return getCompiled().validators;
+   }
+
+   private Compiled getCompiled() {
+      Compiled current = compiled;
+      int modificationCount = getModificationCount();
+      if (current.modificationCount != modificationCount) {
+         //Read the count first, so changes made while looking up invalidate the result
+         OperationTemplate[] registered = new OperationTemplate[templates.length];
+         for (int i = 0; i < templates.length; i++) {
+            OperationTemplate template = registry.getByKey(templates[i].getKey());
+            registered[i] = (template != null && templates[i].getParentRegistry() == registry) ? template : templates[i];
+         }
+         current = new Compiled(registered, modificationCount);
+         compiled = current;
+      }
+      return current;
+   }
+
+   private int getModificationCount() {
+      return (registry != null) ? registry.getModificationCount() : 0;
+   }
+
+   private static class Compiled {
+
+      private final OperationTemplate[] templates;
+      private final Validator[] validators;
+      private final int modificationCount;
+
+      private Compiled(OperationTemplate[] templates, int modificationCount) {
+         this.templates = templates;
+         this.validators = Property.getValidators(templates);
+         this.modificationCount = modificationCount;
+      }
+
+   }
+
+}
@@ -5,6 +5,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.conversion.ConversionException;
 import nl.larsdenbakker.datafile.DataFile;
@@ -13,7 +15,10 @@ import nl.larsdenbakker.datapath.AbstractDataHolder;
 
 /**
  * Default implementation of the Registry interface. This type of Registry is
- * backed by a HashMap.
+ * backed by a ConcurrentHashMap, so values can be looked up from any thread
+ * while others register, replace or unregister values, such as the
+ * ConfigurationReloader does. Registering and replacing are atomic. Null
+ * keys are never registered.
  *
  * @param <K> The key type.
  * @param <V> The value type.
@@ -25,11 +30,12 @@ public abstract class AbstractRegistry<K, V> extends AbstractDataHolder implemen
    private final Module parentModule;
    private final DataFile dataFile;
    private final RegistryModule registryModule;
-   private final Map<K, V> map = new HashMap();
+   private final Map<K, V> map = new ConcurrentHashMap();
    private final Class<K> keyType;
    private final Class<V> valueType;
 
    private Registry parentRegistry;
+   private final AtomicInteger modificationCount = new AtomicInteger();
 
    public AbstractRegistry(Module parentModule, RegistryModule registryHandler, Class<K> keyType, Class<V> valueType, DataFile dataFile) {
       this.parentModule = parentModule;
@@ -58,16 +64,38 @@ public abstract class AbstractRegistry<K, V> extends AbstractDataHolder implemen
 
    @Override
    public boolean register(K key, V val) {
+      checkNotNull(key);
       checkNotNull(val);
 
-      V temp = getByKey(key);
-      if (temp == null) {
-         map.put(key, val);
+      if (map.putIfAbsent(key, val) == null) {
+         modified();
          return true;
       }
       return false;
    }
 
+   /**
+    * Replace the value registered to the given key. Unlike unregistering and
+    * registering the new value, the key stays registered: lookups return
+    * either the old or the new value.
+    *
+    * @param key The key.
+    * @param val The new value.
+    *
+    * @return The replaced value, or null if no value was registered to the
+    *         key, in which case nothing is registered.
+    */
+   public V replace(K key, V val) {
+      checkNotNull(key);
+      checkNotNull(val);
+
+      V temp = map.replace(key, val);
+      if (temp != null) {
+         modified();
+      }
+      return temp;
+   }
+
    @Override
    public boolean unregisterByValue(V val) {
       for (Entry<K, V> entry : map.entrySet()) {
@@ -81,12 +109,16 @@ public abstract class AbstractRegistry<K, V> extends AbstractDataHolder implemen
 
    @Override
    public V unregister(K key) {
-      return map.remove(key);
+      V removed = (key != null) ? map.remove(key) : null;
+      if (removed != null) {
+         modified();
+      }
+      return removed;
    }
 
    @Override
    public V getByKey(K key) {
-      return map.get(key);
+      return (key != null) ? map.get(key) : null;
    }
 
    @Override
@@ -97,6 +129,24 @@ public abstract class AbstractRegistry<K, V> extends AbstractDataHolder implemen
    @Override
    public void clear() {
       map.clear();
+      modified();
+   }
+
+   /**
+    * Register a change of the contents of this Registry. Subclasses that
+    * remove values without calling unregister(K) should call this method.
+    */
+   protected void modified() {
+      modificationCount.incrementAndGet();
+   }
+
+   /**
+    * @return A number that changes every time a value is registered or
+    *         unregistered. Can be used to invalidate values derived from the
+    *         contents of this Registry.
+    */
+   public int getModificationCount() {
+      return modificationCount.get();
    }
 
    public DataFile getDataFile() {
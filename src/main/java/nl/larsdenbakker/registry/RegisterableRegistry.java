@@ -68,6 +68,27 @@ public abstract class RegisterableRegistry<K, V extends Registrable<K>> extends
       }
    }
 
+   /**
+    * Replace the value registered under the key of the given value.
+    *
+    * @param val The new value.
+    *
+    * @return The replaced value, or null if no value was registered to its
+    *         key, in which case nothing is registered.
+    */
+   public V replace(V val) {
+      return replace(val.getKey(), val);
+   }
+
+   @Override
+   public V replace(K key, V val) {
+      V replaced = super.replace(key, val);
+      if (replaced != null) {
+         val.setParentRegistry(this);
+      }
+      return replaced;
+   }
+
    @Override
    public K getKeyFor(V val) {
       return val.getKey();
@@ -84,6 +105,7 @@ public abstract class RegisterableRegistry<K, V extends Registrable<K>> extends
          V v = it.next();
          if (v.getParentModule().equals(module)) {
             it.remove();
+            modified();
          }
       }
    }
@@ -1,6 +1,6 @@
 package nl.larsdenbakker.storage;
 
-import java.io.IOException;
+import java.util.concurrent.Future;
 import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.datafile.DataFile;
 import nl.larsdenbakker.datafile.DataFileException;
@@ -31,12 +31,24 @@ public class FileStorage extends MemoryStorageRoot {
    }
 
    /**
-    * Saves the Storage's contents to the DataFile.
+    * Saves the Storage's contents to the DataFile. A snapshot of the
+    * contents is saved, so the Storage can be modified by other threads while
+    * it is being saved.
     *
     * @throws DataFileException Thrown if anything goes wrong during saving.
     */
    public void save() throws DataFileException {
-      dataFile.save(getContents());
+      dataFile.save(this);
+   }
+
+   /**
+    * Saves the Storage's contents to the DataFile on a background thread. The
+    * snapshot is taken when the save starts.
+    *
+    * @return A Future that completes when the contents have been saved.
+    */
+   public Future<?> saveAsync() {
+      return dataFile.saveAsync(this);
    }
 
    /**
@@ -44,7 +56,7 @@ public class FileStorage extends MemoryStorageRoot {
     * regular intervals. See DataFile for more information on auto-saving.
     */
    public void scheduleAutoSave() {
-      dataFile.scheduleAutoSave(this.getContents());
+      dataFile.scheduleAutoSave(this);
    }
 
    /**
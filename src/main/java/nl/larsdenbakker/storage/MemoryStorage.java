@@ -1,30 +1,57 @@
 package nl.larsdenbakker.storage;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import com.google.common.collect.ImmutableMap;
 import java.lang.ref.Reference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import nl.larsdenbakker.conversion.ConversionModule;
 import nl.larsdenbakker.conversion.reference.DataReference;
+import nl.larsdenbakker.datafile.Snapshottable;
 import nl.larsdenbakker.util.TextUtils;
 
 /**
  * A type of Storage that uses a HashMap for storing data.
  *
+ * Snapshots are copy-on-write: taking a snapshot advances the snapshot epoch
+ * of the root Storage and collects the maps of the Storage and its child
+ * Storages without copying their values. The first modification of a Storage
+ * after a snapshot was taken copies its map, keeping its iteration order,
+ * and leaves the original map unmodified to the snapshot. Until a snapshot
+ * has collected all its Storages, the original maps that it still needs are
+ * kept, so every Storage is collected as it was in the epoch of the snapshot.
+ * Values such as Collections that are modified in place are not copied.
+ *
  * @author Lars den Bakker <larsdenbakker at gmail.com>
  */
-public class MemoryStorage extends Storage {
+public class MemoryStorage extends Storage implements Snapshottable {
 
-   private Map<String, Object> map;
+   //Replaced on the first modification after a snapshot, read without holding the lock
+   private volatile Map<String, Object> map;
    private final String name;
    private Storage parent;
 
+   //The snapshot epoch in which map was created, map is shared with snapshots of later epochs
+   private long mapEpoch;
+   //Replaced maps that snapshots which are still being collected may need, oldest first
+   private List<RetiredMap> retiredMaps;
+   //The snapshot epoch of a Storage that has no parent to take it from
+   private long ownSnapshotEpoch;
+   //The amount of snapshots of each epoch that are still being collected, of a Storage that has no parent to take them from
+   private TreeMap<Long, Integer> pendingSnapshots;
+
    protected MemoryStorage(String name, Map<String, Object> map, Storage parent) {
       this.name = name;
       this.map = map;
       this.parent = parent;
+      this.mapEpoch = getSnapshotEpoch();
    }
 
    protected MemoryStorage(String name, Map<String, Object> map) {
@@ -53,17 +80,43 @@ public class MemoryStorage extends Storage {
    }
 
    @Override
-   protected void _set(String key, Object value) {
+   protected synchronized void _set(String key, Object value) {
+      copyOnWrite();
       map.put(key, value);
    }
 
+   /**
+    * Put all given values in this Storage at once. Unlike setAll(Map) the
+    * keys are not split on periods and values are stored as they are, so the
+    * keys must be plain keys and the values must not require a reference.
+    *
+    * @param values The values.
+    */
+   protected synchronized void _setAll(Map<String, Object> values) {
+      copyOnWrite();
+      map.putAll(values);
+   }
+
    @Override
    public Storage unset(String key) {
       checkNotNull(key);
-      Object obj = map.remove(key);
+      synchronized (this) {
+         copyOnWrite();
+         map.remove(key);
+      }
       return this;
    }
 
+   /**
+    * Remove all values from this Storage.
+    */
+   public void clear() {
+      synchronized (this) {
+         copyOnWrite();
+         map.clear();
+      }
+   }
+
    @Override
    public Object get(String key) {
       checkNotNull(key);
@@ -82,9 +135,15 @@ public class MemoryStorage extends Storage {
       if (obj != null) {
          if (obj instanceof MemoryStorage) {
             return (MemoryStorage) obj;
+         } else if (obj instanceof ImmutableMap) {
+            //Shared immutable configuration, such as an expanded ConfigurationTemplate, is copied when first used as a Storage
+            MemoryStorage storage = new MemoryStorage(key, new LinkedHashMap((Map) obj), this);
+            set(key, storage);
+            return storage;
          } else if (obj instanceof Map) {
             Map requestedMap = (Map) obj;
             MemoryStorage storage = new MemoryStorage(key, requestedMap, this);
+            storage.markShared();
             set(key, storage);
             return storage;
          }
@@ -118,8 +177,163 @@ public class MemoryStorage extends Storage {
       return parent;
    }
 
-   protected void overrideContents(Map<String, Object> map) {
+   protected synchronized void overrideContents(Map<String, Object> map) {
+      replaceMap(map, getSnapshotEpoch());
+   }
+
+   /**
+    * Take a snapshot of the contents of this Storage and all its child
+    * Storages. Values are not copied, only the maps of Storages that contain
+    * child Storages are. The returned Map is read-only and keeps showing the
+    * contents as they were when it was taken, while this Storage continues to
+    * be modified and later snapshots are taken.
+    *
+    * @return A read-only point-in-time view of the contents of this Storage.
+    */
+   @Override
+   public Map<String, Object> takeSnapshot() {
+      long epoch = nextSnapshotEpoch();
+      try {
+         return getSnapshot(epoch);
+      } finally {
+         releaseSnapshotEpoch(epoch);
+      }
+   }
+
+   protected long getSnapshotEpoch() {
+      if (parent instanceof MemoryStorage) {
+         return ((MemoryStorage) parent).getSnapshotEpoch();
+      }
+      synchronized (this) {
+         return ownSnapshotEpoch;
+      }
+   }
+
+   /**
+    * Start a new snapshot epoch. The maps that the snapshot of this epoch
+    * needs are kept until releaseSnapshotEpoch(long) is called with it.
+    *
+    * @return The new epoch.
+    */
+   protected long nextSnapshotEpoch() {
+      if (parent instanceof MemoryStorage) {
+         return ((MemoryStorage) parent).nextSnapshotEpoch();
+      }
+      synchronized (this) {
+         return startSnapshot(++ownSnapshotEpoch);
+      }
+   }
+
+   /* Marks a new epoch as pending, must be called while holding the lock of the Storage that has no parent to take it from. */
+   protected long startSnapshot(long epoch) {
+      if (pendingSnapshots == null) {
+         pendingSnapshots = new TreeMap();
+      }
+      pendingSnapshots.merge(epoch, 1, Integer::sum);
+      return epoch;
+   }
+
+   /**
+    * Mark the snapshot of the given epoch as collected.
+    *
+    * @param epoch An epoch returned by nextSnapshotEpoch().
+    */
+   protected void releaseSnapshotEpoch(long epoch) {
+      if (parent instanceof MemoryStorage) {
+         ((MemoryStorage) parent).releaseSnapshotEpoch(epoch);
+         return;
+      }
+      synchronized (this) {
+         if (pendingSnapshots != null) {
+            pendingSnapshots.computeIfPresent(epoch, (Long key, Integer count) -> (count > 1) ? count - 1 : null);
+         }
+      }
+   }
+
+   /* The oldest epoch of which a snapshot is still being collected, Long.MAX_VALUE if there is none. */
+   private long getOldestPendingSnapshotEpoch() {
+      if (parent instanceof MemoryStorage) {
+         return ((MemoryStorage) parent).getOldestPendingSnapshotEpoch();
+      }
+      synchronized (this) {
+         return (pendingSnapshots == null || pendingSnapshots.isEmpty()) ? Long.MAX_VALUE : pendingSnapshots.firstKey();
+      }
+   }
+
+   /**
+    * Collect the contents as they were in the given epoch, child Storages are
+    * replaced by their snapshots.
+    *
+    * @param epoch An epoch returned by nextSnapshotEpoch() that was not
+    * released yet.
+    *
+    * @return A read-only view of the contents in the given epoch.
+    */
+   protected Map<String, Object> getSnapshot(long epoch) {
+      Map<String, Object> contents = getSnapshotContents(epoch);
+      Map<String, Object> snapshot = null;
+      for (Map.Entry<String, Object> entry : contents.entrySet()) {
+         if (entry.getValue() instanceof MemoryStorage) {
+            if (snapshot == null) {
+               snapshot = new LinkedHashMap(contents);
+            }
+            snapshot.put(entry.getKey(), ((MemoryStorage) entry.getValue()).getSnapshot(epoch));
+         }
+      }
+      return Collections.unmodifiableMap((snapshot != null) ? snapshot : contents);
+   }
+
+   /* Returns a map that is no longer modified. */
+   private synchronized Map<String, Object> getSnapshotContents(long epoch) {
+      if (mapEpoch < epoch) {
+         //Not modified since the snapshot was taken, any modification from now on copies the map
+         return map;
+      }
+      if (retiredMaps != null) {
+         for (RetiredMap retired : retiredMaps) {
+            if (epoch > retired.origin && epoch <= retired.epoch) {
+               return retired.map;
+            }
+         }
+      }
+      throw new IllegalStateException("The contents of " + name + " in snapshot epoch " + epoch + " are no longer available");
+   }
+
+   /* Must be called while holding this Storage's lock. */
+   private void copyOnWrite() {
+      long epoch = getSnapshotEpoch();
+      if (mapEpoch < epoch) {
+         replaceMap(copyMap(map), epoch);
+      }
+   }
+
+   /* Keeps the iteration order of maps loaded from files, such as the LinkedHashMaps of Jackson. */
+   private static Map<String, Object> copyMap(Map<String, Object> map) {
+      return (map.getClass() == HashMap.class) ? new HashMap(map) : new LinkedHashMap(map);
+   }
+
+   private void replaceMap(Map<String, Object> map, long epoch) {
+      if (mapEpoch < epoch) {
+         long oldestPending = getOldestPendingSnapshotEpoch();
+         if (retiredMaps != null) {
+            retiredMaps.removeIf((RetiredMap retired) -> retired.epoch < oldestPending);
+         }
+         if (oldestPending <= epoch) {
+            if (retiredMaps == null) {
+               retiredMaps = new ArrayList(2);
+            }
+            retiredMaps.add(new RetiredMap(this.map, mapEpoch, epoch));
+         }
+      }
       this.map = map;
+      this.mapEpoch = epoch;
+   }
+
+   /* The map of this Storage was taken over from its parent and may be part of an earlier snapshot. */
+   private synchronized void markShared() {
+      if (mapEpoch > 0) {
+         mapEpoch--;
+      }
    }
 
    @Override
@@ -175,4 +389,19 @@ public class MemoryStorage extends Storage {
       return "Memory Storage";
    }
 
+   /* The map of a Storage as it was in the epochs after origin up to and including epoch. */
+   private static class RetiredMap {
+
+      private final Map<String, Object> map;
+      private final long origin;
+      private final long epoch;
+
+      private RetiredMap(Map<String, Object> map, long origin, long epoch) {
+         this.map = map;
+         this.origin = origin;
+         this.epoch = epoch;
+      }
+
+   }
+
 }
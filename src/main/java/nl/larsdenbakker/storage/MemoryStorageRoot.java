@@ -11,6 +11,7 @@ import nl.larsdenbakker.conversion.ConversionModule;
 public class MemoryStorageRoot extends MemoryStorage {
 
    private final ConversionModule conversionHandler;
+   private volatile long snapshotEpoch;
 
    protected MemoryStorageRoot(ConversionModule conversionHandler, String name, Map<String, Object> map) {
       super(name, map);
@@ -26,6 +27,16 @@ public class MemoryStorageRoot extends MemoryStorage {
       return conversionHandler;
    }
 
+   @Override
+   protected long getSnapshotEpoch() {
+      return snapshotEpoch;
+   }
+
+   @Override
+   protected synchronized long nextSnapshotEpoch() {
+      return startSnapshot(++snapshotEpoch);
+   }
+
    @Override
    public Storage getRoot() {
       return this;
@@ -1,10 +1,18 @@
 package nl.larsdenbakker.util;
 
-import nl.larsdenbakker.datafile.DataFileUtils;
+import static com.google.common.base.Preconditions.checkArgument;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import nl.larsdenbakker.app.Application;
 import nl.larsdenbakker.app.Module;
 import nl.larsdenbakker.datafile.DataFileException;
+import nl.larsdenbakker.datafile.DataFileModule;
 import nl.larsdenbakker.datafile.DataFormat;
 
 /**
@@ -28,12 +36,86 @@ public class ApplicationUtils {
     * @throws DataFileException if there was a problem loading either of the two files.
     */
    public static Map<String, Object> loadModuleConfiguration(Module module, String fileName) throws DataFileException {
-      String filePath = module.getModuleConfigFolder() + File.separator + fileName;
-      String resourcePath = "resources" + File.separator + module.getName() + File.separator + fileName;
-      Map<String, Object> configuration = DataFileUtils.loadContents(DataFormat.YAML, filePath);
-      Map<String, Object> resource = DataFileUtils.loadResource(DataFormat.YAML, resourcePath);
+      return loadModuleConfigurations(module, fileName).get(fileName);
+   }
+
+   /**
+    * Load the configurations with the given file names for the given module. See
+    * loadModuleConfiguration(Module, String). If the DataFileModule is loaded, all files and
+    * resources are read concurrently.
+    *
+    * @param module    The module.
+    * @param fileNames The names of the files.
+    *
+    * @return The contents of the files added together, mapped by file name in the order they were given.
+    *
+    * @throws DataFileException if there was a problem loading any of the files.
+    */
+   public static Map<String, Map<String, Object>> loadModuleConfigurations(Module module, String... fileNames) throws DataFileException {
+      List<Module> modules = Collections.nCopies(fileNames.length, module);
+      List<CompletableFuture<Map<String, Object>>[]> futures = loadModuleConfigurationsAsync(modules, Arrays.asList(fileNames));
+      Map<String, Map<String, Object>> contents = new LinkedHashMap();
+      for (int i = 0; i < fileNames.length; i++) {
+         contents.put(fileNames[i], getLoaded(futures.get(i)));
+      }
+      return contents;
+   }
+
+   /**
+    * Start loading the configuration files and default resources with the given file names
+    * of the given modules, see loadModuleConfiguration(Module, String). If the DataFileModule
+    * is loaded, all files and resources are read concurrently on its reader threads.
+    *
+    * @param modules   The modules, one for every file name.
+    * @param fileNames The names of the files.
+    *
+    * @return For every file name in the given order, the Futures of the configuration file and
+    *         of the resource. See getLoaded(CompletableFuture[]) and DataFileModule.getLoaded(Future).
+    */
+   public static List<CompletableFuture<Map<String, Object>>[]> loadModuleConfigurationsAsync(List<? extends Module> modules, List<String> fileNames) {
+      checkArgument(modules.size() == fileNames.size());
+      List<CompletableFuture<Map<String, Object>>[]> futures = new ArrayList(fileNames.size());
+      if (fileNames.isEmpty()) {
+         return futures;
+      }
+      List<File> files = new ArrayList(fileNames.size());
+      List<String> resourcePaths = new ArrayList(fileNames.size());
+      for (int i = 0; i < fileNames.size(); i++) {
+         files.add(new File(getModuleConfigPath(modules.get(i), fileNames.get(i))));
+         resourcePaths.add(getModuleResourcePath(modules.get(i), fileNames.get(i)));
+      }
+      Application application = modules.get(0).getParentApplication();
+      List<CompletableFuture<Map<String, Object>>> configurations = DataFileModule.loadAll(application, DataFormat.YAML, files);
+      List<CompletableFuture<Map<String, Object>>> resources = DataFileModule.loadAllResources(application, DataFormat.YAML, resourcePaths);
+      for (int i = 0; i < fileNames.size(); i++) {
+         futures.add(new CompletableFuture[]{configurations.get(i), resources.get(i)});
+      }
+      return futures;
+   }
+
+   /**
+    * Wait for the configuration file and resource of one of the entries returned by
+    * loadModuleConfigurationsAsync(List, List) and add them together.
+    *
+    * @param futures The Futures of the configuration file and the resource.
+    *
+    * @return The contents of the files added together.
+    *
+    * @throws DataFileException if there was a problem loading either of the two files.
+    */
+   public static Map<String, Object> getLoaded(CompletableFuture<Map<String, Object>>[] futures) throws DataFileException {
+      Map<String, Object> configuration = DataFileModule.getLoaded(futures[0]);
+      Map<String, Object> resource = DataFileModule.getLoaded(futures[1]);
       configuration.putAll(resource);
       return configuration;
    }
 
+   public static String getModuleConfigPath(Module module, String fileName) {
+      return module.getModuleConfigFolder() + File.separator + fileName;
+   }
+
+   public static String getModuleResourcePath(Module module, String fileName) {
+      return "resources" + File.separator + module.getName() + File.separator + fileName;
+   }
+
 }
@@ -1,15 +1,50 @@
 package nl.larsdenbakker.util;
 
+import com.google.common.collect.MapMaker;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import nl.larsdenbakker.datapath.DataHolder;
 import static nl.larsdenbakker.util.ComparisonUtils.ComparisonOperator.EQUAL;
 
 /**
+ * Comparisons between values and collections of values.
+ *
+ * Comparisons of two large collections do not compare every pair of
+ * elements when the elements are all of the same Comparable type: equality
+ * is checked against a single value, inequality through a hash set or a
+ * sorted array and ordering through the minimum and maximum of both
+ * collections. Membership checks on large collections can use a hash index,
+ * see indexed(Collection).
  *
  * @author Lars den Bakker<larsdenbakker@gmail.com>
  */
 public class ComparisonUtils {
 
+   /* Collections up to this size, or pairs of collections up to this amount of element pairs, are compared element by element. */
+   private static final int INDEX_THRESHOLD = 16;
+   /* Types of which compareTo, equals and hashCode are consistent with each other. */
+   private static final Set<Class<?>> HASHABLE_COMPARABLES = new HashSet(Arrays.asList(
+           String.class, Integer.class, Long.class, Short.class, Byte.class, Character.class, Boolean.class, Double.class, Float.class));
+   /* Whether or not equal instances of a class have equal hash codes. */
+   private static final ClassValue<Boolean> HASH_SAFE = new ClassValue<Boolean>() {
+      @Override
+      protected Boolean computeValue(Class<?> type) {
+         try {
+            return type.getMethod("equals", Object.class).getDeclaringClass() == Object.class
+                   || type.getMethod("hashCode").getDeclaringClass() != Object.class;
+         } catch (NoSuchMethodException ex) {
+            return false;
+         }
+      }
+   };
+   /* Indexes of collections that are compared repeatedly, such as configured values. */
+   private static final Map<Object, CachedIndex> INDEXES = new MapMaker().weakKeys().makeMap();
+
    public enum ComparisonOperator {
 
       EQUAL,
@@ -103,6 +138,15 @@ public class ComparisonUtils {
    }
 
    private static boolean _compare(ComparisonOperator operator, Collection<Object> arg1, Collection<Object> arg2) {
+      if (arg1.isEmpty() || arg2.isEmpty()) {
+         return true;
+      }
+      if ((long) arg1.size() * arg2.size() > INDEX_THRESHOLD) {
+         Class<?> type = getComparableType(arg1, arg2);
+         if (type != null) {
+            return _compareComparables(operator, type, arg1, arg2);
+         }
+      }
       boolean returnValue = true;
       outer:
       for (Object o1 : arg1) {
@@ -117,6 +161,223 @@ public class ComparisonUtils {
       return returnValue;
    }
 
+   /**
+    * @return The class of all elements of both collections if it is the same
+    *         Comparable class for every element, otherwise null.
+    */
+   private static Class<?> getComparableType(Collection<Object> arg1, Collection<Object> arg2) {
+      Object first = arg1.iterator().next();
+      if (!(first instanceof Comparable)) {
+         return null;
+      }
+      Class<?> type = first.getClass();
+      for (Object o : arg1) {
+         if (o == null || o.getClass() != type) {
+            return null;
+         }
+      }
+      for (Object o : arg2) {
+         if (o == null || o.getClass() != type) {
+            return null;
+         }
+      }
+      return type;
+   }
+
+   /*
+    * Equal to comparing every pair of elements for non-empty collections of
+    * which all elements are of the given Comparable type. A pair is compared
+    * as arg2.compareTo(arg1), see _compare(ComparisonOperator, Comparable, Comparable).
+    */
+   private static boolean _compareComparables(ComparisonOperator operator, Class<?> type, Collection<Object> arg1, Collection<Object> arg2) {
+      switch (operator) {
+         case EQUAL: {
+            //Every pair is equal only if every element is equal to the same value
+            Comparable value = (Comparable) arg1.iterator().next();
+            return allCompareEqual(value, arg1) && allCompareEqual(value, arg2);
+         }
+         case NOT_EQUAL:
+            //Every pair is unequal only if the collections have no element in common
+            return isDisjoint(type, arg1, arg2);
+         case GREATER:
+            return min(arg2).compareTo(max(arg1)) > 0;
+         case GREATER_OR_EQUAL:
+            return min(arg2).compareTo(max(arg1)) >= 0;
+         case LESS:
+            return max(arg2).compareTo(min(arg1)) < 0;
+         case LESS_OR_EQUAL:
+            return max(arg2).compareTo(min(arg1)) <= 0;
+         default:
+            throw new UnsupportedOperationException();
+      }
+   }
+
+   private static boolean allCompareEqual(Comparable value, Collection<Object> values) {
+      for (Object o : values) {
+         if (((Comparable) o).compareTo(value) != 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean isDisjoint(Class<?> type, Collection<Object> arg1, Collection<Object> arg2) {
+      Collection<Object> smaller = (arg1.size() <= arg2.size()) ? arg1 : arg2;
+      Collection<Object> larger = (smaller == arg1) ? arg2 : arg1;
+      if (HASHABLE_COMPARABLES.contains(type) || type.isEnum()) {
+         Set<Object> set = (smaller instanceof Set) ? (Set) smaller : new HashSet(smaller);
+         for (Object o : larger) {
+            if (set.contains(o)) {
+               return false;
+            }
+         }
+      } else {
+         //compareTo may not be consistent with equals, search a sorted array instead
+         Object[] sorted = smaller.toArray();
+         Arrays.sort(sorted);
+         for (Object o : larger) {
+            if (Arrays.binarySearch(sorted, o) >= 0) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   private static Comparable min(Collection<Object> values) {
+      Comparable min = null;
+      for (Object o : values) {
+         if (min == null || ((Comparable) o).compareTo(min) < 0) {
+            min = (Comparable) o;
+         }
+      }
+      return min;
+   }
+
+   private static Comparable max(Collection<Object> values) {
+      Comparable max = null;
+      for (Object o : values) {
+         if (max == null || ((Comparable) o).compareTo(max) > 0) {
+            max = (Comparable) o;
+         }
+      }
+      return max;
+   }
+
+   /**
+    * Get a view of the given collection that answers contains(Object) and
+    * containsAll(Collection) through a hash index. Size and iteration are
+    * those of the given collection, so duplicate elements still count. The
+    * collection itself is returned if it is small, already a Set or contains
+    * elements that can not be indexed by their hash code. The view does not
+    * reflect later modifications of the collection.
+    *
+    * @param values The collection.
+    *
+    * @return The collection or an indexed view of it.
+    */
+   public static Collection<Object> indexed(Collection<?> values) {
+      if (values == null || values.size() <= INDEX_THRESHOLD || values instanceof Set || values instanceof IndexedCollection) {
+         return (Collection<Object>) values;
+      }
+      for (Object o : values) {
+         if (o != null && !HASH_SAFE.get(o.getClass())) {
+            return (Collection<Object>) values;
+         }
+      }
+      return new IndexedCollection(values);
+   }
+
+   /**
+    * Identical to indexed(Collection), but the index is cached for as long
+    * as the given source Object is in use. Intended for configured values,
+    * of which the same source Object is converted to a collection for every
+    * execution. Only String and Collection sources are cached. A cached
+    * index of a Collection is only used while the Collection still holds
+    * the same elements, compared by identity, in the same order. Elements
+    * must not be modified in a way that changes their hash code.
+    *
+    * @param source The Object the collection was created from, compared by identity.
+    * @param values The collection.
+    *
+    * @return The collection or an indexed view of it.
+    */
+   public static Collection<Object> indexed(Object source, Collection<?> values) {
+      if (values == null || values.size() <= INDEX_THRESHOLD || !(source instanceof Collection || source instanceof String)) {
+         return indexed(values);
+      }
+      CachedIndex cached = INDEXES.get(source);
+      if (cached != null && cached.isValidFor(source, values)) {
+         return cached.index;
+      }
+      Collection<Object> index = indexed(values);
+      if (index instanceof IndexedCollection) {
+         INDEXES.put(source, new CachedIndex(source, index));
+      }
+      return index;
+   }
+
+   /* An index together with the elements of the Collection it was created from. */
+   private static class CachedIndex {
+
+      //The elements of the source, null if the source is immutable
+      private final Object[] elements;
+      private final Collection<Object> index;
+
+      private CachedIndex(Object source, Collection<Object> index) {
+         this.elements = (source instanceof Collection) ? ((Collection) source).toArray() : null;
+         this.index = index;
+      }
+
+      private boolean isValidFor(Object source, Collection<?> values) {
+         if (index.size() != values.size()) {
+            return false;
+         } else if (elements == null) {
+            return true;
+         }
+         Collection<?> collection = (Collection) source;
+         if (collection.size() != elements.length) {
+            return false;
+         }
+         int i = 0;
+         for (Object o : collection) {
+            if (i == elements.length || o != elements[i++]) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+   }
+
+   /* A collection with a hash index for membership checks. */
+   private static class IndexedCollection extends AbstractCollection<Object> {
+
+      private final Collection<Object> values;
+      private final Set<Object> index;
+
+      private IndexedCollection(Collection<?> values) {
+         this.values = (Collection<Object>) values;
+         this.index = new HashSet(values);
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return index.contains(o);
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         return values.iterator();
+      }
+
+      @Override
+      public int size() {
+         return values.size();
+      }
+
+   }
+
    public static boolean elementOf(ComparisonOperator operator, Object arg1, Object arg2) {
       if (operator == null || arg1 == null || arg2 == null) {
          return false;
@@ -124,7 +385,12 @@ public class ComparisonUtils {
 
       if (arg1 instanceof Collection) {
          if (arg2 instanceof Collection) {
-            return _elementOf(operator, (Collection) arg1, (Collection) arg2);
+            //Index the side that is searched
+            if (operator == ComparisonOperator.LESS || operator == ComparisonOperator.LESS_OR_EQUAL) {
+               return _elementOf(operator, (Collection) arg1, indexed((Collection) arg2));
+            } else {
+               return _elementOf(operator, indexed((Collection) arg1), (Collection) arg2);
+            }
          } else if (arg2 instanceof DataHolder) {
             return _elementOf(operator, (Collection) arg1, (DataHolder) arg2);
          } else {
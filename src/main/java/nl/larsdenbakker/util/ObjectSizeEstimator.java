@@ -0,0 +1,265 @@
+package nl.larsdenbakker.util;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Estimates the memory used by object graphs in pure Java. The size of an
+ * object is its header plus its fields, rounded up to 8 bytes, as laid out
+ * by a 64-bit HotSpot JVM. Compressed references are assumed when the
+ * maximum heap is smaller than 32 GB. Field packing and padding between
+ * fields are not taken into account, so sizes are estimates.
+ *
+ * Objects are visited once per estimator: an object reachable from several
+ * measured roots is only counted for the first. References are followed
+ * through reflection. Fields that can not be made accessible are not
+ * followed, except that the entries of Maps and the elements of Collections
+ * are visited through their public API and their internal tables are
+ * estimated from their size. The referents of weak and soft
+ * references are not followed. An estimator is not thread safe.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ObjectSizeEstimator {
+
+   private static final boolean COMPRESSED_REFERENCES = "64".equals(System.getProperty("sun.arch.data.model"))
+                                                        ? Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024
+                                                        : true;
+   private static final int REFERENCE_SIZE = (COMPRESSED_REFERENCES) ? 4 : 8;
+   private static final int OBJECT_HEADER_SIZE = (COMPRESSED_REFERENCES) ? 12 : 16;
+   private static final int ARRAY_HEADER_SIZE = (COMPRESSED_REFERENCES) ? 16 : 24;
+
+   private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<ClassLayout>() {
+      @Override
+      protected ClassLayout computeValue(Class<?> type) {
+         return new ClassLayout(type);
+      }
+   };
+
+   private final Predicate<Object> boundary;
+   private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap());
+   private final Map<Class<?>, long[]> histogram = new HashMap();
+
+   /**
+    * @param boundary Objects for which this predicate returns true are not
+    *                 measured and not followed, unless they are the root of
+    *                 a measurement.
+    */
+   public ObjectSizeEstimator(Predicate<Object> boundary) {
+      this.boundary = boundary;
+   }
+
+   public ObjectSizeEstimator() {
+      this((Object obj) -> false);
+   }
+
+   /**
+    * Measure the objects reachable from the given root that have not been
+    * measured by this estimator yet.
+    *
+    * @param root The root.
+    *
+    * @return The estimated size in bytes.
+    */
+   public long measure(Object root) {
+      if (root == null || !visited.add(root)) {
+         return 0;
+      }
+      long size = 0;
+      Deque<Object> pending = new ArrayDeque();
+      pending.push(root);
+      while (!pending.isEmpty()) {
+         Object obj = pending.pop();
+         long objectSize = shallowSizeOf(obj);
+         if (obj instanceof String && LAYOUTS.get(String.class).opaque) {
+            //The characters of a String can not be followed, they are estimated as one byte each
+            objectSize += align(ARRAY_HEADER_SIZE + ((String) obj).length());
+         } else if (LAYOUTS.get(obj.getClass()).opaque) {
+            objectSize += internalSizeOf(obj);
+         }
+         size += objectSize;
+         long[] entry = histogram.computeIfAbsent(obj.getClass(), (Class<?> type) -> new long[2]);
+         entry[0]++;
+         entry[1] += objectSize;
+         for (Object child : references(obj)) {
+            if (child != null && !boundary.test(child) && visited.add(child)) {
+               pending.push(child);
+            }
+         }
+      }
+      return size;
+   }
+
+   /**
+    * @return Whether or not the given object has been measured by this
+    *         estimator.
+    */
+   public boolean isMeasured(Object obj) {
+      return visited.contains(obj);
+   }
+
+   /**
+    * @return The amount of measured objects.
+    */
+   public int getObjectCount() {
+      return visited.size();
+   }
+
+   /**
+    * @return The amount and total estimated size of the measured objects per
+    *         class, as arrays of two elements.
+    */
+   public Map<Class<?>, long[]> getHistogram() {
+      return histogram;
+   }
+
+   private static List<Object> references(Object obj) {
+      Class<?> type = obj.getClass();
+      if (type.isArray()) {
+         if (type.getComponentType().isPrimitive()) {
+            return Collections.emptyList();
+         }
+         Object[] array = (Object[]) obj;
+         List<Object> list = new ArrayList(array.length);
+         Collections.addAll(list, array);
+         return list;
+      }
+      ClassLayout layout = LAYOUTS.get(type);
+      List<Object> list = new ArrayList(layout.references.length);
+      for (Field field : layout.references) {
+         try {
+            list.add(field.get(obj));
+         } catch (IllegalAccessException ex) {
+            //Inaccessible fields are skipped, see ClassLayout
+         }
+      }
+      if (layout.opaque) {
+         try {
+            if (obj instanceof Map) {
+               for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                  list.add(entry.getKey());
+                  list.add(entry.getValue());
+               }
+            } else if (obj instanceof Collection) {
+               list.addAll((Collection<?>) obj);
+            }
+         } catch (RuntimeException ex) {
+            //Concurrently modified or not iterable, the contents are not counted
+         }
+      }
+      return list;
+   }
+
+   /* The internal tables of Maps and Collections whose fields can not be followed, as laid out by HashMap and ArrayList. */
+   private static long internalSizeOf(Object obj) {
+      try {
+         if (obj instanceof Map) {
+            int size = ((Map) obj).size();
+            long tableLength = (size == 0) ? 0 : Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+            return align(ARRAY_HEADER_SIZE + tableLength * REFERENCE_SIZE) + size * align(OBJECT_HEADER_SIZE + 4 + 3 * REFERENCE_SIZE);
+         } else if (obj instanceof Collection) {
+            return align(ARRAY_HEADER_SIZE + (long) ((Collection) obj).size() * REFERENCE_SIZE);
+         }
+      } catch (RuntimeException ex) {
+         //Not sizable, the internal tables are not counted
+      }
+      return 0;
+   }
+
+   /**
+    * @param obj The object.
+    *
+    * @return The estimated size of the object itself, not including the
+    *         objects it references.
+    */
+   public static long shallowSizeOf(Object obj) {
+      Class<?> type = obj.getClass();
+      if (type.isArray()) {
+         Class<?> component = type.getComponentType();
+         int elementSize = (component.isPrimitive()) ? primitiveSize(component) : REFERENCE_SIZE;
+         return align(ARRAY_HEADER_SIZE + (long) Array.getLength(obj) * elementSize);
+      }
+      return LAYOUTS.get(type).size;
+   }
+
+   /**
+    * @param type A class that is not an array class.
+    *
+    * @return The estimated size of an instance of the given class, not
+    *         including the objects it references.
+    */
+   public static long shallowSizeOf(Class<?> type) {
+      return LAYOUTS.get(type).size;
+   }
+
+   private static long align(long size) {
+      return (size + 7) & ~7L;
+   }
+
+   private static int primitiveSize(Class<?> type) {
+      if (type == long.class || type == double.class) {
+         return 8;
+      } else if (type == int.class || type == float.class) {
+         return 4;
+      } else if (type == short.class || type == char.class) {
+         return 2;
+      } else {
+         return 1;
+      }
+   }
+
+   /* The size and reference fields of a class. */
+   private static class ClassLayout {
+
+      private final long size;
+      private final Field[] references;
+      //Whether or not any reference field could not be made accessible
+      private final boolean opaque;
+
+      private ClassLayout(Class<?> type) {
+         long fieldsSize = 0;
+         List<Field> referenceFields = new ArrayList();
+         boolean inaccessible = false;
+         for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+               if (Modifier.isStatic(field.getModifiers())) {
+                  continue;
+               }
+               Class<?> fieldType = field.getType();
+               if (fieldType.isPrimitive()) {
+                  fieldsSize += primitiveSize(fieldType);
+               } else {
+                  fieldsSize += REFERENCE_SIZE;
+                  //The referent and queue of weak and soft references are not retained
+                  if (c != Reference.class) {
+                     try {
+                        field.setAccessible(true);
+                        referenceFields.add(field);
+                     } catch (RuntimeException ex) {
+                        inaccessible = true;
+                     }
+                  }
+               }
+            }
+         }
+         this.size = align(OBJECT_HEADER_SIZE + fieldsSize);
+         this.references = referenceFields.toArray(new Field[referenceFields.size()]);
+         this.opaque = inaccessible;
+      }
+
+   }
+
+}
@@ -0,0 +1,94 @@
+package nl.larsdenbakker.configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests expanding ConfigurationTemplates with variables.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConfigurationTemplateTest {
+
+   private static Map<String, Object> map(Object... entries) {
+      Map<String, Object> map = new LinkedHashMap();
+      for (int i = 0; i < entries.length; i += 2) {
+         map.put((String) entries[i], entries[i + 1]);
+      }
+      return map;
+   }
+
+   private static ConfigurationTemplate template(Map<String, Object> defaults, Map<String, Object> template) {
+      return new ConfigurationTemplate(null, "test", defaults, template);
+   }
+
+   @Test
+   public void testVariablesAreReplaced() {
+      ConfigurationTemplate template = template(map("size", 5), map(
+              "name", "$name",
+              "$key", "value",
+              "size", "$size",
+              "list", Arrays.asList("a", "$name"),
+              "missing", "$unknown"));
+      Map<String, Object> expansion = template.toTemplate(map("name", "stone", "key", "material"));
+      assertEquals(map(
+              "name", "stone",
+              "material", "value",
+              "size", 5,
+              "list", Arrays.asList("a", "stone"),
+              "missing", "$unknown"), expansion);
+      //A variable defined as null overrides its default value
+      assertFalse(template.toTemplate(map("name", "stone", "key", "k", "size", null)).containsKey("size"));
+   }
+
+   @Test
+   public void testNullVariablesLeaveOutEntriesAndElements() {
+      ConfigurationTemplate template = template(null, map("a", "$a", "list", Arrays.asList("$a", "b")));
+      Map<String, Object> expansion = template.toTemplate(map("a", null));
+      assertEquals(map("list", Arrays.asList("b")), expansion);
+   }
+
+   @Test
+   public void testVariableNames() {
+      ConfigurationTemplate template = template(null, map("a", "$a", "nested", map("$b", Arrays.asList("$c", "d"))));
+      assertEquals(new HashSet(Arrays.asList("a", "b", "c")), template.getVariableNames());
+   }
+
+   @Test
+   public void testConstantPartsAreShared() {
+      ConfigurationTemplate template = template(null, map("a", "$a", "constant", map("b", Arrays.asList(1, 2))));
+      Object first = template.toTemplate(map("a", 1)).get("constant");
+      Object second = template.toTemplate(map("a", new ArrayList())).get("constant");
+      assertSame(first, second);
+   }
+
+   @Test
+   public void testExpansionsWithImmutableValuesAreCached() {
+      ConfigurationTemplate template = template(map("b", "default"), map("a", "$a", "b", "$b"));
+      assertSame(template.toTemplate(map("a", 1)), template.toTemplate(map("a", 1, "unused", 2)));
+      assertNotSame(template.toTemplate(map("a", 1)), template.toTemplate(map("a", 2)));
+
+      List<Object> mutable = new ArrayList(Arrays.asList(1));
+      Map<String, Object> first = template.toTemplate(map("a", mutable));
+      mutable.add(2);
+      Map<String, Object> second = template.toTemplate(map("a", mutable));
+      assertNotSame(first, second);
+      assertEquals(Arrays.asList(1, 2), second.get("a"));
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testExpansionsAreImmutable() {
+      template(null, map("a", "$a")).toTemplate(new HashMap()).put("b", 1);
+   }
+
+}
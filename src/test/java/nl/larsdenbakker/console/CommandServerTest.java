@@ -0,0 +1,200 @@
+package nl.larsdenbakker.console;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.app.ApplicationUser;
+import nl.larsdenbakker.app.Console;
+import nl.larsdenbakker.datafile.DataFormat;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.util.OperationResponse;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the request and response protocol of the CommandServer, over a
+ * stream and over a connection that has to authenticate.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class CommandServerTest {
+
+   private static final ObjectMapper MAPPER = DataFormat.JSON_UNINDENTED.getObjectMapper();
+
+   //Fails every operation with the operation and variables it was executed with
+   private final OperationExecutor operationExecutor = new OperationExecutor(null) {
+      {
+         setAsyncExecutor(Runnable::run);
+      }
+
+      @Override
+      public OperationResponse executeOperation(ApplicationUser executor, String operation, Map<String, Object> variables) {
+         throw new IllegalStateException(operation + " " + variables);
+      }
+   };
+
+   private final Console console = (Console) Proxy.newProxyInstance(Console.class.getClassLoader(), new Class[]{Console.class},
+                                                                     (Object proxy, Method method, Object[] args) -> null);
+
+   private final CommandServer server = new CommandServer(console, operationExecutor, 4);
+
+   @After
+   public void close() {
+      server.close();
+   }
+
+   private List<Map<String, Object>> serve(String... lines) throws Exception {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      server.serve(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), output);
+      List<Map<String, Object>> responses = new ArrayList();
+      for (String line : output.toString("UTF-8").split("\n")) {
+         if (!line.isEmpty()) {
+            responses.add(MAPPER.readValue(line, Map.class));
+         }
+      }
+      return responses;
+   }
+
+   private static String message(Map<String, Object> response) {
+      return ((List<String>) response.get(CommandServer.KEY_MESSAGES)).get(0);
+   }
+
+   @Test
+   public void testRequestIsExecutedWithItsVariables() throws Exception {
+      List<Map<String, Object>> responses = serve("{\"id\": \"a\", \"operation\": \"info\", \"variables\": {\"target\": \"registry.key\"}}");
+      assertEquals(1, responses.size());
+      assertEquals("a", responses.get(0).get(CommandServer.KEY_ID));
+      assertEquals(false, responses.get(0).get(CommandServer.KEY_SUCCEEDED));
+      assertEquals("Operation info failed: info {target=registry.key}", message(responses.get(0)));
+      assertEquals(1, server.getRequestCount());
+   }
+
+   @Test
+   public void testResponseWithoutIdHasLineNumber() throws Exception {
+      List<Map<String, Object>> responses = serve("", "{\"operation\": \"info\"}");
+      assertEquals(2, responses.get(0).get(CommandServer.KEY_ID));
+      assertEquals("Operation info failed: info {}", message(responses.get(0)));
+   }
+
+   @Test
+   public void testInvalidRequests() throws Exception {
+      List<Map<String, Object>> responses = serve("not json", "{\"id\": 2}", "{\"operation\": \"info\", \"variables\": [1]}");
+      assertEquals(3, responses.size());
+      assertTrue(message(responses.get(0)).startsWith("Invalid request: "));
+      assertEquals("Missing operation.", message(responses.get(1)));
+      assertEquals("Variables must be an object.", message(responses.get(2)));
+      for (Map<String, Object> response : responses) {
+         assertEquals(false, response.get(CommandServer.KEY_SUCCEEDED));
+      }
+   }
+
+   @Test
+   public void testRequestsThatAreNotObjects() throws Exception {
+      //More requests than the server executes at the same time, so a permit that is not released blocks serve()
+      List<Map<String, Object>> responses = serve("null", "[]", "1", "\"info\"", "null", "{\"operation\": \"info\"}");
+      assertEquals(6, responses.size());
+      for (int i = 0; i < 5; i++) {
+         assertEquals(i + 1, responses.get(i).get(CommandServer.KEY_ID));
+         assertEquals(false, responses.get(i).get(CommandServer.KEY_SUCCEEDED));
+         assertTrue(message(responses.get(i)).startsWith("Invalid request: "));
+      }
+      assertEquals("Operation info failed: info {}", message(responses.get(5)));
+   }
+
+   @Test
+   public void testAuthenticationThatIsNotAnObject() throws Exception {
+      int port = server.listen(0, "secret");
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+         Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         writer.write("null\n");
+         writer.flush();
+         Map<String, Object> response = MAPPER.readValue(reader.readLine(), Map.class);
+         assertEquals(false, response.get(CommandServer.KEY_SUCCEEDED));
+         assertTrue(message(response).startsWith("Invalid request: "));
+         assertNull(reader.readLine());
+      }
+      assertEquals(1, server.getRejectedCount());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testListenRequiresToken() throws IOException {
+      server.listen(0, "");
+   }
+
+   @Test
+   public void testConnectionMustAuthenticate() throws Exception {
+      int port = server.listen(0, "secret");
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+         Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         writer.write("{\"id\": 1, \"operation\": \"info\"}\n{\"id\": 2, \"operation\": \"info\"}\n");
+         writer.flush();
+         Map<String, Object> response = MAPPER.readValue(reader.readLine(), Map.class);
+         assertEquals(1, response.get(CommandServer.KEY_ID));
+         assertEquals(false, response.get(CommandServer.KEY_SUCCEEDED));
+         //The connection is closed without executing any request
+         assertNull(reader.readLine());
+      }
+      assertEquals(0, server.getRequestCount());
+      assertEquals(1, server.getRejectedCount());
+   }
+
+   @Test
+   public void testConnectionWithWrongToken() throws Exception {
+      int port = server.listen(0, "secret");
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+         Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         writer.write("{\"token\": \"secrets\"}\n");
+         writer.flush();
+         assertEquals(false, MAPPER.readValue(reader.readLine(), Map.class).get(CommandServer.KEY_SUCCEEDED));
+         assertNull(reader.readLine());
+      }
+      assertEquals(0, server.getRequestCount());
+   }
+
+   @Test
+   public void testAuthenticatedConnection() throws Exception {
+      int port = server.listen(0, "secret");
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+         Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         writer.write("{\"id\": 0, \"token\": \"secret\"}\n{\"id\": 1, \"operation\": \"info\"}\n");
+         writer.flush();
+         Map<String, Object> authentication = MAPPER.readValue(reader.readLine(), Map.class);
+         assertEquals(0, authentication.get(CommandServer.KEY_ID));
+         assertEquals(true, authentication.get(CommandServer.KEY_SUCCEEDED));
+         Map<String, Object> response = MAPPER.readValue(reader.readLine(), Map.class);
+         assertEquals(1, response.get(CommandServer.KEY_ID));
+         assertEquals("Operation info failed: info {}", message(response));
+      }
+      assertEquals(1, server.getRequestCount());
+      assertEquals(0, server.getRejectedCount());
+   }
+
+   @Test
+   public void testCloseStopsListening() throws IOException {
+      server.listen(0, "secret");
+      assertTrue(server.getPort() > 0);
+      server.close();
+      assertEquals(-1, server.getPort());
+   }
+
+}
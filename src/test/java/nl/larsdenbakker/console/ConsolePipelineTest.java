@@ -0,0 +1,113 @@
+package nl.larsdenbakker.console;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import nl.larsdenbakker.app.ApplicationUser;
+import nl.larsdenbakker.app.Console;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.util.OperationResponse;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the ConsolePipeline does not let a slow command hold up the
+ * commands after it, unless it executes one command at a time.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ConsolePipelineTest {
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final CountDownLatch slowStarted = new CountDownLatch(1);
+   private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+   //The command "slow" waits until it is released, every other command completes right away
+   private final OperationExecutor operationExecutor = new OperationExecutor(null) {
+      {
+         setAsyncExecutor(executor);
+      }
+
+      @Override
+      public OperationResponse executeCommand(ApplicationUser user, String[] args) {
+         if (args[0].equals("slow")) {
+            slowStarted.countDown();
+            try {
+               releaseSlow.await();
+            } catch (InterruptedException ex) {
+               Thread.currentThread().interrupt();
+            }
+         }
+         return OperationResponse.succeeded();
+      }
+   };
+
+   private final Console console = (Console) Proxy.newProxyInstance(Console.class.getClassLoader(), new Class[]{Console.class},
+                                                                     (Object proxy, Method method, Object[] args) -> null);
+
+   @After
+   public void shutdown() {
+      releaseSlow.countDown();
+      executor.shutdownNow();
+   }
+
+   private ConsolePipeline start(String input, int concurrency) {
+      ConsolePipeline pipeline = new ConsolePipeline(console, operationExecutor, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), 8, concurrency);
+      pipeline.start();
+      return pipeline;
+   }
+
+   private static boolean await(BooleanSupplier condition) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!condition.getAsBoolean()) {
+         if (System.currentTimeMillis() > deadline) {
+            return false;
+         }
+         Thread.sleep(5);
+      }
+      return true;
+   }
+
+   @Test
+   public void testFastCommandCompletesWhileSlowCommandRuns() throws InterruptedException {
+      ConsolePipeline pipeline = start("slow\nfast\n", 2);
+      assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+      assertTrue(await(() -> pipeline.getSucceededCount() == 1));
+      //The permit of the fast command is released after its response was printed
+      assertTrue(await(() -> pipeline.getExecutingCount() == 1));
+      assertTrue(pipeline.isRunning());
+      releaseSlow.countDown();
+      //The input ended, the pipeline stops once the slow command completed
+      assertTrue(await(() -> !pipeline.isRunning()));
+      assertEquals(2, pipeline.getSucceededCount());
+   }
+
+   @Test
+   public void testOrderedPipelineWaitsForSlowCommand() throws InterruptedException {
+      ConsolePipeline pipeline = start("slow\nfast\n", 1);
+      assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+      Thread.sleep(50);
+      assertEquals(0, pipeline.getSucceededCount());
+      releaseSlow.countDown();
+      assertTrue(await(() -> !pipeline.isRunning()));
+      assertEquals(2, pipeline.getSucceededCount());
+   }
+
+   @Test
+   public void testPipelineStopsAtEndOfInput() throws InterruptedException {
+      ConsolePipeline pipeline = start("fast\n\nfast\n", 2);
+      pipeline.awaitStop();
+      assertFalse(pipeline.isRunning());
+      assertEquals(2, pipeline.getSucceededCount());
+   }
+
+}
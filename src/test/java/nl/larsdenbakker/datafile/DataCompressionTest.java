@@ -0,0 +1,73 @@
+package nl.larsdenbakker.datafile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests detecting the compression of data by its header.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class DataCompressionTest {
+
+   private static byte[] compress(DataCompression compression, byte[] data) throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (OutputStream compressed = compression.compress(output)) {
+         compressed.write(data);
+      }
+      return output.toByteArray();
+   }
+
+   private static byte[] decompress(byte[] data) throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (InputStream input = DataCompression.decompress(new ByteArrayInputStream(data))) {
+         byte[] buffer = new byte[256];
+         int read;
+         while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+         }
+      }
+      return output.toByteArray();
+   }
+
+   @Test
+   public void testTextThatStartsLikeZlibIsNotCompressed() throws IOException {
+      //"x^" is 0x78 0x5e, a zlib header with a valid checksum
+      for (String text : new String[]{"x^", "x^: 1\n", "x^2: value\ny: [1, 2, 3]\nname: text that is not deflated\n"}) {
+         byte[] data = text.getBytes(StandardCharsets.UTF_8);
+         assertEquals(DataCompression.NONE, DataCompression.detect(data, data.length));
+         assertEquals(text, new String(decompress(data), StandardCharsets.UTF_8));
+      }
+   }
+
+   @Test
+   public void testCompressedDataIsDetected() throws IOException {
+      String text = "key: value\nlist: [1, 2, 3]\n";
+      byte[] data = text.getBytes(StandardCharsets.UTF_8);
+      for (DataCompression compression : DataCompression.values()) {
+         byte[] compressed = compress(compression, data);
+         assertEquals(compression, DataCompression.detect(compressed, compressed.length));
+         assertEquals(text, new String(decompress(compressed), StandardCharsets.UTF_8));
+      }
+   }
+
+   @Test
+   public void testLargeDeflatedDataIsDetectedByItsHeader() throws IOException {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 1000; i++) {
+         builder.append("key").append(i).append(": ").append(i * 31).append('\n');
+      }
+      String text = builder.toString();
+      byte[] data = text.getBytes(StandardCharsets.UTF_8);
+      byte[] compressed = compress(DataCompression.DEFLATE, data);
+      assertEquals(DataCompression.DEFLATE, DataCompression.detect(compressed, DataCompression.HEADER_SIZE));
+      assertEquals(text, new String(decompress(compressed), StandardCharsets.UTF_8));
+   }
+
+}
@@ -0,0 +1,98 @@
+package nl.larsdenbakker.datafile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests lazily parsed, memory-mapped loading of data files.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class LazyContentsMapTest {
+
+   private File file;
+
+   @Before
+   public void setUp() throws IOException {
+      file = File.createTempFile("lazy", ".json");
+   }
+
+   @After
+   public void tearDown() {
+      file.delete();
+   }
+
+   @Test
+   public void testValuesAreParsedOnAccess() throws Exception {
+      write("{\"a\": 1, \"b\": {\"c\": [1, 2]}, \"d\": \"text\"}");
+      Map<String, Object> contents = DataFileUtils.loadMappedContents(DataFormat.JSON, file, true);
+      assertTrue(contents instanceof LazyContentsMap);
+      assertEquals(Arrays.asList("a", "b", "d"), Arrays.asList(contents.keySet().toArray()));
+      assertEquals(1, contents.get("a"));
+      assertEquals("text", contents.get("d"));
+      Map<String, Object> b = new LinkedHashMap();
+      b.put("c", Arrays.asList(1, 2));
+      assertEquals(b, contents.get("b"));
+   }
+
+   @Test
+   public void testReplacedFileDoesNotChangeMappedContents() throws Exception {
+      write("{\"a\": \"first\", \"b\": \"second\"}");
+      Map<String, Object> contents = DataFileUtils.loadMappedContents(DataFormat.JSON, file, true);
+      assertEquals("first", contents.get("a"));
+      //DataFile.save(Object) writes a temporary file and moves it over the file
+      File temp = new File(file.getPath() + ".tmp");
+      Files.write(temp.toPath(), "{\"b\": \"changed and longer than before\"}".getBytes(StandardCharsets.UTF_8));
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      assertEquals("second", contents.get("b"));
+   }
+
+   @Test
+   public void testFailedParseKeepsRange() throws Exception {
+      Map<String, long[]> ranges = new LinkedHashMap();
+      ranges.put("good", new long[]{0, 1});
+      ranges.put("bad", new long[]{2, 5});
+      ByteBuffer buffer = ByteBuffer.wrap("1 {x:".getBytes(StandardCharsets.UTF_8));
+      LazyContentsMap contents = new LazyContentsMap(file, DataFormat.JSON.getObjectMapper(), buffer, ranges);
+      for (int i = 0; i < 3; i++) {
+         try {
+            contents.load("bad");
+            fail("Parsing an invalid value should fail.");
+         } catch (DataFileException ex) {
+            //Expected, repeatedly
+         }
+      }
+      try {
+         contents.get("bad");
+         fail("Parsing an invalid value should fail.");
+      } catch (UncheckedIOException ex) {
+         //Expected
+      }
+      assertEquals(1, contents.load("good"));
+      try {
+         contents.loadAll();
+         fail("Parsing an invalid value should fail.");
+      } catch (DataFileException ex) {
+         //Expected
+      }
+   }
+
+   private void write(String json) throws IOException {
+      Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+   }
+
+}
@@ -0,0 +1,61 @@
+package nl.larsdenbakker.operation;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the tokens the InputLexer produces for command and variable input.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class InputLexerTest {
+
+   @Test
+   public void testTokenizeSplitsOnWhitespace() {
+      assertArrayEquals(new String[]{"give", "item=stone", "amount=5"}, InputLexer.tokenize("give item=stone amount=5"));
+      assertArrayEquals(new String[]{"a", "b"}, InputLexer.tokenize("  a \t\n b  "));
+   }
+
+   @Test
+   public void testTokenizeOfEmptyInput() {
+      assertEquals(0, InputLexer.tokenize("").length);
+      assertEquals(0, InputLexer.tokenize(" \t ").length);
+   }
+
+   @Test
+   public void testTokenizeKeepsQuotedTextTogether() {
+      assertArrayEquals(new String[]{"say", "hello world", "x"}, InputLexer.tokenize("say \"hello world\" x"));
+      assertArrayEquals(new String[]{"message=hello  world", "to=me"}, InputLexer.tokenize("message=\"hello  world\" to=me"));
+      assertArrayEquals(new String[]{"ab", ""}, InputLexer.tokenize("a\"b\" \"\""));
+   }
+
+   @Test
+   public void testUnclosedQuoteExtendsToEndOfInput() {
+      assertArrayEquals(new String[]{"say", "hello world "}, InputLexer.tokenize("say \"hello world "));
+   }
+
+   @Test
+   public void testSplitWordsIgnoresQuotes() {
+      assertArrayEquals(new String[]{"\"hello", "world\""}, InputLexer.splitWords("\"hello world\""));
+   }
+
+   @Test
+   public void testIndexOfAssignment() {
+      assertEquals(3, InputLexer.indexOfAssignment("key=value"));
+      assertEquals(-1, InputLexer.indexOfAssignment("key"));
+      assertEquals(-1, InputLexer.indexOfAssignment("=value"));
+      assertEquals(-1, InputLexer.indexOfAssignment("key="));
+      assertEquals(-1, InputLexer.indexOfAssignment("a=b=c"));
+   }
+
+   @Test
+   public void testIsReference() {
+      assertTrue(InputLexer.isReference("$key"));
+      assertFalse(InputLexer.isReference("$"));
+      assertFalse(InputLexer.isReference("key$"));
+   }
+
+}
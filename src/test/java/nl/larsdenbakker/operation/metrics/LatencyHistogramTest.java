@@ -0,0 +1,104 @@
+package nl.larsdenbakker.operation.metrics;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the counts and percentiles of LatencyHistograms.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class LatencyHistogramTest {
+
+   @Test
+   public void testEmptySnapshot() {
+      LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+      assertEquals(0, snapshot.getCount());
+      assertEquals(0, snapshot.getMeanNanos());
+      assertEquals(0, snapshot.getPercentileNanos(99));
+   }
+
+   @Test
+   public void testSmallValuesAreExact() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (int i = 1; i <= 10; i++) {
+         histogram.record(i);
+      }
+      histogram.record(-5);
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+      assertEquals(11, snapshot.getCount());
+      assertEquals(55, snapshot.getTotalNanos());
+      assertEquals(5, snapshot.getMeanNanos());
+      assertEquals(10, snapshot.getMaxNanos());
+      assertEquals(0, snapshot.getPercentileNanos(0));
+      assertEquals(5, snapshot.getPercentileNanos(50));
+      assertEquals(10, snapshot.getPercentileNanos(100));
+   }
+
+   @Test
+   public void testPercentilesAreWithinBucketPrecision() {
+      Random random = new Random(42);
+      for (int run = 0; run < 50; run++) {
+         LatencyHistogram histogram = new LatencyHistogram();
+         long[] values = new long[1 + random.nextInt(2000)];
+         for (int i = 0; i < values.length; i++) {
+            //Durations from nanoseconds up to seconds
+            values[i] = (long) Math.pow(10, random.nextDouble() * 9);
+            histogram.record(values[i]);
+         }
+         Arrays.sort(values);
+         LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+         assertEquals(values[values.length - 1], snapshot.getMaxNanos());
+         for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.max(0, Math.ceil(values.length * percentile / 100) - 1)];
+            long estimate = snapshot.getPercentileNanos(percentile);
+            assertTrue(percentile + ": " + estimate + " < " + exact, estimate >= exact);
+            assertTrue(percentile + ": " + estimate + " > " + exact, estimate <= exact + exact / 16);
+         }
+      }
+   }
+
+   @Test
+   public void testDurationsThatAreTooLongReportTheMaximum() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(1000);
+      histogram.record(Long.MAX_VALUE / 2);
+      assertEquals(Long.MAX_VALUE / 2, histogram.snapshot().getPercentileNanos(100));
+   }
+
+   @Test
+   public void testReset() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(100);
+      histogram.reset();
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+      assertEquals(0, snapshot.getCount());
+      assertEquals(0, snapshot.getMaxNanos());
+      assertEquals(0, snapshot.getTotalNanos());
+   }
+
+   @Test
+   public void testConcurrentRecording() throws InterruptedException {
+      LatencyHistogram histogram = new LatencyHistogram();
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+         long offset = t;
+         threads[t] = new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+               histogram.record(i + offset);
+            }
+         });
+         threads[t].start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+      assertEquals(40000, snapshot.getCount());
+      assertEquals(10002, snapshot.getMaxNanos());
+   }
+
+}
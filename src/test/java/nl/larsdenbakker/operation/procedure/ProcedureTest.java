@@ -0,0 +1,89 @@
+package nl.larsdenbakker.operation.procedure;
+
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationContextRoot;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.operations.TargetedOperation;
+import nl.larsdenbakker.operation.operations.constraints.IntegerSizeConstraint;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.SimpleOperationTemplate;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.util.OperationResponse;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a Procedure responds with the responses of its ProcedureTasks.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ProcedureTest {
+
+   private final ConversionModule conversionModule = new ConversionModule(null) {
+      {
+         _load();
+      }
+   };
+
+   private final OperationModule operationModule = new OperationModule(null) {
+      @Override
+      public ConversionModule getConversionModule() {
+         return conversionModule;
+      }
+   };
+
+   private OperationTemplate constraint(String name, Class<? extends Operation> operationClass, String key, Object value) {
+      return new SimpleOperationTemplate(null, operationModule, name, new Variable[]{
+         new Variable(operationModule, TargetedOperation.KEY_TARGET, null),
+         new Variable(operationModule, key, value)}, operationClass);
+   }
+
+   private OperationResponse execute(ProcedureTask task, Object target) {
+      ProcedureTemplate procedure = new ProcedureTemplate(null, operationModule, "procedure", new Variable[0], task);
+      return new OperationContextRoot(operationModule, null, procedure, Collections.singletonMap(TargetedOperation.KEY_TARGET, target)).execute();
+   }
+
+   @Test
+   public void testProcedureSucceedsWhenAllTasksSucceed() {
+      OperationResponse response = execute(new OperationSequence(constraint("min-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MIN_LENGTH, 1),
+                                                                 constraint("max-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MAX_LENGTH, 5)), "abc");
+      assertTrue(response.getMessage(), response.hasSucceeded());
+   }
+
+   @Test
+   public void testProcedureFailsWithFirstFailure() {
+      OperationResponse response = execute(new OperationSequence(constraint("min-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MIN_LENGTH, 1),
+                                                                 constraint("max-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MAX_LENGTH, 2),
+                                                                 constraint("min-size", IntegerSizeConstraint.class, IntegerSizeConstraint.KEY_MIN_SIZE, 500)), "abc");
+      assertFalse(response.hasSucceeded());
+      assertEquals(Collections.singletonList("Input cannot be longer than 2 characters."), response.getMessages());
+   }
+
+   @Test
+   public void testParallelSequenceFailureIsPropagated() {
+      OperationResponse response = execute(new ParallelSequence(constraint("max-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MAX_LENGTH, 5),
+                                                                constraint("min-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MIN_LENGTH, 4)), "abc");
+      assertFalse(response.hasSucceeded());
+      assertEquals(Collections.singletonList("Input must be at least 4 characters long."), response.getMessages());
+   }
+
+   @Test
+   public void testParallelSequenceOnPool() {
+      ForkJoinPool pool = new ForkJoinPool(1);
+      try {
+         OperationResponse response = execute(new ParallelSequence(pool, constraint("min-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MIN_LENGTH, 1),
+                                                                   constraint("max-length", StringLengthConstraint.class, StringLengthConstraint.KEY_MAX_LENGTH, 5),
+                                                                   constraint("min-size", IntegerSizeConstraint.class, IntegerSizeConstraint.KEY_MIN_SIZE, 1)), 3);
+         assertTrue(response.getMessage(), response.hasSucceeded());
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+}
@@ -0,0 +1,107 @@
+package nl.larsdenbakker.operation.template;
+
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.storage.MemoryStorage;
+import nl.larsdenbakker.storage.Storage;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests binding the variables of an ExecutionPlan to the storage of an
+ * execution.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ExecutionPlanTest {
+
+   private final ConversionModule conversionModule = new ConversionModule(null) {
+      {
+         _load();
+      }
+   };
+
+   private final OperationModule operationModule = new OperationModule(null) {
+      @Override
+      public ConversionModule getConversionModule() {
+         return conversionModule;
+      }
+   };
+
+   private ExecutionPlan compile(Variable... variables) {
+      return new SimpleOperationTemplate(null, operationModule, "test", variables, StringLengthConstraint.class).compile();
+   }
+
+   @Test
+   public void testBindMapsConstantsAndOverrides() {
+      ExecutionPlan plan = compile(new Variable(operationModule, "min", 1),
+                                   new Variable(operationModule, "max", 5),
+                                   new Variable(operationModule, "copy", "$source"));
+      Storage parent = MemoryStorage.create(conversionModule);
+      parent.set("max", 8);
+      parent.set("source", "value");
+      Storage storage = plan.createStorage(conversionModule);
+      plan.bind(parent, storage, null);
+      assertEquals(1, storage.get("min"));
+      assertEquals(8, storage.get("max"));
+      assertEquals("value", storage.get("copy"));
+      assertEquals("test", storage.get(Operation.KEY_NAME));
+   }
+
+   @Test
+   public void testArgumentsOfRootExecutionOverrideConstants() {
+      ExecutionPlan plan = compile(new Variable(operationModule, "min", 1), new Variable(operationModule, "max", 5));
+      Storage storage = plan.createStorage(conversionModule);
+      storage.set("min", 3);
+      plan.bind(storage, storage, null);
+      assertEquals(3, storage.get("min"));
+      assertEquals(5, storage.get("max"));
+   }
+
+   @Test
+   public void testLiteralAfterReferenceIsBoundInOrder() {
+      ExecutionPlan plan = compile(new Variable(operationModule, "copy", "$late"), new Variable(operationModule, "late", "value"));
+      Storage parent = MemoryStorage.create(conversionModule);
+      Storage storage = plan.createStorage(conversionModule);
+      assertFalse(storage.isSet("late"));
+      plan.bind(parent, storage, null);
+      //The reference could not see the literal that is bound after it
+      assertFalse(storage.isSet("copy"));
+      assertEquals("value", storage.get("late"));
+   }
+
+   @Test
+   public void testConversionsOfConstantsAreShared() {
+      ExecutionPlan plan = compile(new Variable(operationModule, "size", "1000"));
+      Storage first = plan.createStorage(conversionModule);
+      Storage second = plan.createStorage(conversionModule);
+      Integer size = first.get("size", Integer.class);
+      assertEquals(Integer.valueOf(1000), size);
+      assertSame(size, second.get("size", Integer.class));
+      second.set("size", "2000");
+      assertEquals(Integer.valueOf(2000), second.get("size", Integer.class));
+   }
+
+   @Test
+   public void testResetStorageKeepsOnlyConstants() {
+      ExecutionPlan plan = compile(new Variable(operationModule, "min", 1));
+      Storage storage = plan.createStorage(conversionModule);
+      storage.set("min", 2);
+      storage.set("argument", "value");
+      plan.resetStorage(storage);
+      assertEquals(1, storage.get("min"));
+      assertFalse(storage.isSet("argument"));
+   }
+
+   @Test
+   public void testInterpolationsAreCompiledOnce() {
+      ExecutionPlan plan = compile();
+      assertSame(plan.getInterpolation("Hello $player"), plan.getInterpolation("Hello $player"));
+   }
+
+}
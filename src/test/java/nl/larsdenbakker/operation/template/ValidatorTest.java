@@ -0,0 +1,163 @@
+package nl.larsdenbakker.operation.template;
+
+import java.util.Collections;
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationContextRoot;
+import nl.larsdenbakker.operation.OperationExecutor;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.operations.TargetedOperation;
+import nl.larsdenbakker.operation.operations.constraints.IntegerSizeConstraint;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.procedure.OperationSequence;
+import nl.larsdenbakker.operation.procedure.ProcedureTemplate;
+import nl.larsdenbakker.operation.variables.Variable;
+import nl.larsdenbakker.util.OperationResponse;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that the Validators of constraint templates check their target
+ * directly, with the parameters the templates are bound to.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ValidatorTest {
+
+   private final ConversionModule conversionModule = new ConversionModule(null) {
+      {
+         _load();
+      }
+   };
+
+   //Fails every validation that falls back to executing the operation
+   private final OperationModule operationModule = new OperationModule(null) {
+      @Override
+      public ConversionModule getConversionModule() {
+         return conversionModule;
+      }
+
+      @Override
+      public OperationExecutor getOperationExecutor() {
+         throw new AssertionError("The validator executed the operation");
+      }
+   };
+
+   /* Create a template the way OperationFactory registers an Operation type, with a null value for each key. */
+   private OperationTemplate register(String name, Class<? extends Operation> operationClass, String... keys) {
+      Variable[] variables = new Variable[keys.length + 2];
+      variables[0] = new Variable(operationModule, TargetedOperation.KEY_TARGET, null);
+      variables[1] = new Variable(operationModule, Operation.KEY_ERROR_MESSAGE, null);
+      for (int i = 0; i < keys.length; i++) {
+         variables[i + 2] = new Variable(operationModule, keys[i], null);
+      }
+      return new SimpleOperationTemplate(null, operationModule, name, variables, operationClass);
+   }
+
+   private ProcedureTemplate procedure(String name, Variable[] variables, OperationTemplate... templates) {
+      return new ProcedureTemplate(null, operationModule, name, variables, new OperationSequence(templates));
+   }
+
+   @Test
+   public void testProcedureBindsParametersOfItsOperations() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      ProcedureTemplate username = procedure("username", new Variable[]{
+         new Variable(operationModule, StringLengthConstraint.KEY_MIN_LENGTH, 3),
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, "5")}, stringLength);
+      Validator validator = username.getValidator();
+      assertNull(validator.validate("abc"));
+      assertNull(validator.validate("abcde"));
+      assertEquals("Input must be at least 3 characters long.", validator.validate("ab"));
+      assertEquals("Input cannot be longer than 5 characters.", validator.validate("abcdef"));
+   }
+
+   @Test
+   public void testProcedureValidatesWithAllOperationsInOrder() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      OperationTemplate intSize = register("int-size", IntegerSizeConstraint.class,
+                                           IntegerSizeConstraint.KEY_MIN_SIZE, IntegerSizeConstraint.KEY_MAX_SIZE);
+      ProcedureTemplate shortName = procedure("short-name", new Variable[]{
+         new Variable(operationModule, TargetedOperation.KEY_TARGET, null),
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, 2)}, stringLength);
+      ProcedureTemplate level = procedure("level", new Variable[]{
+         new Variable(operationModule, IntegerSizeConstraint.KEY_MIN_SIZE, 1),
+         new Variable(operationModule, IntegerSizeConstraint.KEY_MAX_SIZE, 500)}, intSize, shortName);
+      Validator validator = level.getValidator();
+      assertNull(validator.validate(5));
+      assertNull(validator.validate("10"));
+      assertEquals("Input cannot be lower than 1.", validator.validate(0));
+      assertEquals("Input cannot be longer than 2 characters.", validator.validate(120));
+      //The first operation that rejects the target reports it
+      assertEquals("Input cannot be higher than 500.", validator.validate(501));
+   }
+
+   @Test
+   public void testProcedureValidatorAgreesWithExecution() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      OperationTemplate intSize = register("int-size", IntegerSizeConstraint.class,
+                                           IntegerSizeConstraint.KEY_MIN_SIZE, IntegerSizeConstraint.KEY_MAX_SIZE);
+      //A nested procedure only receives the target if it declares it
+      ProcedureTemplate shortName = procedure("short-name", new Variable[]{
+         new Variable(operationModule, TargetedOperation.KEY_TARGET, null),
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, 2)}, stringLength);
+      ProcedureTemplate level = procedure("level", new Variable[]{
+         new Variable(operationModule, IntegerSizeConstraint.KEY_MIN_SIZE, 1),
+         new Variable(operationModule, IntegerSizeConstraint.KEY_MAX_SIZE, 500)}, intSize, shortName);
+      Validator validator = level.getValidator();
+      for (Object target : new Object[]{5, "10", 0, 120, 501}) {
+         OperationResponse response = execute(level, target);
+         assertEquals("Target " + target, (response.hasSucceeded()) ? null : response.getMessage(), validator.validate(target));
+      }
+      //Conversion errors are worded by the storage when executing, only the outcome is compared
+      assertFalse(execute(level, "abc").hasSucceeded());
+      assertNotNull(validator.validate("abc"));
+   }
+
+   private OperationResponse execute(OperationTemplate template, Object target) {
+      return new OperationContextRoot(operationModule, null, template, Collections.singletonMap(TargetedOperation.KEY_TARGET, target)).execute();
+   }
+
+   @Test
+   public void testProcedureWithoutTargetIsExecuted() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      ProcedureTemplate shortName = procedure("short-name", new Variable[]{
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, 2)}, stringLength);
+      ProcedureTemplate name = procedure("name", new Variable[0], shortName);
+      try {
+         name.getValidator().validate("ab");
+         fail();
+      } catch (AssertionError ex) {
+         assertEquals("The validator executed the operation", ex.getMessage());
+      }
+   }
+
+   @Test
+   public void testCustomErrorMessageOfProcedureIsUsed() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      ProcedureTemplate username = procedure("username", new Variable[]{
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, 2),
+         new Variable(operationModule, Operation.KEY_ERROR_MESSAGE, "Too long.")}, stringLength);
+      assertEquals("Too long.", username.getValidator().validate("abc"));
+      assertNull(username.getValidator().validate("ab"));
+   }
+
+   @Test
+   public void testParametersOverrideBoundVariables() {
+      OperationTemplate stringLength = register("string-length", StringLengthConstraint.class,
+                                                StringLengthConstraint.KEY_MIN_LENGTH, StringLengthConstraint.KEY_MAX_LENGTH);
+      ProcedureTemplate username = procedure("username", new Variable[]{
+         new Variable(operationModule, StringLengthConstraint.KEY_MIN_LENGTH, 3)}, stringLength);
+      Validator validator = username.compileValidator(Collections.singletonMap(StringLengthConstraint.KEY_MIN_LENGTH, 1));
+      assertNull(validator.validate("a"));
+   }
+
+}
@@ -0,0 +1,87 @@
+package nl.larsdenbakker.operation.variables;
+
+import java.util.HashMap;
+import java.util.Map;
+import nl.larsdenbakker.storage.MemoryStorage;
+import nl.larsdenbakker.storage.Storage;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests parsing and evaluating the values of variables.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class VariableTemplateTest {
+
+   @Test
+   public void testCompileClassifiesValues() {
+      assertTrue(VariableTemplate.compile(null, 5) instanceof VariableTemplate.Literal);
+      assertTrue(VariableTemplate.compile(null, null) instanceof VariableTemplate.Literal);
+      assertTrue(VariableTemplate.compile(null, "plain text") instanceof VariableTemplate.Literal);
+      assertTrue(VariableTemplate.compile(null, ".registry.key") instanceof VariableTemplate.DataPath);
+      assertTrue(VariableTemplate.compile(null, "name.$player") instanceof VariableTemplate.PropertyOfVariable);
+      assertTrue(VariableTemplate.compile(null, "Hello $player!") instanceof VariableTemplate.Interpolation);
+      VariableTemplate reference = VariableTemplate.compile(null, "$player");
+      assertTrue(reference instanceof VariableTemplate.Reference);
+      assertEquals("player", ((VariableTemplate.Reference) reference).getKey());
+   }
+
+   @Test
+   public void testReferencePrefersLocalStorage() {
+      Storage parent = MemoryStorage.create(null);
+      Storage local = MemoryStorage.create(null);
+      parent.set("a", "parent");
+      parent.set("b", "parent");
+      local.set("a", "local");
+      VariableTemplate a = VariableTemplate.compile(null, "$a");
+      VariableTemplate b = VariableTemplate.compile(null, "$b");
+      assertEquals("local", a.evaluate(parent, local));
+      assertEquals("parent", b.evaluate(parent, local));
+      assertNull(VariableTemplate.compile(null, "$c").evaluate(parent, local));
+      assertNull(b.evaluate(null, local));
+   }
+
+   @Test
+   public void testInterpolationKeepsLiteralText() {
+      Map<String, String> values = new HashMap();
+      values.put("player", "Lars");
+      values.put("count", "3");
+      VariableTemplate.Interpolation interpolation = VariableTemplate.Interpolation.compile("Hello  $player you have\t$count items, $player,");
+      assertEquals("Hello  Lars you have\t3 items, $player,", interpolation.format(values::get));
+      assertEquals("$player won", VariableTemplate.Interpolation.compile("$player won").format((String key) -> null));
+   }
+
+   @Test
+   public void testInterpolationOnlyReplacesWords() {
+      Map<String, String> values = new HashMap();
+      values.put("b", "x");
+      assertEquals("a$b $ $b$", VariableTemplate.Interpolation.compile("a$b $ $b$").format(values::get));
+      assertEquals("x", VariableTemplate.Interpolation.compile("$b").format(values::get));
+      assertEquals("", VariableTemplate.Interpolation.compile("").format(values::get));
+   }
+
+   @Test
+   public void testInterpolationEvaluatesMissingVariables() {
+      Storage storage = MemoryStorage.create(null);
+      storage.set("amount", 5);
+      assertEquals("Total: 5 of <variable not found>", VariableTemplate.compile(null, "Total: $amount of $item").evaluate(null, storage));
+   }
+
+   @Test
+   public void testParentValueOverridesVariable() {
+      Storage parent = MemoryStorage.create(null);
+      Storage storage = MemoryStorage.create(null);
+      parent.set("size", 10);
+      new Variable(null, "size", 5).mapVariableToStorage(parent, storage);
+      new Variable(null, "name", "$missing").mapVariableToStorage(parent, storage);
+      new Variable(null, "empty", null).mapVariableToStorage(parent, storage);
+      assertEquals(10, storage.get("size"));
+      assertFalse(storage.isSet("name"));
+      assertNull(storage.get("empty"));
+   }
+
+}
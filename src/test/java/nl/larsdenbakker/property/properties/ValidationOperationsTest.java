@@ -0,0 +1,84 @@
+package nl.larsdenbakker.property.properties;
+
+import nl.larsdenbakker.conversion.ConversionModule;
+import nl.larsdenbakker.operation.OperationModule;
+import nl.larsdenbakker.operation.OperationRegistry;
+import nl.larsdenbakker.operation.operations.Operation;
+import nl.larsdenbakker.operation.operations.TargetedOperation;
+import nl.larsdenbakker.operation.operations.constraints.StringLengthConstraint;
+import nl.larsdenbakker.operation.template.OperationTemplate;
+import nl.larsdenbakker.operation.template.SimpleOperationTemplate;
+import nl.larsdenbakker.operation.variables.Variable;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the validation operations of a Property follow the templates
+ * that are registered when a template is replaced, such as by a reload.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ValidationOperationsTest {
+
+   private final ConversionModule conversionModule = new ConversionModule(null) {
+      {
+         _load();
+      }
+   };
+
+   private final OperationRegistry operationRegistry = new OperationRegistry(null, null);
+
+   private final OperationModule operationModule = new OperationModule(null) {
+      @Override
+      public ConversionModule getConversionModule() {
+         return conversionModule;
+      }
+
+      @Override
+      public OperationRegistry getOperationRegistry() {
+         return operationRegistry;
+      }
+   };
+
+   private OperationTemplate nameLength(int maxLength) {
+      return new SimpleOperationTemplate(null, operationModule, "name-length", new Variable[]{
+         new Variable(operationModule, TargetedOperation.KEY_TARGET, null),
+         new Variable(operationModule, Operation.KEY_ERROR_MESSAGE, null),
+         new Variable(operationModule, StringLengthConstraint.KEY_MIN_LENGTH, 1),
+         new Variable(operationModule, StringLengthConstraint.KEY_MAX_LENGTH, maxLength)}, StringLengthConstraint.class);
+   }
+
+   @Test
+   public void testReplacedTemplateIsUsed() {
+      OperationTemplate original = nameLength(3);
+      operationRegistry.register(original);
+      ValidationOperations validationOperations = ValidationOperations.of(new OperationTemplate[]{original});
+      assertEquals("Input cannot be longer than 3 characters.", validationOperations.getValidators()[0].validate("abcde"));
+
+      OperationTemplate reloaded = nameLength(5);
+      operationRegistry.replace(reloaded);
+      assertSame(reloaded, validationOperations.getTemplates()[0]);
+      assertNull(validationOperations.getValidators()[0].validate("abcde"));
+   }
+
+   @Test
+   public void testUnregisteredTemplateKeepsBeingUsed() {
+      OperationTemplate original = nameLength(3);
+      operationRegistry.register(original);
+      ValidationOperations validationOperations = ValidationOperations.of(new OperationTemplate[]{original});
+      operationRegistry.unregister(original.getKey());
+      assertSame(original, validationOperations.getTemplates()[0]);
+      assertEquals("Input cannot be longer than 3 characters.", validationOperations.getValidators()[0].validate("abcde"));
+   }
+
+   @Test
+   public void testTemplateThatWasNotRegisteredIsNotLookedUp() {
+      OperationTemplate unregistered = nameLength(3);
+      ValidationOperations validationOperations = ValidationOperations.of(new OperationTemplate[]{unregistered});
+      operationRegistry.register(nameLength(5));
+      assertSame(unregistered, validationOperations.getTemplates()[0]);
+   }
+
+}
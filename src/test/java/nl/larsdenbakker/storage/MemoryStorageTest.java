@@ -0,0 +1,124 @@
+package nl.larsdenbakker.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import nl.larsdenbakker.datafile.DataFormat;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the copy-on-write snapshots of MemoryStorages.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class MemoryStorageTest {
+
+   private static final ObjectMapper MAPPER = DataFormat.JSON_UNINDENTED.getObjectMapper();
+
+   @Test
+   public void testSnapshotIsNotChangedByWrites() throws Exception {
+      MemoryStorage storage = MemoryStorage.create(null);
+      storage.set("a", 1);
+      storage.set("child.b", 2);
+      Map<String, Object> snapshot = storage.takeSnapshot();
+      storage.set("a", 10);
+      storage.set("child.b", 20);
+      storage.set("child.c", 30);
+      storage.unset("a");
+      assertEquals("{\"a\":1,\"child\":{\"b\":2}}", MAPPER.writeValueAsString(snapshot));
+      assertNull(storage.get("a"));
+      assertEquals(20, storage.getStorage("child").get("b"));
+   }
+
+   @Test
+   public void testOverlappingSnapshotsWithWritesCanBeSaved() throws Exception {
+      MemoryStorage storage = MemoryStorage.create(null);
+      storage.set("child.value", "first");
+      Map<String, Object> first = storage.takeSnapshot();
+      storage.set("child.value", "second");
+      Map<String, Object> second = storage.takeSnapshot();
+      storage.set("child.value", "third");
+      Map<String, Object> third = storage.takeSnapshot();
+      storage.set("child.value", "fourth");
+      //Saving the older snapshots after newer ones were taken and written over
+      assertEquals("{\"child\":{\"value\":\"first\"}}", MAPPER.writeValueAsString(first));
+      assertEquals("{\"child\":{\"value\":\"second\"}}", MAPPER.writeValueAsString(second));
+      assertEquals("{\"child\":{\"value\":\"third\"}}", MAPPER.writeValueAsString(third));
+      assertEquals("fourth", storage.getStorage("child").get("value"));
+   }
+
+   @Test
+   public void testSnapshotThatIsCollectedAfterNewerSnapshotAndWrites() throws Exception {
+      MemoryStorage storage = MemoryStorage.create(null);
+      storage.set("child.value", "first");
+      storage.set("other.value", "first");
+      //A snapshot that has not collected its Storages yet while another snapshot is taken and written over twice
+      long epoch = storage.nextSnapshotEpoch();
+      storage.set("child.value", "second");
+      Map<String, Object> second = storage.takeSnapshot();
+      storage.set("child.value", "third");
+      storage.set("other.value", "third");
+      Map<String, Object> first = storage.getSnapshot(epoch);
+      storage.releaseSnapshotEpoch(epoch);
+      assertEquals("{\"value\":\"first\"}", MAPPER.writeValueAsString(first.get("child")));
+      assertEquals("{\"value\":\"first\"}", MAPPER.writeValueAsString(first.get("other")));
+      assertEquals("{\"value\":\"second\"}", MAPPER.writeValueAsString(second.get("child")));
+      assertEquals("{\"value\":\"first\"}", MAPPER.writeValueAsString(second.get("other")));
+      assertEquals("third", storage.getStorage("child").get("value"));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testReleasedSnapshotEpochIsNotCollected() throws Exception {
+      MemoryStorage storage = MemoryStorage.create(null);
+      storage.set("child.value", "first");
+      long epoch = storage.nextSnapshotEpoch();
+      storage.releaseSnapshotEpoch(epoch);
+      storage.set("child.value", "second");
+      storage.takeSnapshot();
+      storage.set("child.value", "third");
+      storage.getSnapshot(epoch);
+   }
+
+   @Test
+   public void testWriteAfterSnapshotKeepsKeyOrder() throws Exception {
+      Map<String, Object> loaded = new LinkedHashMap();
+      List<String> keys = new ArrayList();
+      for (int i = 0; i < 32; i++) {
+         loaded.put("key" + (31 - i), i);
+         keys.add("key" + (31 - i));
+      }
+      MemoryStorage storage = MemoryStorage.create(null, loaded);
+      storage.takeSnapshot();
+      storage.set("key0", -1);
+      assertEquals(keys, new ArrayList(storage.getKeys()));
+   }
+
+   @Test
+   public void testSnapshotWithoutParent() throws Exception {
+      MemoryStorage storage = new MemoryStorage("detached", new HashMap());
+      storage.set("a", 1);
+      Map<String, Object> snapshot = storage.takeSnapshot();
+      storage.set("a", 2);
+      assertEquals(1, snapshot.get("a"));
+      assertEquals(2, storage.get("a"));
+   }
+
+   @Test
+   public void testSnapshotOfSharedMap() throws Exception {
+      Map<String, Object> child = new LinkedHashMap();
+      child.put("list", Arrays.asList(1, 2));
+      Map<String, Object> loaded = new LinkedHashMap();
+      loaded.put("child", child);
+      MemoryStorage storage = MemoryStorage.create(null, loaded);
+      Map<String, Object> snapshot = storage.takeSnapshot();
+      storage.getStorage("child").set("other", 3);
+      assertEquals("{\"child\":{\"list\":[1,2]}}", MAPPER.writeValueAsString(snapshot));
+   }
+
+}
@@ -0,0 +1,138 @@
+package nl.larsdenbakker.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import nl.larsdenbakker.util.ComparisonUtils.ComparisonOperator;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that comparisons of large collections, which use indexes and
+ * minimums and maximums, give the same results as comparing element by
+ * element.
+ *
+ * @author Lars den Bakker <larsdenbakker at gmail.com>
+ */
+public class ComparisonUtilsTest {
+
+   private static final int ITERATIONS = 2000;
+
+   private final Random random = new Random(1764);
+
+   private List<Object> randomList(boolean strings) {
+      int size = random.nextInt(60);
+      int domain = 1 + random.nextInt(40);
+      List<Object> list = new ArrayList(size);
+      for (int i = 0; i < size; i++) {
+         int value = random.nextInt(domain);
+         list.add((strings) ? "v" + value : value);
+      }
+      return list;
+   }
+
+   /* Every pair of elements compared on its own. */
+   private static boolean compareElementByElement(ComparisonOperator operator, Collection<Object> arg1, Collection<Object> arg2) {
+      for (Object o1 : arg1) {
+         for (Object o2 : arg2) {
+            if (!ComparisonUtils.compare(operator, o1, o2)) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   /* The element-of relation on plain lists. */
+   private static boolean elementOfLists(ComparisonOperator operator, List<Object> arg1, List<Object> arg2) {
+      switch (operator) {
+         case NOT_EQUAL:
+            return arg1.size() != arg2.size() || !arg1.containsAll(arg2);
+         case EQUAL:
+            return arg1.size() == arg2.size() && arg1.containsAll(arg2);
+         case GREATER:
+            return arg1.size() > arg2.size() && arg1.containsAll(arg2);
+         case GREATER_OR_EQUAL:
+            return arg1.size() >= arg2.size() && arg1.containsAll(arg2);
+         default:
+            return arg1.size() < arg2.size() && arg2.containsAll(arg1);
+      }
+   }
+
+   @Test
+   public void testCompareCollectionsEqualsElementByElement() {
+      for (int i = 0; i < ITERATIONS; i++) {
+         boolean strings = random.nextBoolean();
+         List<Object> arg1 = randomList(strings);
+         List<Object> arg2 = randomList(strings);
+         for (ComparisonOperator operator : ComparisonOperator.values()) {
+            assertEquals(operator + " " + arg1 + " " + arg2, compareElementByElement(operator, arg1, arg2),
+                         ComparisonUtils.compare(operator, arg1, arg2));
+         }
+      }
+   }
+
+   @Test
+   public void testElementOfEqualsPlainLists() {
+      for (int i = 0; i < ITERATIONS; i++) {
+         boolean strings = random.nextBoolean();
+         List<Object> arg1 = randomList(strings);
+         List<Object> arg2 = randomList(strings);
+         if (arg1.isEmpty() || arg2.isEmpty()) {
+            continue;
+         }
+         for (ComparisonOperator operator : ComparisonOperator.values()) {
+            assertEquals(operator + " " + arg1 + " " + arg2, elementOfLists(operator, arg1, arg2),
+                         ComparisonUtils.elementOf(operator, arg1, arg2));
+         }
+      }
+   }
+
+   @Test
+   public void testIndexedViewAnswersLikeTheCollection() {
+      for (int i = 0; i < ITERATIONS; i++) {
+         List<Object> values = randomList(random.nextBoolean());
+         Collection<Object> indexed = ComparisonUtils.indexed(values);
+         assertEquals(values.size(), indexed.size());
+         for (int j = 0; j < 45; j++) {
+            assertEquals(values.contains(j), indexed.contains(j));
+            assertEquals(values.contains("v" + j), indexed.contains("v" + j));
+         }
+      }
+   }
+
+   @Test
+   public void testCachedIndexFollowsModifiedSource() {
+      List<Object> source = new ArrayList();
+      for (int i = 0; i < 20; i++) {
+         source.add(i);
+      }
+      Collection<Object> index = ComparisonUtils.indexed(source, source);
+      assertSame(index, ComparisonUtils.indexed(source, source));
+      assertFalse(index.contains(100));
+
+      source.add(100);
+      assertTrue(ComparisonUtils.indexed(source, source).contains(100));
+
+      //Replacing an element keeps the size the same
+      source.set(0, 200);
+      Collection<Object> replaced = ComparisonUtils.indexed(source, source);
+      assertTrue(replaced.contains(200));
+      assertFalse(replaced.contains(0));
+   }
+
+   @Test
+   public void testIndexOfStringSourceIsCached() {
+      String source = "configured values";
+      List<Object> values = new ArrayList();
+      for (int i = 0; i < 20; i++) {
+         values.add(i);
+      }
+      assertSame(ComparisonUtils.indexed(source, values), ComparisonUtils.indexed(source, new ArrayList(values)));
+   }
+
+}